@@ -0,0 +1,606 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Function;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.type.ContainerType;
+import org.xodonex.hojo.lang.type.FunctionType;
+import org.xodonex.hojo.lang.type.GenericFunctionType;
+import org.xodonex.hojo.lang.type.GenericType;
+
+/**
+ * A directory of compiled scripts, which allows the {@link HojoInterpreter}
+ * to skip the compilation of scripts which have been compiled before, also by
+ * a previous instance of the VM.
+ * <p>
+ * Each entry is stored under a key which the interpreter derives from the
+ * contents of the script and the state of the compiler, and it records the
+ * URLs and contents of the scripts included by the script, such that the
+ * entry is ignored if any of these have changed. The compiled code is stored
+ * by serialization, where the reflected members and the objects which are
+ * specific to the lexer are stored by name.
+ * <p>
+ * Since anyone who may write to the directory could otherwise execute code
+ * as an entry is read, an entry may only contain instances of the classes
+ * of this library, enumerations, and the JDK classes of values and
+ * collections. The code may still refer to any other class. An entry which
+ * contains other objects is ignored.
+ *
+ * @author Henrik Lauritzen
+ * @see HojoInterpreter#setCodeCache(CodeCache)
+ */
+public class CodeCache {
+
+    // the version of the entry format; change this when the compiled code
+    // changes incompatibly
+    private final static String FORMAT = "2";
+
+    private final static String SUFFIX = ".hjc";
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    // identifies the classes of the compiled code
+    private final static String BUILD = getBuild();
+
+    private final File dir;
+
+    public CodeCache(File dir) {
+        this.dir = dir;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Computes a key from the given parts.
+     *
+     * @param parts
+     *            the parts of the key.
+     * @return a hexadecimal digest of the parts.
+     */
+    public static String digest(String[] parts) {
+        MessageDigest md = newDigest();
+        md.update(BUILD.getBytes(UTF8));
+        for (int i = 0; i < parts.length; i++) {
+            md.update((byte)0);
+            if (parts[i] != null) {
+                md.update(parts[i].getBytes(UTF8));
+            }
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Computes a digest of the contents of the given URL.
+     *
+     * @param url
+     *            the URL.
+     * @return a hexadecimal digest of the contents.
+     * @exception IOException
+     *                if the contents could not be read.
+     */
+    public static String digest(URL url) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buf = new byte[8192];
+        InputStream in = url.openStream();
+        try {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        }
+        finally {
+            in.close();
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Computes a digest of the serialized form of the given object.
+     *
+     * @param obj
+     *            the object.
+     * @param constants
+     *            the objects of the lexer which may be referred to by the
+     *            object, indexed by name.
+     * @return a hexadecimal digest of the object, or <code>null</code> if the
+     *         object cannot be serialized.
+     */
+    public static String digest(Object obj, Map constants) {
+        final MessageDigest md = newDigest();
+        try {
+            CodeOutputStream out = new CodeOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    md.update((byte)b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    md.update(b, off, len);
+                }
+            }, constants);
+            out.writeObject(obj);
+            out.close();
+        }
+        catch (IOException e) {
+            return null;
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Loads an entry.
+     *
+     * @param key
+     *            the key of the entry.
+     * @param constants
+     *            the objects of the lexer which may be referred to by the
+     *            code, indexed by name.
+     * @return the entry, or <code>null</code> if it does not exist, if it
+     *         could not be read, or if any of its dependencies has changed.
+     */
+    public Entry load(String key, Map constants) {
+        File f = new File(dir, key + SUFFIX);
+        if (!f.isFile()) {
+            return null;
+        }
+
+        Entry e;
+        try {
+            CodeInputStream in = new CodeInputStream(
+                    new BufferedInputStream(new InflaterInputStream(
+                            new FileInputStream(f))),
+                    constants);
+            try {
+                e = (Entry)in.readObject();
+            }
+            finally {
+                in.close();
+            }
+
+            for (int i = 0; i < e.dependencies.length; i++) {
+                if (!digest(new URL(e.dependencies[i]))
+                        .equals(e.digests[i])) {
+                    return null;
+                }
+            }
+        }
+        catch (Exception x) {
+            // corrupt, obsolete or invalid
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * Stores an entry, replacing any existing entry having the same key.
+     *
+     * @param key
+     *            the key of the entry.
+     * @param e
+     *            the entry.
+     * @param constants
+     *            the objects of the lexer which may be referred to by the
+     *            code, indexed by name.
+     * @return <code>false</code> if the entry could not be stored, e.g.
+     *         because the code refers to objects which are not serializable.
+     */
+    public boolean store(String key, Entry e, Map constants) {
+        File tmp = null;
+        try {
+            dir.mkdirs();
+            tmp = File.createTempFile(key, ".tmp", dir);
+            CodeOutputStream out = new CodeOutputStream(
+                    new BufferedOutputStream(new DeflaterOutputStream(
+                            new FileOutputStream(tmp))),
+                    constants);
+            try {
+                out.writeObject(e);
+            }
+            finally {
+                out.close();
+            }
+
+            // replace the entry atomically, as other VMs may be reading it
+            File f = new File(dir, key + SUFFIX);
+            if (tmp.renameTo(f) || (f.delete() && tmp.renameTo(f))) {
+                return true;
+            }
+        }
+        catch (Exception x) {
+        }
+
+        if (tmp != null) {
+            tmp.delete();
+        }
+        return false;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        File[] fs = dir.listFiles();
+        if (fs == null) {
+            return;
+        }
+        for (int i = 0; i < fs.length; i++) {
+            if (fs[i].getName().endsWith(SUFFIX)) {
+                fs[i].delete();
+            }
+        }
+    }
+
+    private static String getBuild() {
+        String result = FORMAT + ' ' + Version.VERSION + '.' + Version.REVISION;
+        try {
+            // the serialized form of the code may change between builds
+            URL url = CodeCache.class.getProtectionDomain().getCodeSource()
+                    .getLocation();
+            result += ' ' + url.toString() + ' '
+                    + url.openConnection().getLastModified();
+        }
+        catch (Exception e) {
+        }
+        return result;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    private static String toHex(byte[] bs) {
+        StringBuffer buf = new StringBuffer(2 * bs.length);
+        for (int i = 0; i < bs.length; i++) {
+            buf.append(Character.forDigit((bs[i] >> 4) & 0xf, 16));
+            buf.append(Character.forDigit(bs[i] & 0xf, 16));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A cached script.
+     */
+    public final static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // the compiled statements and the recorded directives, in the order
+        // of their interpretation
+        private final Object[] items;
+
+        // the URLs of the included scripts, and the digests of their contents
+        private final String[] dependencies;
+        private final String[] digests;
+
+        public Entry(Object[] items, String[] dependencies, String[] digests) {
+            this.items = items;
+            this.dependencies = dependencies;
+            this.digests = digests;
+        }
+
+        public Object[] getItems() {
+            return items;
+        }
+
+        public String[] getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * @param key
+         *            the key of the entry.
+         * @return the key, followed by the digests of the dependencies.
+         */
+        public String[] getDigests(String key) {
+            String[] result = new String[digests.length + 1];
+            result[0] = key;
+            System.arraycopy(digests, 0, result, 1, digests.length);
+            return result;
+        }
+    }
+
+    // a reference to a constant of the lexer, or to a reflected member
+    private final static class Ref implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final Class cls;
+        private final Class[] params;
+
+        Ref(String name, Class cls, Class[] params) {
+            this.name = name;
+            this.cls = cls;
+            this.params = params;
+        }
+
+        Object resolve(Map constants) throws ObjectStreamException {
+            try {
+                if (cls == null) {
+                    if (shared.containsKey(name)) {
+                        return shared.get(name);
+                    }
+                    else if (!constants.containsKey(name)) {
+                        throw new java.io.InvalidObjectException(name);
+                    }
+                    return constants.get(name);
+                }
+                else if (params == null) {
+                    return cls.getDeclaredField(name);
+                }
+                else if (name == null) {
+                    return cls.getDeclaredConstructor(params);
+                }
+                else {
+                    return cls.getDeclaredMethod(name, params);
+                }
+            }
+            catch (NoSuchFieldException e) {
+                throw new java.io.InvalidObjectException(e.toString());
+            }
+            catch (NoSuchMethodException e) {
+                throw new java.io.InvalidObjectException(e.toString());
+            }
+        }
+    }
+
+    // the shared objects of the compiled code which are compared by
+    // identity, indexed by names which are not those of lexer constants
+    private final static Map shared = new HashMap();
+
+    static {
+        shared.put("Function.NO_ARG", Function.NO_ARG);
+        shared.put("FunctionType.VARIABLE_ARGS", FunctionType.VARIABLE_ARGS);
+        Field[] fs = Const.class.getFields();
+        for (int i = 0; i < fs.length; i++) {
+            if (Modifier.isStatic(fs[i].getModifiers())
+                    && fs[i].getType() == Const.class) {
+                try {
+                    shared.put("Const." + fs[i].getName(), fs[i].get(null));
+                }
+                catch (IllegalAccessException e) {
+                }
+            }
+        }
+    }
+
+    private final static class CodeOutputStream extends ObjectOutputStream {
+        // maps the constants to their names
+        private final IdentityHashMap names = new IdentityHashMap();
+
+        CodeOutputStream(OutputStream out, Map constants) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+            for (Iterator i = constants.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry)i.next();
+                names.put(e.getValue(), e.getKey());
+            }
+            for (Iterator i = shared.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry)i.next();
+                names.put(e.getValue(), e.getKey());
+            }
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+                throws IOException {
+            // the code may refer to any class, while the instances of some
+            // classes are not allowed to be read
+            Class c = desc.forClass();
+            if (c != null && !isAllowed(c)) {
+                writeBoolean(true);
+                writeUTF(desc.getName());
+            }
+            else {
+                writeBoolean(false);
+                super.writeClassDescriptor(desc);
+            }
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            String name = (String)names.get(obj);
+            if (name != null) {
+                return new Ref(name, null, null);
+            }
+            else if (!(obj instanceof Member)) {
+                return obj;
+            }
+
+            Member m = (Member)obj;
+            if (m instanceof Method) {
+                return new Ref(m.getName(), m.getDeclaringClass(),
+                        ((Method)m).getParameterTypes());
+            }
+            else if (m instanceof Constructor) {
+                return new Ref(null, m.getDeclaringClass(),
+                        ((Constructor)m).getParameterTypes());
+            }
+            else {
+                return new Ref(m.getName(), m.getDeclaringClass(), null);
+            }
+        }
+    }
+
+    // the serializable classes outside of this library whose instances may
+    // be read from the cache: values and collections, which do nothing but
+    // store their contents when they are read
+    private final static Set allowed = new HashSet();
+
+    static {
+        Class[] cs = {
+                Class.class, Enum.class, String.class, Boolean.class,
+                Character.class, Number.class, Byte.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class,
+                StringBuffer.class, StringBuilder.class,
+                java.math.BigInteger.class, java.math.BigDecimal.class,
+                java.util.ArrayList.class, java.util.LinkedList.class,
+                java.util.Vector.class, java.util.Stack.class,
+                java.util.HashMap.class, java.util.LinkedHashMap.class,
+                java.util.TreeMap.class, java.util.Hashtable.class,
+                java.util.HashSet.class, java.util.LinkedHashSet.class,
+                java.util.TreeSet.class, java.util.IdentityHashMap.class };
+        for (int i = 0; i < cs.length; i++) {
+            allowed.add(cs[i].getName());
+        }
+    }
+
+    // true if the instances of the given class may be read from the cache:
+    // they are either harmless when they are read, or they cannot be read
+    private static boolean isAllowed(Class c) {
+        while (c.isArray()) {
+            c = c.getComponentType();
+        }
+        return c.isPrimitive() || c.isEnum()
+                || c.getName().startsWith("org.xodonex.")
+                || allowed.contains(c.getName())
+                || !Serializable.class.isAssignableFrom(c);
+    }
+
+    // reads the code, while it rejects the instances of the classes which
+    // are not allowed, such that a manipulated cache cannot execute code as
+    // it is read
+    private final static class CodeInputStream extends ObjectInputStream
+            implements ObjectInputFilter {
+        private final Map constants;
+
+        // whether the class descriptor which was read last only refers to
+        // the class
+        private boolean classOnly = false;
+
+        CodeInputStream(InputStream in, Map constants) throws IOException {
+            super(in);
+            enableResolveObject(true);
+            setObjectInputFilter(this);
+            this.constants = constants;
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+                throws IOException, ClassNotFoundException {
+            if (!readBoolean()) {
+                return super.readClassDescriptor();
+            }
+            classOnly = true;
+            return classOnly(readUTF());
+        }
+
+        // a descriptor of the named class, which declares the class as not
+        // serializable, such that no instances can be read by it
+        private static ObjectStreamClass classOnly(String name)
+                throws IOException, ClassNotFoundException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeShort(STREAM_MAGIC);
+            out.writeShort(STREAM_VERSION);
+            out.writeByte(TC_CLASSDESC);
+            out.writeUTF(name);
+            out.writeLong(0L);
+            out.writeByte(0);
+            out.writeShort(0);
+            out.writeByte(TC_ENDBLOCKDATA);
+            out.writeByte(TC_NULL);
+            out.close();
+
+            ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(buf.toByteArray()));
+            try {
+                return (ObjectStreamClass)in.readObject();
+            }
+            finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public Status checkInput(FilterInfo info) {
+            // the class of a descriptor is checked as soon as it is read
+            boolean only = classOnly;
+            classOnly = false;
+
+            Class c = info.serialClass();
+            if (c == null) {
+                return Status.UNDECIDED;
+            }
+            return (only && info.arrayLength() < 0) || isAllowed(c)
+                    ? Status.ALLOWED
+                    : Status.REJECTED;
+        }
+
+        @Override
+        protected Object resolveObject(Object obj)
+                throws ObjectStreamException {
+            if (obj instanceof Ref) {
+                return ((Ref)obj).resolve(constants);
+            }
+            else if (obj instanceof Type && !(obj instanceof GenericType
+                    || obj instanceof ContainerType
+                    || obj instanceof GenericFunctionType)) {
+                // the other types are compared by identity
+                Type t = HojoLib.typeOf(((Type)obj).toClass());
+                return t.getClass() == obj.getClass() ? t : obj;
+            }
+            return obj;
+        }
+    }
+
+}
@@ -107,6 +107,7 @@ public class Hojo extends JApplet {
         private boolean sysOut = false;
         private ResourceBundle resource = null;
         private boolean quiet = false;
+        private File cacheDir = null;
 
         // cached input arguments
         private ArrayList input = new ArrayList(4);
@@ -185,6 +186,14 @@ public class Hojo extends JApplet {
                 }
             });
 
+            registerSwitch(new StringSwitch("cache", "dir") {
+                @Override
+                public boolean doConfig(String value) {
+                    cacheDir = value == null ? null : new File(value);
+                    return true;
+                }
+            });
+
             registerSwitch(new SimpleSwitch("minimal") {
                 @Override
                 public boolean doConfig(String value) {
@@ -250,6 +259,9 @@ public class Hojo extends JApplet {
 
                 // Instantiate the interpreter
                 HojoInterpreter ipret = new HojoInterpreter(null, args);
+                if (cacheDir != null) {
+                    ipret.setCodeCache(new CodeCache(cacheDir));
+                }
 
                 // initially set the observer to supress input indications and
                 // result
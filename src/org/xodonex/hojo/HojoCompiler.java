@@ -46,6 +46,7 @@ import org.xodonex.hojo.lang.UnreachableStatementException;
 import org.xodonex.hojo.lang.Variable;
 import org.xodonex.hojo.lang.env.BaseEnv;
 import org.xodonex.hojo.lang.env.CompilerEnv;
+import org.xodonex.hojo.lang.env.FunctionEnv;
 import org.xodonex.hojo.lang.env.NoEnv;
 import org.xodonex.hojo.lang.expr.ApplyExpr;
 import org.xodonex.hojo.lang.expr.ArrayCloneExpr;
@@ -98,6 +99,8 @@ import org.xodonex.hojo.lang.expr.VoidExpr;
 import org.xodonex.hojo.lang.func.AllocatorFunction;
 import org.xodonex.hojo.lang.func.ConstructorFunction;
 import org.xodonex.hojo.lang.func.FieldFunction;
+import org.xodonex.hojo.lang.func.FunctionProfile;
+import org.xodonex.hojo.lang.func.LoopProfile;
 import org.xodonex.hojo.lang.func.IndexFunction;
 import org.xodonex.hojo.lang.func.MethodFunction;
 import org.xodonex.hojo.lang.func.TypeCastFunction;
@@ -135,6 +138,7 @@ import org.xodonex.hojo.lang.type.NumberType;
 import org.xodonex.hojo.lang.type.ObjectType;
 import org.xodonex.hojo.lang.type.VoidType;
 import org.xodonex.hojo.util.ClassLoaderAction;
+import org.xodonex.util.ArrayUtils;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
@@ -255,6 +259,9 @@ public class HojoCompiler implements HojoConst {
                                                  // index expressions
     private boolean optStrictConv = false; // enforce static type match in
                                            // assignments and compound ops
+    private int optCompileThreshold = 1000; // the number of invocations
+                                            // before a function is compiled
+    private int optLevel = 1; // the level passed to Code.optimize()
 
     // observer (for warnings only)
     private HojoObserver obs = null;
@@ -332,6 +339,40 @@ public class HojoCompiler implements HojoConst {
         optStrictConv = level > 1;
     }
 
+    /**
+     * Sets the number of invocations after which the body of a function is
+     * compiled to JVM bytecode. The same number of iterations of a
+     * <code>for</code> loop causes the rest of the loop to be compiled. The
+     * setting applies to the functions and loops which are subsequently
+     * compiled.
+     *
+     * @param threshold
+     *            the number of invocations. If the value is 0 or negative,
+     *            the functions and loops are always interpreted.
+     */
+    public synchronized void setCompileThreshold(int threshold) {
+        optCompileThreshold = threshold;
+    }
+
+    /**
+     * Sets the optimization level which is applied to the compiled code.
+     * Level 0 disables the optimization. Level 1 folds constant expressions
+     * and removes the dead branches of conditionals with a constant condition,
+     * as well as redundant type casts. Level 2 furthermore simplifies
+     * arithmetic identities such as <code>x * 1</code>, and computes
+     * <code>x ** 2</code> as <code>x * x</code> for a double variable
+     * <code>x</code>. It also evaluates the loop-invariant operator
+     * expressions of a <code>for</code> loop, and the common subexpressions
+     * among them, only once per execution of the loop (cf.
+     * {@link org.xodonex.hojo.lang.expr.LoopInvariant}).
+     *
+     * @param level
+     *            the optimization level
+     */
+    public synchronized void setOptimizationLevel(int level) {
+        optLevel = level;
+    }
+
     public synchronized void addMacro(String name, String value) {
         if (macros.contains(name)) {
             throw new HojoException(null,
@@ -640,7 +681,8 @@ public class HojoCompiler implements HojoConst {
         }
 
         try {
-            return getBlock(cBlock(env, HojoLib.VOID_TYPE, CTXT_MAIN, TT_EOF));
+            return optimize(getBlock(
+                    cBlock(env, HojoLib.VOID_TYPE, CTXT_MAIN, TT_EOF)));
         }
         catch (Throwable t) {
             throw HojoException.wrap(t);
@@ -676,7 +718,7 @@ public class HojoCompiler implements HojoConst {
         }
 
         try {
-            return cStm(env, HojoLib.VOID_TYPE, CTXT_MAIN);
+            return optimize(cStm(env, HojoLib.VOID_TYPE, CTXT_MAIN));
         }
         catch (Throwable t) {
             throw HojoException.wrap(t);
@@ -714,13 +756,25 @@ public class HojoCompiler implements HojoConst {
         }
 
         try {
-            return cExpr(env, HojoLib.OBJ_TYPE);
+            Expression e = cExpr(env, HojoLib.OBJ_TYPE);
+            return (optLevel > 0) ? e.optimize(optLevel) : e;
         }
         catch (Throwable t) {
             throw HojoException.wrap(t);
         }
     }
 
+    private Statement optimize(Statement stm) {
+        if (stm == null || optLevel <= 0) {
+            return stm;
+        }
+        Statement result = stm.optimize(optLevel);
+
+        // the optimization must not change whether the value of a top-level
+        // statement is reported
+        return (result.hasValue() == stm.hasValue()) ? result : stm;
+    }
+
     public synchronized void doRecovery() {
         try {
             if (lex.ttype == PCT_BLOCKEND) {
@@ -874,6 +928,10 @@ public class HojoCompiler implements HojoConst {
                             }, lex.currentLocation());
                 }
                 expr = forceType(expr, typ);
+                FunctionEnv fEnv = functionEnv(env);
+                if (fEnv != null) {
+                    fEnv.addReturn(typ, expr);
+                }
             }
             lex.nextToken(PCT_SEPARATOR);
             return new ReturnStm(expr);
@@ -1099,8 +1157,8 @@ public class HojoCompiler implements HojoConst {
 
         // create the declared type
         Class[] types = (Class[])types_.toArray(new Class[types_.size()]);
-        FunctionType funcType = new GenericFunctionType(Function.class,
-                types, retType.toClass());
+        FunctionType funcType = GenericFunctionType.getInstance(
+                Function.class, types, retType.toClass());
 
         // verify that the declaration does not conflict with a previous
         // declaration
@@ -1142,7 +1200,7 @@ public class HojoCompiler implements HojoConst {
             }
             else {
                 // update the environment and create a declaration statement
-                short addr = env.alloc(name, funcType, (short)ctxt);
+                int addr = env.alloc(name, funcType, (short)ctxt);
                 return new FuncDeclStm(name, funcType, (short)ctxt, addr,
                         retType, null);
             }
@@ -1153,7 +1211,9 @@ public class HojoCompiler implements HojoConst {
         Object[] defaults = defaults_.toArray();
         short[] modifiers = (short[])HojoLib.toArray(modifiers_, short[].class,
                 short.class, true);
-        CompilerEnv lEnv = new CompilerEnv(env, names, types, modifiers, true);
+        // the functions declared by a class are its methods
+        FunctionEnv lEnv = new FunctionEnv(env, names, types, modifiers,
+                (ctxt & CTXT_MASK) == CTXT_CLASS);
         if (extraName != null) {
             lEnv.alloc(extraName, HojoLib.TUPLE_TYPE, (short)MOD_FINAL);
         }
@@ -1161,7 +1221,7 @@ public class HojoCompiler implements HojoConst {
         // Allocate a new, empty variable or get the adress assigned by a
         // preceding forward declaration. This allows for recursive function
         // declarations.
-        short addr = env.alloc(name, funcType, (short)ctxt);
+        int addr = env.alloc(name, funcType, (short)ctxt);
         Statement body;
 
         // catch exceptions in order to remove the allocated function on a
@@ -1212,10 +1272,39 @@ public class HojoCompiler implements HojoConst {
                     lex.currentLocation());
         }
 
+        // the result need not be checked if the body ends with a return
+        // statement, and every returned value conforms to the return type
+        Statement[] stms = (body instanceof BlockStatement)
+                ? ((BlockStatement)body).getStatements()
+                : new Statement[] { body };
+        boolean exact = lEnv.hasExactReturns() && stms.length > 0
+                && stms[stms.length - 1] instanceof ReturnStm;
+
         return new FuncCreateStm(name, funcType, (short)ctxt, addr, names,
                 types,
                 defaults, extraName, retType, body, (short)lEnv.size(),
-                env.getLevel());
+                lEnv.getCaptures(), lEnv.getCaptureSlots(), createProfile(),
+                exact, lEnv.isMethod());
+    }
+
+    // the environment of the innermost function body enclosing env, or null
+    private static FunctionEnv functionEnv(CompilerEnvironment env) {
+        while (env != null && !(env instanceof FunctionEnv)) {
+            env = env.getParent((short)1);
+        }
+        return (FunctionEnv)env;
+    }
+
+    // create the profile which determines when a function body is compiled
+    private FunctionProfile createProfile() {
+        return (optCompileThreshold > 0)
+                ? new FunctionProfile(optCompileThreshold) : null;
+    }
+
+    // create the profile which determines when a for loop is compiled
+    private LoopProfile createLoopProfile() {
+        return (optCompileThreshold > 0)
+                ? new LoopProfile(optCompileThreshold) : null;
     }
 
     // assumes that the type has been compiled, and that the first identifier is
@@ -1239,8 +1328,8 @@ public class HojoCompiler implements HojoConst {
                                                                     // the value
         Expression expr;
         String name;
-        short startAddress = -1;
-        short addr;
+        int[] addresses = new int[4];
+        int count = 0;
 
         if (type != null && type.getType().kind() == Type.TYP_VOID) {
             throw new HojoException(null, HojoException.ERR_EXPECTED_TOKEN,
@@ -1297,7 +1386,7 @@ public class HojoCompiler implements HojoConst {
 
             // determine the type of the new variable, and update the
             // environment with
-            // that information. Save the address of the first variable.
+            // that information. Save the address of each variable.
             if (typ == null) {
                 t = expr.getType();
                 int k = t.kind();
@@ -1307,10 +1396,10 @@ public class HojoCompiler implements HojoConst {
                 }
             }
             // else t == typ holds
-            addr = env.alloc(name, t, (short)ctxt);
-            if (startAddress < 0) {
-                startAddress = addr;
+            if (count == addresses.length) {
+                addresses = ArrayUtils.enlarge(addresses, 0);
             }
+            addresses[count++] = env.alloc(name, t, (short)ctxt);
         } // continue as long as a delimiter is next.
         while (lex.ttype == PCT_DELIMITER);
 
@@ -1325,7 +1414,7 @@ public class HojoCompiler implements HojoConst {
         Expression[] initials_ = (Expression[])initials.toArray(
                 new Expression[initials.size()]);
         return new VarDeclStm(names_, initials_, typ, (short)ctxt,
-                startAddress);
+                ArrayUtils.removeRange(addresses, count, addresses.length));
     }
 
     // compile a block of statements in the given context. If end !=
@@ -1534,7 +1623,8 @@ public class HojoCompiler implements HojoConst {
             stms = new Statement[] { cStm(env2, typ, ctxt | CTXT_LOOP) };
         }
 
-        return new ForStm(init, cond, update, stms, (short)env2.size());
+        return new ForStm(init, cond, update, stms, (short)env2.size(),
+                createLoopProfile());
     }
 
     // compile a block in a switch statement.
@@ -2349,7 +2439,7 @@ public class HojoCompiler implements HojoConst {
             }
             // variable - look up the address and create code
             Type[] vType = new Type[1];
-            short[] varAddr = env == null ? null : env.findVar(lex.sval, vType);
+            int[] varAddr = env == null ? null : env.findVar(lex.sval, vType);
             if (varAddr == null) {
                 throw new HojoException(null, HojoException.ERR_UNKNOWN_ID,
                         new String[] { lex.sval }, lex.currentLocation());
@@ -2491,8 +2581,7 @@ public class HojoCompiler implements HojoConst {
             Object[] defaults = defaultL.toArray();
             short[] modifiers = (short[])HojoLib.toArray(modL, short[].class,
                     short.class, true);
-            CompilerEnv lEnv = new CompilerEnv(env, names, types, modifiers,
-                    true);
+            FunctionEnv lEnv = new FunctionEnv(env, names, types, modifiers);
             if (extraName != null) {
                 lEnv.alloc(extraName, HojoLib.TUPLE_TYPE, (short)MOD_FINAL);
             }
@@ -2501,7 +2590,8 @@ public class HojoCompiler implements HojoConst {
             // result
             Expression body = cExpr(lEnv, HojoLib.OBJ_TYPE);
             return new LambdaExpr(names, types, defaults, extraName, body,
-                    (short)lEnv.size(), env == null ? 0 : env.getLevel());
+                    (short)lEnv.size(), lEnv.getCaptures(),
+                    lEnv.getCaptureSlots(), createProfile());
         case PCT_ARRAYSTART:
             t = HojoLib.typeOf(typ.arrayElemClass());
             return new ArrayInitExpr(typ.arrayType(),
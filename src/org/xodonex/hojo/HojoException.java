@@ -18,6 +18,8 @@
 */
 package org.xodonex.hojo;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
@@ -476,11 +478,27 @@ public class HojoException extends RuntimeException {
      */
     protected Throwable error;
 
+    /**
+     * The message arguments, or <code>null</code> if they are derived from the
+     * error and the source code when the message is constructed
+     */
+    private String[] args;
+
+    /**
+     * The code from which the error was thrown, or <code>null</code>
+     */
+    private transient Code source;
+
+    /**
+     * The message, which is constructed when it is first requested
+     */
+    private String message = null;
+
     /**
      * Constructs a new internal <code>HojoException</code>.
      */
     public HojoException() {
-        this(ERR_INTERNAL, null, null, null);
+        this(ERR_INTERNAL, null, NO_ARGS, null, null);
     }
 
     /**
@@ -491,26 +509,21 @@ public class HojoException extends RuntimeException {
      *            the base cause/exception for this exception.
      */
     public HojoException(Throwable t) {
-        this(null, getException(t));
-    }
-
-    private HojoException(Object dummy, Throwable t) {
-        this(ERR_RUNTIME, t,
-                new String[] { (t == null) ? ""
-                        : ((t.getMessage() == null)
-                                ? " : " + t.getClass().getName()
-                                : " : " + t.getMessage()) },
-                null);
+        this(ERR_RUNTIME, getException(t), null, null, null);
     }
 
     public HojoException(Throwable t, int code, String[] args, Location loc) {
-        this(code, getException(t), args, loc);
+        this(code, getException(t), (args == null) ? NO_ARGS : args, null,
+                loc);
     }
 
-    private HojoException(int code, Throwable t, String[] args, Location loc) {
-        super(constructMessage(t, code, args));
+    private HojoException(int code, Throwable t, String[] args, Code source,
+            Location loc) {
+        super(null, null, true, t == null || isStackTraces());
         error = t;
         this.code = code;
+        this.args = args;
+        this.source = source;
         this.loc = loc;
     }
 
@@ -539,17 +552,18 @@ public class HojoException extends RuntimeException {
             return (HojoException)t_;
         }
         else {
-            String message = t_.getMessage();
-            if (message == null) {
-                message = t_.getClass().getName();
-            }
-            return new HojoException(t_, ERR_RUNTIME_HOJO,
-                    new String[] { message, c.toString(HojoSyntax.DEFAULT,
-                            StringUtils.defaultFormat, "") },
-                    null);
+            // the code is rendered only if the message is requested
+            return new HojoException(ERR_RUNTIME_HOJO, t_, null, c, null);
         }
     }
 
+    // whether the JVM stack should be captured for an exception which wraps
+    // an error, as determined by the current session
+    private static boolean isStackTraces() {
+        HojoSession ses = HojoSession.current();
+        return ses == null || ses.isStackTraces();
+    }
+
     private static int getType(int code) {
         return (code < 0) ? -1 : ((code & ECODE_CODEMASK) / ECODE_TYPEFCT);
     }
@@ -663,6 +677,42 @@ public class HojoException extends RuntimeException {
         return error;
     }
 
+    @Override
+    public String getMessage() {
+        String m = message;
+        if (m == null) {
+            message = m = constructMessage(error, code, getArgs());
+        }
+        return m;
+    }
+
+    // the arguments of the message
+    private String[] getArgs() {
+        if (args != null) {
+            return args;
+        }
+
+        Throwable t = error;
+        String msg = (t == null) ? null : t.getMessage();
+        if (source == null) {
+            return new String[] { (t == null) ? ""
+                    : ((msg == null) ? " : " + t.getClass().getName()
+                            : " : " + msg) };
+        }
+        else {
+            return new String[] {
+                    (msg == null) ? t.getClass().getName() : msg,
+                    source.toString(HojoSyntax.DEFAULT,
+                            StringUtils.defaultFormat, "") };
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // the source code is not serialized, so the message is constructed
+        getMessage();
+        out.defaultWriteObject();
+    }
+
     @Override
     public String toString() {
         if (loc != null) {
@@ -31,11 +31,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 
 import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Statement;
@@ -46,7 +48,8 @@ import org.xodonex.hojo.lang.stm.BlockStatement;
 import org.xodonex.hojo.lang.stm.NOP;
 import org.xodonex.hojo.lib.StdLib;
 import org.xodonex.hojo.util.ClassLoaderAction;
-import org.xodonex.hojo.util.ReturnException;
+import org.xodonex.hojo.util.Completion;
+import org.xodonex.util.ArrayUtils;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
@@ -65,21 +68,34 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
 
     public final static String PRAGMA_S_STRICT_TYPES = "strictTypes",
             PRAGMA_S_KILL_DELAY = "killDelay",
-            PRAGMA_S_TERM_MSG = "termMsg";
+            PRAGMA_S_TERM_MSG = "termMsg",
+            PRAGMA_S_COMPILE_THRESHOLD = "compileThreshold",
+            PRAGMA_S_OPTIMIZE = "optimize",
+            PRAGMA_S_STACK_TRACES = "stackTraces",
+            PRAGMA_S_ASYNC_POOL = "asyncPool";
 
     // Pragma directive lookup
     private final static int PRAGMA_STRICT_TYPES = 0,
             PRAGMA_KILL_DELAY = 1,
             PRAGMA_TERM_MSG = 2,
-            PRAGMA_DEBUG = 3;
+            PRAGMA_DEBUG = 3,
+            PRAGMA_COMPILE_THRESHOLD = 4,
+            PRAGMA_OPTIMIZE = 5,
+            PRAGMA_STACK_TRACES = 6,
+            PRAGMA_ASYNC_POOL = 7;
     private final static String PRAGMA_S_DEBUG = "debug";
 
     private final static HashMap pragma = new HashMap(11);
     static {
-        pragma.put(PRAGMA_S_STRICT_TYPES, new Integer(PRAGMA_STRICT_TYPES));
-        pragma.put(PRAGMA_S_KILL_DELAY, new Integer(PRAGMA_KILL_DELAY));
-        pragma.put(PRAGMA_S_TERM_MSG, new Integer(PRAGMA_TERM_MSG));
-        pragma.put(PRAGMA_S_DEBUG, new Integer(PRAGMA_DEBUG));
+        pragma.put(PRAGMA_S_STRICT_TYPES, Integer.valueOf(PRAGMA_STRICT_TYPES));
+        pragma.put(PRAGMA_S_KILL_DELAY, Integer.valueOf(PRAGMA_KILL_DELAY));
+        pragma.put(PRAGMA_S_TERM_MSG, Integer.valueOf(PRAGMA_TERM_MSG));
+        pragma.put(PRAGMA_S_DEBUG, Integer.valueOf(PRAGMA_DEBUG));
+        pragma.put(PRAGMA_S_COMPILE_THRESHOLD,
+                Integer.valueOf(PRAGMA_COMPILE_THRESHOLD));
+        pragma.put(PRAGMA_S_OPTIMIZE, Integer.valueOf(PRAGMA_OPTIMIZE));
+        pragma.put(PRAGMA_S_STACK_TRACES, Integer.valueOf(PRAGMA_STACK_TRACES));
+        pragma.put(PRAGMA_S_ASYNC_POOL, Integer.valueOf(PRAGMA_ASYNC_POOL));
     }
 
     private final HojoSyntax stx;
@@ -91,6 +107,9 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
     // the runtime environment in which the interpretation is run
     private HojoRuntime runtime;
 
+    // the session which executes the interpreted statements
+    private final HojoSession session = new HojoSession(null, null);
+
     // a compiler environment for the runtime
     private BaseEnv baseEnv;
 
@@ -103,6 +122,28 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
     // the last command result
     private Object lastResult = null;
 
+    // the executed top-level statements, while compiling a source
+    private ArrayList recording = null;
+
+    // whether the recorded statements are compiled without being executed
+    private boolean preparing = false;
+
+    // the number of errors from which the interpreter has recovered
+    private int errorCount = 0;
+
+    // the cache of compiled scripts, or null
+    private CodeCache cache = null;
+
+    // a digest of the arguments, the syntax and everything which has been
+    // interpreted, which determines the state of the compiler (or null, if
+    // the state is unknown)
+    private String state;
+
+    // while a script is recorded for the cache: the URLs of the included
+    // scripts, and whether the script may be cached
+    private ArrayList includes = null;
+    private boolean cacheable;
+
     // state variables configurable by pragma directives
     private long killDelay = 1000;
     private String termMsg = "Process terminated. Exit code: {0}";
@@ -124,6 +165,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
 
         // Set the args literal
         this.stx.setArgs(lex, args == null ? new String[0] : args);
+        state = CodeCache.digest(args == null ? new String[0] : args);
 
         // Get the OsInterface, or create a new one if
         // no interface has been configured in the syntax.
@@ -177,6 +219,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         if (obs != this.obs) {
             HojoObserver result = this.obs;
             lex.setObserver(obs);
+            session.setObserver(obs);
             this.obs = obs;
             return result;
         }
@@ -189,6 +232,8 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         comp.reset();
         runtime = null;
         obs = null;
+        session.setRuntime(null);
+        session.setObserver(null);
         baseEnv.clear();
         baseEnv = null;
         baseURL = null;
@@ -208,10 +253,18 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                 new String[] {
                         PRAGMA_S_STRICT_TYPES,
                         PRAGMA_S_KILL_DELAY,
-                        PRAGMA_S_TERM_MSG },
+                        PRAGMA_S_TERM_MSG,
+                        PRAGMA_S_COMPILE_THRESHOLD,
+                        PRAGMA_S_OPTIMIZE,
+                        PRAGMA_S_STACK_TRACES,
+                        PRAGMA_S_ASYNC_POOL },
                 new Class[] {
                         Integer.class,
                         Long.class,
+                        String.class,
+                        Integer.class,
+                        Integer.class,
+                        Boolean.class,
                         String.class
                 });
     }
@@ -245,6 +298,11 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
     // execute a pragma directive
     public synchronized boolean setPragma(boolean internal, String name,
             Object value) {
+        if (state != null) {
+            state = CodeCache.digest(new String[] { state, "" + internal,
+                    name, "" + value });
+        }
+
         if (internal) {
             Integer code = (Integer)pragma.get(name);
             if (code == null) {
@@ -273,6 +331,22 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                     termMsg = ConvertUtils.toString(value);
                     obs.commandResult();
                     return true;
+                case PRAGMA_COMPILE_THRESHOLD:
+                    comp.setCompileThreshold(ConvertUtils.toInt(value));
+                    obs.commandResult();
+                    return true;
+                case PRAGMA_OPTIMIZE:
+                    comp.setOptimizationLevel(ConvertUtils.toInt(value));
+                    obs.commandResult();
+                    return true;
+                case PRAGMA_STACK_TRACES:
+                    session.setStackTraces(ConvertUtils.toBool(value));
+                    obs.commandResult();
+                    return true;
+                case PRAGMA_ASYNC_POOL:
+                    session.setAsyncPool(ConvertUtils.toString(value));
+                    obs.commandResult();
+                    return true;
                 case PRAGMA_DEBUG:
                     Writer w = (Writer)value;
                     w = lex.setDebugWriter(w);
@@ -320,6 +394,364 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
      *         error or because the observer rejects the source.
      */
     public synchronized boolean run(Object source) throws HojoException {
+        if (cache != null) {
+            try {
+                if (source instanceof File) {
+                    return runCached(((File)source).toURI().toURL());
+                }
+                else if (source instanceof URL) {
+                    return runCached((URL)source);
+                }
+            }
+            catch (IOException e) {
+                throw HojoException.wrap(e);
+            }
+        }
+
+        interpreting(source);
+        return run(source, null, null);
+    }
+
+    /**
+     * Sets the cache of compiled scripts. If a cache is used, the scripts
+     * which are run from a file or an URL will be loaded from the cache, if
+     * they have already been compiled in the same state of the interpreter.
+     * Otherwise they will be interpreted as usual and stored in the cache.
+     * <p>
+     * The state of the interpreter is determined by the arguments, the
+     * syntax, the global variables and the sources and pragma directives
+     * which have been interpreted. The cache should be set before any source
+     * is interpreted, and it will not be used after the interpretation of a
+     * reader or an input stream, as their contents are unknown.
+     * <p>
+     * Directives are evaluated when a script is stored in the cache, and the
+     * evaluated directives are repeated when it is loaded. A script is not
+     * stored if it includes a reader or an input stream, if it executes an
+     * operating system command, if it contains errors, or if its compiled code
+     * cannot be serialized.
+     *
+     * @param cache
+     *            the cache, or <code>null</code>.
+     */
+    public synchronized void setCodeCache(CodeCache cache) {
+        this.cache = cache;
+    }
+
+    public synchronized CodeCache getCodeCache() {
+        return cache;
+    }
+
+    // update the state with a source which is about to be interpreted
+    private void interpreting(Object source) {
+        if (state == null) {
+            return;
+        }
+        else if (source instanceof String) {
+            state = CodeCache.digest(new String[] { state, (String)source });
+            return;
+        }
+        else if (cache != null) {
+            try {
+                if (source instanceof File) {
+                    source = ((File)source).toURI().toURL();
+                }
+                if (source instanceof URL) {
+                    state = CodeCache.digest(new String[] { state,
+                            source.toString(),
+                            CodeCache.digest((URL)source) });
+                    return;
+                }
+            }
+            catch (IOException e) {
+            }
+        }
+        state = null;
+    }
+
+    // run the given script from the cache, or run and store it
+    private boolean runCached(URL url) throws IOException {
+        String key = null;
+        if (state != null) {
+            String[] parts = {
+                    state,
+                    CodeCache.digest(stx, lex.getConstants()),
+                    runtime.getLayout(stx),
+                    url.toString(),
+                    CodeCache.digest(url) };
+            if (parts[1] != null) {
+                key = CodeCache.digest(parts);
+            }
+        }
+
+        CodeCache.Entry e = (key == null) ? null
+                : cache.load(key, lex.getConstants());
+        if (e != null) {
+            boolean result = replay(url, e);
+            // the included scripts are part of the state, too, while the
+            // replayed pragmas are not
+            state = CodeCache.digest(e.getDigests(key));
+            return result;
+        }
+
+        ArrayList items = new ArrayList();
+        ArrayList urls = new ArrayList();
+        int errors = errorCount;
+        // the effects of this script would not be recorded by an enclosing
+        // script
+        boolean outer = cacheable && includes == null;
+        cacheable = key != null;
+        try {
+            boolean result = run(url, items, urls);
+            if (cacheable) {
+                String[] deps = (String[])urls.toArray(new String[urls.size()]);
+                String[] digests = new String[deps.length];
+                for (int i = 0; i < deps.length; i++) {
+                    digests[i] = CodeCache.digest(new URL(deps[i]));
+                }
+                e = new CodeCache.Entry(items.toArray(), deps, digests);
+                state = CodeCache.digest(e.getDigests(key));
+                if (result && errorCount == errors) {
+                    cache.store(key, e, lex.getConstants());
+                }
+            }
+            else {
+                state = null;
+            }
+            return result;
+        }
+        finally {
+            cacheable = outer;
+        }
+    }
+
+    // repeat the interpretation of a cached script
+    private boolean replay(URL url, CodeCache.Entry e) {
+        if (!obs.includeStart(url)) {
+            return false;
+        }
+        try {
+            if (!obs.started(new StringReader(""))) {
+                return false;
+            }
+
+            Object[] items = e.getItems();
+            boolean result = true;
+            try {
+                for (int i = 0; i < items.length; i++) {
+                    if (items[i] instanceof Statement) {
+                        execute0((Statement)items[i]);
+                    }
+                    else {
+                        replay((Directive)items[i]);
+                    }
+                }
+            }
+            catch (HojoException x) {
+                // terminated by a fatal error
+                result = false;
+            }
+            baseEnv.clear();
+            obs.finished();
+            return result;
+        }
+        finally {
+            obs.includeEnd(url);
+        }
+    }
+
+    // repeat a directive
+    private void replay(Directive d) {
+        Object[] args = d.args;
+        try {
+            switch (d.id) {
+            case META_DEFINE:
+                comp.addMacro((String)args[0], (String)args[1]);
+                break;
+            case META_UNDEF:
+                comp.removeMacro((String)args[0]);
+                break;
+            case META_IMPORT:
+                if (args[1] instanceof Class) {
+                    comp.doImport((String)args[0], (Class)args[1]);
+                }
+                else {
+                    comp.doImport((String)args[0], (String[])args[1]);
+                }
+                break;
+            case META_EXPORT:
+                if (args[0] instanceof String) {
+                    comp.doExport((String)args[0]);
+                }
+                else {
+                    comp.doExport((String[])args[0]);
+                }
+                break;
+            case META_PACKAGE:
+                comp.addPrefix((String)args[0]);
+                break;
+            case META_NOPACKAGE:
+                comp.removePrefix((String)args[0]);
+                break;
+            case META_DECLARE:
+                comp.addLiteral((String)args[0], args[1]);
+                break;
+            case META_UNDECLARE:
+                comp.removeLiteral((String)args[0]);
+                break;
+            case META_LOAD:
+                comp.doLoad(args[0]);
+                break;
+            case META_UNLOAD:
+                comp.doUnload(args[0]);
+                break;
+            case META_OP:
+                comp.addOperator((String)args[0],
+                        ((Integer)args[1]).intValue(),
+                        ((Boolean)args[2]).booleanValue(),
+                        ((Boolean)args[3]).booleanValue(), (Function)args[4]);
+                break;
+            case META_NOP:
+                comp.removeOperator((String)args[0]);
+                break;
+            case META_PRAGMA:
+                setPragma(((Boolean)args[0]).booleanValue(), (String)args[1],
+                        args[2]);
+                break;
+            default:
+                // won't happen
+                throw new HojoException();
+            }
+        }
+        catch (Throwable t) {
+            HojoException x = HojoException.wrap(t);
+            if (!obs.handleError(x)) {
+                throw x;
+            }
+            obs.recovered();
+        }
+    }
+
+    // record a directive for the cache
+    private void journal(int id, Object[] args) {
+        if (includes != null) {
+            recording.add(new Directive(id, args));
+        }
+    }
+
+    // a directive which has modified the state of the compiler, and which is
+    // repeated when a script is loaded from the cache
+    private final static class Directive implements java.io.Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final Object[] args;
+
+        Directive(int id, Object[] args) {
+            this.id = id;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Interpret the given source, and return the top-level statements which
+     * were executed, in the order of their execution. The statements may
+     * subsequently be executed by any number of {@link HojoSession}s, also
+     * concurrently, without compiling the source again.
+     * <p>
+     * Since the compilation of a statement may depend on the effects of the
+     * statements preceding it, the source is interpreted by this interpreter
+     * as by {@link #run(Object)}, and the effects of the source remain in its
+     * runtime environment.
+     * <p>
+     * The source may refer to the global variables which were declared before
+     * the compilation. The first statement then declares these variables in
+     * the session, at the same addresses and with the values they had when
+     * the compilation started. The values are not copied, so they are shared
+     * by the sessions and the interpreter.
+     *
+     * @param source
+     *            the source to be interpreted (may be a file, an URL, reader,
+     *            input stream or string).
+     * @return the executed statements, or <code>null</code> if the
+     *         interpreter terminates prematurely.
+     * @see HojoSession#execute(Statement[])
+     */
+    public synchronized Statement[] compile(Object source)
+            throws HojoException {
+        interpreting(source);
+        ArrayList stms = new ArrayList();
+        if (runtime.size() > 0) {
+            stms.add(new GlobalsStm(runtime));
+        }
+        if (!run(source, stms, null)) {
+            return null;
+        }
+        return (Statement[])stms.toArray(new Statement[stms.size()]);
+    }
+
+    /**
+     * Compiles the given source for repeated execution, without executing it.
+     * The source is compiled in a new runtime environment, in which only the
+     * given input variables are declared, such that it does not depend on the
+     * variables of this interpreter. Directives are interpreted at
+     * preparation time, and they are not repeated when the script is
+     * executed; this implies that they cannot depend on variables declared by
+     * the source itself.
+     *
+     * @param source
+     *            the source to be compiled (may be a file, an URL, reader,
+     *            input stream or string).
+     * @param inputs
+     *            the names of the input variables of the script.
+     * @param types
+     *            the types of the input variables, or <code>null</code> if
+     *            they are untyped.
+     * @return the prepared script, or <code>null</code> if the source could
+     *         not be compiled.
+     */
+    public synchronized PreparedScript prepare(Object source, String[] inputs,
+            Type[] types) throws HojoException {
+        if (types == null) {
+            types = new Type[inputs.length];
+            ArrayUtils.fill(types, 0, -1, HojoLib.OBJ_TYPE);
+        }
+
+        HojoRuntime rt = runtime;
+        BaseEnv env = baseEnv;
+        int errors = errorCount;
+        ArrayList stms = new ArrayList();
+        boolean result;
+
+        interpreting(source);
+        runtime = new HojoRuntime();
+        baseEnv = new BaseEnv(runtime);
+        preparing = true;
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                runtime.alloc(i, false, inputs[i], types[i], null);
+            }
+            result = run(source, stms, null);
+        }
+        finally {
+            preparing = false;
+            runtime = rt;
+            baseEnv = env;
+        }
+
+        if (!result || errorCount != errors) {
+            return null;
+        }
+        return new PreparedScript(inputs, types,
+                (Statement[])stms.toArray(new Statement[stms.size()]));
+    }
+
+    public PreparedScript prepare(Object source, String[] inputs)
+            throws HojoException {
+        return prepare(source, inputs, null);
+    }
+
+    private boolean run(Object source, ArrayList stms, ArrayList urls)
+            throws HojoException {
         synchronized (comp) {
             // Create an appropriate input stream
             Reader sourceReader;
@@ -380,6 +812,14 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
             // interpret!
             Statement stm;
             boolean result = true;
+            ArrayList outer = recording;
+            ArrayList outerUrls = includes;
+            if (outerUrls != null && urls == null) {
+                // the effects of this source are not recorded
+                cacheable = false;
+            }
+            recording = stms;
+            includes = urls;
             try {
                 while (lex.ttype != TT_EOF) {
                     if ((stm = interpret()) != null) {
@@ -391,6 +831,10 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                 // terminated by a fatal error
                 result = false;
             }
+            finally {
+                recording = outer;
+                includes = outerUrls;
+            }
 
             baseEnv.clear();
             stm = null;
@@ -418,6 +862,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         }
 
         this.runtime = runtime;
+        session.setRuntime(runtime);
         baseEnv = new BaseEnv(runtime);
     }
 
@@ -428,6 +873,15 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         return runtime;
     }
 
+    /**
+     * @return the session in which this interpreter executes the statements
+     *         it interprets. The session holds the settings of the
+     *         statements, such as the executor of their async applications.
+     */
+    public HojoSession getSession() {
+        return session;
+    }
+
     /**
      * @return whether more input is available to the interpreter.
      */
@@ -483,8 +937,11 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         Object obj = null;
 
         // Resynchronize baseEnv with runtime,
-        // ie. remove any compiler-created variables in env.
-        baseEnv.clear();
+        // ie. remove any compiler-created variables in env. When preparing,
+        // the runtime is not updated, so the declarations must be kept.
+        if (!preparing) {
+            baseEnv.clear();
+        }
         ArrayList stms = new ArrayList();
 
         while (true) {
@@ -543,6 +1000,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         // caught when the
                         // macro is substituted
                         comp.addMacro(s, contents);
+                        journal(META_DEFINE, new Object[] { s, contents });
                         lex.nextToken(PCT_SEPARATOR);
                         obs.commandResult(lastResult = contents);
                         break;
@@ -553,6 +1011,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         if (!comp.removeMacro(s)) {
                             warnRemove(s);
                         }
+                        journal(META_UNDEF, new Object[] { s });
                         obs.commandResult();
                         break;
                     case META_IMPORT:
@@ -566,6 +1025,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         s = lex.sval;
                         lex.nextToken(PCT_SEPARATOR);
                         comp.addPrefix(s);
+                        journal(META_PACKAGE, new Object[] { s });
                         obs.commandResult();
                         break;
                     case META_NOPACKAGE:
@@ -578,6 +1038,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         lex.nextToken(PCT_SEPARATOR);
                         obj = expr.xeq(baseEnv.getLink());
                         comp.addLiteral(s, obj);
+                        journal(META_DECLARE, new Object[] { s, obj });
                         obs.commandResult(lastResult = obj);
                         break;
                     case META_UNDECLARE:
@@ -589,12 +1050,14 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         lex.nextToken(PCT_SEPARATOR);
                         obj = expr.xeq(baseEnv.getLink());
                         obs.commandResult(lastResult = comp.doLoad(obj));
+                        journal(META_LOAD, new Object[] { obj });
                         break;
                     case META_UNLOAD:
                         expr = comp.compileExpr(baseEnv, obs);
                         lex.nextToken(PCT_SEPARATOR);
                         obj = expr.xeq(baseEnv.getLink());
                         obs.commandResult(lastResult = comp.doUnload(obj));
+                        journal(META_UNLOAD, new Object[] { obj });
                         break;
                     case META_LEFT:
                     case META_RIGHT:
@@ -634,7 +1097,10 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         }
                         expr = comp.compileExpr(baseEnv, obs);
                         lex.nextToken(PCT_SEPARATOR);
-                        setPragma(internal, s, expr.xeq(baseEnv.getLink()));
+                        obj = expr.xeq(baseEnv.getLink());
+                        setPragma(internal, s, obj);
+                        journal(META_PRAGMA, new Object[] {
+                                Boolean.valueOf(internal), s, obj });
                         // setPragma already calls commandResult()
                         break;
                     case META_INCLUDE:
@@ -650,9 +1116,14 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                         }
 
                         if (obj instanceof URL) {
+                            if (includes != null) {
+                                includes.add(obj.toString());
+                            }
                             lex.include((URL)obj);
                         }
                         else if (obj instanceof Reader) {
+                            // the contents cannot be verified by the cache
+                            cacheable = false;
                             lex.include((Reader)obj);
                         }
                         else {
@@ -669,6 +1140,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                     }
                 } // TT_META
                 else if (lex.ttype == stx.META) {
+                    cacheable = false;
                     if (lex.peek() == '?') {
                         // help command
                         lex.resync();
@@ -799,6 +1271,7 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                 }
 
                 // try to recover from the syntax error
+                errorCount++;
                 if (!obs.doRecovery(lex.asRecovery())) {
                     comp.doRecovery();
                 }
@@ -823,24 +1296,38 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
     }
 
     public synchronized void execute(Statement stm) {
-        // execute the compiled statement. Update the last result, if the
-        // statement has a value
+        if (recording != null) {
+            recording.add(stm);
+            if (preparing) {
+                return;
+            }
+        }
+
+        if (execute0(stm)) {
+            // return statement - close the current input
+            lex.exit();
+            lex.resync();
+        }
+    }
+
+    // execute the compiled statement, and return true if it is a return
+    // statement. Update the last result, if the statement has a value
+    private boolean execute0(Statement stm) {
+        HojoSession outer = HojoSession.setCurrent(session);
         try {
             if (obs.commandExecute(stm)) {
-                if (stm.hasValue()) {
-                    obs.commandResult(lastResult = stm.xeq(runtime));
+                Object result = stm.xeq(runtime);
+                if (result instanceof Completion) {
+                    return ((Completion)result).isReturn();
+                }
+                else if (stm.hasValue()) {
+                    obs.commandResult(lastResult = Completion.unwrap(result));
                 }
                 else {
-                    stm.xeq(runtime);
                     obs.commandResult();
                 }
             }
         }
-        catch (ReturnException e) {
-            // return statement - close the current input
-            lex.exit();
-            lex.resync();
-        }
         catch (Throwable t) {
             // runtime error - handle it but do not use error recovery
             if (!obs.handleError(HojoException.wrap(t))) {
@@ -849,10 +1336,26 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
             }
             obs.recovered();
         }
+        finally {
+            HojoSession.setCurrent(outer);
+        }
+        return false;
     }
 
     public synchronized Object removeVar(String name) {
-        if (name.equals(stx.reserved[RES_THIS - RES_BASE_ID])) {
+        boolean all = name.equals(stx.reserved[RES_THIS - RES_BASE_ID]);
+        if (recording != null) {
+            recording.add(new RemoveStm(all ? null : name));
+            if (preparing && !all) {
+                // the declarations are not executed while preparing, so the
+                // addresses of the runtime must be kept, while the compiler
+                // forgets the variable
+                baseEnv.forget(name);
+                return null;
+            }
+        }
+
+        if (all) {
             Map m = new HashMap(2 * runtime.size());
             m.putAll(runtime.asMap());
             baseEnv.clear();
@@ -865,6 +1368,77 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         }
     }
 
+    // a statement which repeats the removal of global variables in a session
+    private final static class RemoveStm extends Statement {
+        private static final long serialVersionUID = 1L;
+
+        // the variable name, or null for all variables
+        private final String name;
+
+        RemoveStm(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object run(Environment env) {
+            HojoRuntime rt = (HojoRuntime)env;
+            if (name == null) {
+                rt.clear();
+            }
+            else {
+                rt.delete(name);
+            }
+            return null;
+        }
+
+        @Override
+        public String toString(HojoSyntax stx, StringUtils.Format fmt,
+                String indent) {
+            return indent + stx.META
+                    + stx.metaSyntax[META_REMOVE - META_BASE_ID] + ' '
+                    + (name == null ? stx.reserved[RES_THIS - RES_BASE_ID]
+                            : name)
+                    + stx.punctuators[PCT_IDX_SEPARATOR];
+        }
+    }
+
+    // a statement which declares the global variables of the interpreter in a
+    // session
+    private final static class GlobalsStm extends Statement {
+        private static final long serialVersionUID = 1L;
+
+        // the variables, as they were when the statement was created
+        private final HojoRuntime globals = new HojoRuntime();
+
+        GlobalsStm(HojoRuntime rt) {
+            rt.copyTo(globals);
+        }
+
+        @Override
+        public Object run(Environment env) {
+            globals.copyTo((HojoRuntime)env);
+            return null;
+        }
+
+        @Override
+        public String toString(HojoSyntax stx, StringUtils.Format fmt,
+                String indent) {
+            StringBuffer result = new StringBuffer();
+            Iterator i = globals.asMap().keySet().iterator();
+            while (i.hasNext()) {
+                String name = (String)i.next();
+                if (result.length() > 0) {
+                    result.append('\n');
+                }
+                result.append(indent)
+                        .append(globals.getType(name).toString(stx))
+                        .append(' ').append(name)
+                        .append(stx.punctuators[PCT_IDX_SEPARATOR]);
+            }
+            return result.toString();
+        }
+    }
+
     // issue a warning saying that the given symbol was not removed
     private void warnRemove(String symbol) {
         obs.handleWarning(new HojoException(null, HojoException.WARN_NOTREMOVED,
@@ -887,23 +1461,29 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         }
         lex.nextToken(PCT_SEPARATOR);
 
+        int id;
         switch (ttype) {
         case TT_NOTHING:
             // TT_NOTHING is used for package prefixes
             removed = comp.removePrefix(symbol);
+            id = META_NOPACKAGE;
             break;
         case TT_OPERATOR:
             removed = (result = comp.removeOperator(symbol)) != null;
+            id = META_NOP;
             break;
         case TT_TYPE:
             removed = (result = comp.doExport(symbol)) != null;
+            id = META_EXPORT;
             break;
         case TT_LITERAL:
             removed = (result = comp.removeLiteral(symbol)) != null;
+            id = META_UNDECLARE;
             break;
         default:
             throw new HojoException();
         }
+        journal(id, new Object[] { symbol });
 
         if (!removed) {
             warnRemove(symbol);
@@ -919,6 +1499,8 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
         lex.nextToken(PCT_SEPARATOR);
         Function op = HojoLib.toFunction(expr.xeq(env.getLink()));
         comp.addOperator(syntax, priority, left, right, op);
+        journal(META_OP, new Object[] { syntax, Integer.valueOf(priority),
+                Boolean.valueOf(left), Boolean.valueOf(right), op });
         return op;
     }
 
@@ -1009,14 +1591,18 @@ public class HojoInterpreter implements PragmaListener, HojoConst {
                 // class as result
                 Class c = getClass(buf.toString());
                 comp.doImport(alias, c);
+                journal(META_IMPORT, new Object[] { alias, c });
                 return c;
             }
             else {
                 // mulitple import
+                journal(META_IMPORT, new Object[] { _package, names });
                 return comp.doImport(_package, names);
             }
         }
         else {
+            journal(META_EXPORT,
+                    new Object[] { names == null ? (Object)alias : names });
             return (names == null) ? (Object)comp.doExport(alias)
                     : (Object)comp.doExport(names);
         }
@@ -19,6 +19,8 @@
 package org.xodonex.hojo;
 
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.xodonex.util.text.lexer.GenericLexer;
 
@@ -42,6 +44,10 @@ public class HojoLexer extends GenericLexer implements GenericLexer.Handler {
 
     private HojoObserver _obs;
 
+    // the objects which are produced by the symbols of this lexer, and which
+    // are specific to it, indexed by name
+    private final HashMap constants = new HashMap();
+
     public HojoLexer() {
         super();
         setHandler(this);
@@ -51,6 +57,29 @@ public class HojoLexer extends GenericLexer implements GenericLexer.Handler {
         return _obs;
     }
 
+    /**
+     * Registers an object which is produced by a symbol of this lexer, and
+     * which may therefore be embedded in compiled code. Such objects are
+     * stored by name rather than by value when the code is cached.
+     *
+     * @param name
+     *            a name which identifies the object in this lexer.
+     * @param value
+     *            the object.
+     * @see CodeCache
+     */
+    public void addConstant(String name, Object value) {
+        constants.put(name, value);
+    }
+
+    /**
+     * @return the objects registered by {@link #addConstant(String, Object)},
+     *         indexed by name.
+     */
+    public Map getConstants() {
+        return constants;
+    }
+
     public void setObserver(final HojoObserver obs) {
         _obs = obs;
         super.setObserver(obs instanceof GenericLexer.Observer
@@ -231,6 +231,15 @@ public class HojoLib extends ConvertUtils {
         typeTbl.put(Object[].class, TUPLE_TYPE);
     }
 
+    // The canonical type of every class
+    private final static ClassValue classTypes = new ClassValue() {
+        @Override
+        protected Object computeValue(Class type) {
+            Type t = (Type)typeTbl.get(type);
+            return (t != null) ? t : createType(type);
+        }
+    };
+
     // Built-in operators
     final static Operator[] operators = { // new Operator[OP_COUNT];
             null, null,
@@ -285,7 +294,7 @@ public class HojoLib extends ConvertUtils {
         }
         else if (obj instanceof Function) {
             Function f = (Function)obj;
-            return new GenericFunctionType(f.getClass(),
+            return GenericFunctionType.getInstance(f.getClass(),
                     f.getParameterTypes(), f.getReturnType());
         }
         else {
@@ -294,15 +303,12 @@ public class HojoLib extends ConvertUtils {
     }
 
     public static Type typeOf(Class type) {
-        if (type == null) {
-            return OBJ_TYPE;
-        }
+        return (type == null) ? OBJ_TYPE : (Type)classTypes.get(type);
+    }
 
-        Type typ = (Type)typeTbl.get(type);
-        if (typ != null) {
-            return typ;
-        }
-        else if (type.isArray()) {
+    // create the type of a class which is not in the type lookup table
+    private static Type createType(Class type) {
+        if (type.isArray()) {
             return new GenericArrayType(type, type.getComponentType());
         }
         else if (Number.class.isAssignableFrom(type)) {
@@ -1683,7 +1689,7 @@ public class HojoLib extends ConvertUtils {
             else {
                 hasNext = null;
                 lastValue = (Comparable)conv.typeCast(
-                        generator.invoke(new Object[] { lastValue }));
+                        generator.invoke1(lastValue));
             }
             return result;
         }
@@ -1721,7 +1727,7 @@ public class HojoLib extends ConvertUtils {
 
             // generate the next value, if necessary
             if (needGenerate) {
-                value = generator.invoke(new Object[] { value });
+                value = generator.invoke1(value);
             }
             needGenerate = true;
 
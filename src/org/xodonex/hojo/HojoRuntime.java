@@ -34,6 +34,10 @@ import org.xodonex.util.ArrayUtils;
 
 /**
  * The environment of variables used by a Hojo compiler/interpreter instance.
+ * The address of a variable never changes while it is declared: when a
+ * variable is deleted, its slot is left empty and is reused by a subsequent
+ * declaration, such that compiled code referring to other variables remains
+ * valid.
  */
 public class HojoRuntime extends CompilerEnv implements Environment {
 
@@ -42,14 +46,25 @@ public class HojoRuntime extends CompilerEnv implements Environment {
     // protected HojoObserver obs;
     protected Variable[] vars;
 
+    // the stack of empty slots below size, and the position of each empty
+    // slot in the stack (or -1)
+    protected int[] free;
+    protected int[] freePos;
+    protected int freeCount = 0;
+
+    // the number of declared variables
+    protected int count = 0;
+
     public HojoRuntime() {
         super(null);
         vars = new Variable[types.length];
+        free = new int[types.length];
+        freePos = new int[types.length];
         // reset();
     }
 
     public void reset() {
-        super.clear();
+        clear();
     }
 
     @Override
@@ -58,64 +73,208 @@ public class HojoRuntime extends CompilerEnv implements Environment {
     }
 
     @Override
-    public Variable get(short index) {
+    public Variable get(int index) {
         return vars[index];
     }
 
     @Override
-    public Variable alloc(short index, boolean isFinal, String name, Type type,
+    public Object getValue(int index) {
+        return vars[index].getValue();
+    }
+
+    @Override
+    public Object setValue(int index, Object value) {
+        return vars[index].set(null, value);
+    }
+
+    @Override
+    public Object assign(int index, Object value) {
+        return vars[index].assign(value);
+    }
+
+    /**
+     * Returns the address at which a variable will be allocated, if the given
+     * number of other variables are allocated first. Empty slots are reused
+     * before the address space is extended.
+     *
+     * @param skip
+     *            the number of variables allocated before the variable.
+     * @return the address of the variable.
+     */
+    public int nextAddress(int skip) {
+        return (skip < freeCount) ? free[freeCount - 1 - skip]
+                : size + skip - freeCount;
+    }
+
+    /**
+     * Declares a variable at the given address, which should have been
+     * obtained from {@link #nextAddress(int)}. If the variable is already
+     * declared, its existing address is reused; if the address has been taken
+     * by another variable in the meantime, the next free address is used.
+     */
+    @Override
+    public Object alloc(int index, boolean isFinal, String name, Type type,
             Object initialValue) {
         Variable var = isFinal ? new Variable(type.typeCast(initialValue))
                 : new NormalVar(type, initialValue);
 
-        index = alloc(name, type,
-                isFinal ? (short)HojoConst.MOD_FINAL : (short)0);
+        short mods = isFinal ? (short)HojoConst.MOD_FINAL : (short)0;
+        int addr = getAddress(name);
+        if (addr < 0) {
+            addr = allocAt(isFree(index) ? index : nextAddress(0), name, type,
+                    mods);
+        }
+        vars[addr] = var;
+        return var.getValue();
+    }
+
+    @Override
+    public int alloc(String name, Type type, short modifiers) {
+        int addr = getAddress(name);
+        return (addr >= 0) ? addr
+                : allocAt(nextAddress(0), name, type, modifiers);
+    }
+
+    // true if a variable may be allocated at the given address
+    private boolean isFree(int addr) {
+        return addr >= size || (addr >= 0 && freePos[addr] >= 0);
+    }
 
-        if (index >= vars.length - 1) {
-            vars = (Variable[])ArrayUtils.enlarge(vars, 0);
+    private int allocAt(int addr, String name, Type type, short mods) {
+        if (addr >= size) {
+            ensureCapacity(addr + 1);
+            // the skipped slots are empty
+            for (int i = size; i < addr; i++) {
+                push(i);
+            }
+            freePos[addr] = -1;
+            size = addr + 1;
+        }
+        else {
+            // take the slot from the stack of empty slots
+            int pos = freePos[addr];
+            int last = free[--freeCount];
+            free[pos] = last;
+            freePos[last] = pos;
+            freePos[addr] = -1;
         }
-        return vars[index] = var;
+
+        types[addr] = type;
+        modifiers[addr] = mods;
+        locations.put(name, Integer.valueOf(addr));
+        count++;
+        return addr;
+    }
+
+    private void push(int addr) {
+        free[freeCount] = addr;
+        freePos[addr] = freeCount++;
     }
 
+    private void ensureCapacity(int n) {
+        if (n < vars.length - 1) {
+            return;
+        }
+        int len = Math.max(2 * vars.length, n + 1);
+        vars = (Variable[])ArrayUtils.enlarge(vars, len - vars.length);
+        types = (Type[])ArrayUtils.enlarge(types, len - types.length);
+        modifiers = ArrayUtils.enlarge(modifiers, len - modifiers.length);
+        free = ArrayUtils.enlarge(free, len - free.length);
+        freePos = ArrayUtils.enlarge(freePos, len - freePos.length);
+    }
+
+    /**
+     * Deletes a variable. Its slot is left empty, such that the addresses of
+     * the other variables are unaffected.
+     *
+     * @return the deleted variable, or <code>null</code> if it was not
+     *         declared.
+     */
     public Variable delete(String name) {
-        short address = getAddress(name);
-        if (address < 0) {
+        Integer s = (Integer)locations.remove(name);
+        if (s == null) {
             return null;
         }
 
+        int address = s.intValue();
         Variable result = vars[address];
         vars[address] = null;
         types[address] = null;
-        locations.remove(name);
-        size--;
+        modifiers[address] = 0;
+        push(address);
+        count--;
+        return result;
+    }
 
-        if (address == size) {
-            return result;
-        }
-        else {
-            System.arraycopy(vars, address + 1, vars, address, size - address);
-            System.arraycopy(types, address + 1, types, address,
-                    size - address);
-            System.arraycopy(modifiers, address + 1, modifiers, address,
-                    size - address);
-            Iterator it = locations.entrySet().iterator();
-            Map.Entry entry;
-            short s;
-            while (it.hasNext()) {
-                entry = (Map.Entry)it.next();
-                if ((s = ((Short)entry.getValue()).shortValue()) > address) {
-                    entry.setValue(new Short((short)(s - 1)));
-                }
-            }
+    @Override
+    public void remove(String name) {
+        delete(name);
+    }
 
-            return result;
-        }
+    /**
+     * @return the number of declared variables.
+     */
+    @Override
+    public int size() {
+        return count;
     }
 
     @Override
     public void clear() {
         super.clear();
         ArrayUtils.fill(vars, 0, -1, null);
+        freeCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Declares the variables of this runtime in another runtime, at the same
+     * addresses and with their current values, such that code compiled for
+     * this runtime may refer to them in the other runtime. The other runtime
+     * should not declare other variables at these addresses.
+     *
+     * @param rt
+     *            the other runtime.
+     */
+    public void copyTo(HojoRuntime rt) {
+        for (Iterator i = locations.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            int addr = ((Integer)e.getValue()).intValue();
+            rt.alloc(addr, (modifiers[addr] & HojoConst.MOD_FINAL) != 0,
+                    (String)e.getKey(), types[addr], vars[addr].getValue());
+        }
+    }
+
+    /**
+     * Describes the addresses, types and modifiers of the declared variables,
+     * as well as the order in which empty slots will be reused. Code which is
+     * compiled for this runtime is valid for any other runtime having the
+     * same layout.
+     *
+     * @param stx
+     *            the syntax used to describe the types.
+     * @return the description.
+     */
+    public String getLayout(HojoSyntax stx) {
+        String[] names = new String[size];
+        for (Iterator i = locations.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            names[((Integer)e.getValue()).intValue()] = (String)e.getKey();
+        }
+
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null) {
+                buf.append(names[i]).append(' ')
+                        .append(types[i].toString(stx)).append(' ')
+                        .append(modifiers[i]);
+            }
+            buf.append(';');
+        }
+        for (int i = 0; i < freeCount; i++) {
+            buf.append(free[i]).append(',');
+        }
+        return buf.toString();
     }
 
     private final MapView mapView = new MapView();
@@ -138,8 +297,8 @@ public class HojoRuntime extends CompilerEnv implements Environment {
 
         @Override
         public boolean containsValue(Object value) {
-            for (int i = size - 1; size >= 0; size--) {
-                if (vars[i].getValue() == value) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (vars[i] != null && vars[i].getValue() == value) {
                     return true;
                 }
             }
@@ -148,7 +307,7 @@ public class HojoRuntime extends CompilerEnv implements Environment {
 
         @Override
         public Set entrySet() {
-            HashSet result = new HashSet(2 * size);
+            HashSet result = new HashSet(2 * count);
             Iterator it = locations.keySet().iterator();
 
             while (it.hasNext()) {
@@ -164,11 +323,11 @@ public class HojoRuntime extends CompilerEnv implements Environment {
 
         @Override
         public Object get(Object key) {
-            Short s = (Short)locations.get(key);
+            Integer s = (Integer)locations.get(key);
             if (s == null) {
                 return null;
             }
-            return vars[s.shortValue()].getValue();
+            return vars[s.intValue()].getValue();
         }
 
         @Override
@@ -178,7 +337,7 @@ public class HojoRuntime extends CompilerEnv implements Environment {
 
         @Override
         public boolean isEmpty() {
-            return size == 0;
+            return count == 0;
         }
 
         @Override
@@ -205,9 +364,11 @@ public class HojoRuntime extends CompilerEnv implements Environment {
 
         @Override
         public Collection values() {
-            ArrayList l = new ArrayList(size);
+            ArrayList l = new ArrayList(count);
             for (int i = 0; i < size; i++) {
-                l.add(vars[i].getValue());
+                if (vars[i] != null) {
+                    l.add(vars[i].getValue());
+                }
             }
             return l;
         }
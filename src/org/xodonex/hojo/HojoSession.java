@@ -0,0 +1,296 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo;
+
+import java.util.concurrent.ExecutorService;
+
+import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lib.AsyncExecutor;
+import org.xodonex.hojo.util.Completion;
+
+/**
+ * An execution context for statements compiled by a {@link HojoInterpreter}.
+ * A session has its own {@link HojoRuntime} and {@link HojoObserver}, but no
+ * lexer or compiler, such that any number of sessions may execute the same
+ * compiled statements at the same time, each in its own thread.
+ * <p>
+ * The compiled statements refer to global variables by address, so a session
+ * must execute the top-level statements in the order in which they were
+ * compiled, as recorded by {@link HojoInterpreter#compile(Object)}. A session
+ * should only be used by one thread at a time.
+ * <p>
+ * A session also holds the settings of the statements it executes, which
+ * are the executor of their async applications and whether the JVM stack is
+ * captured for their errors. The statements executed by an interpreter use
+ * the settings of its own session, see {@link HojoInterpreter#getSession()}.
+ * <p>
+ * Compiled statements are immutable, except for the caches by which they
+ * adapt to the values they see at run time (type feedback, converters,
+ * argument plans, object shapes, invocation counts and compiled bodies).
+ * These caches are updated without locking: each cache field is
+ * <code>volatile</code>, and an array held by a cache is replaced rather
+ * than modified. A thread executing shared statements therefore sees either
+ * the initial state of a cache or a complete entry written by another
+ * thread; concurrent updates may overwrite each other, which only causes an
+ * entry to be recomputed.
+ * Invocation counts are plain fields, since a lost update merely delays
+ * compilation.
+ *
+ * @author Henrik Lauritzen
+ */
+public class HojoSession {
+
+    // the session executed by the current thread (and the threads it starts)
+    private final static ThreadLocal current = new InheritableThreadLocal();
+
+    // the global variables of the session
+    private HojoRuntime runtime;
+
+    // the observer which receives notifications
+    private HojoObserver obs;
+
+    // the last command result
+    private Object lastResult = null;
+
+    // the pool configuration of the async applications (or null, if they
+    // are executed by the default executor or a given executor), the
+    // executor, and whether it was created by this session
+    private String asyncPool = null;
+    private ExecutorService executor = null;
+    private boolean owned = false;
+
+    // whether the JVM stack is captured for exceptions which wrap an error
+    private volatile boolean stackTraces = true;
+
+    public HojoSession() {
+        this(null);
+    }
+
+    public HojoSession(HojoObserver obs) {
+        this(new HojoRuntime(), obs);
+    }
+
+    public HojoSession(HojoRuntime runtime, HojoObserver obs) {
+        this.runtime = runtime;
+        setObserver(obs);
+    }
+
+    /**
+     * @return the session executed by the current thread, or
+     *         <code>null</code> if the thread is not executing a session.
+     */
+    public static HojoSession current() {
+        return (HojoSession)current.get();
+    }
+
+    /**
+     * Sets the session executed by the current thread. This is used when a
+     * thread executes code on behalf of a session which it was not started
+     * by, such as a pooled thread.
+     *
+     * @param session
+     *            the session, or <code>null</code>.
+     * @return the previous session of the thread.
+     */
+    public static HojoSession setCurrent(HojoSession session) {
+        HojoSession result = (HojoSession)current.get();
+        current.set(session);
+        return result;
+    }
+
+    public HojoRuntime getRuntime() {
+        return runtime;
+    }
+
+    // used by an interpreter when its runtime is replaced
+    void setRuntime(HojoRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    public HojoObserver getObserver() {
+        return obs;
+    }
+
+    public HojoObserver setObserver(HojoObserver obs) {
+        HojoObserver result = this.obs;
+        this.obs = (obs == null) ? new SilentHojoObserver() : obs;
+        return result;
+    }
+
+    /**
+     * Configures the executor of the async applications which are
+     * subsequently created in this session. Applications which were already
+     * started are completed by the previous executor.
+     *
+     * @param value
+     *            a pool configuration (see
+     *            {@link AsyncExecutor#checkPool(String)}), or
+     *            <code>null</code> to use the default executor.
+     * @exception IllegalArgumentException
+     *                if the configuration is invalid.
+     */
+    public void setAsyncPool(String value) throws IllegalArgumentException {
+        String p = (value == null) ? null : AsyncExecutor.checkPool(value);
+        synchronized (this) {
+            replace(null);
+            asyncPool = p;
+        }
+    }
+
+    /**
+     * @return the pool configuration of the async applications, or
+     *         <code>null</code> if the default executor or an executor given
+     *         by {@link #setExecutor(ExecutorService)} is used.
+     */
+    public synchronized String getAsyncPool() {
+        return asyncPool;
+    }
+
+    /**
+     * Sets the executor of the async applications which are subsequently
+     * created in this session. The executor is not shut down by the session.
+     *
+     * @param e
+     *            the executor, or <code>null</code> to use the default
+     *            executor.
+     */
+    public synchronized void setExecutor(ExecutorService e) {
+        replace(e);
+        asyncPool = null;
+    }
+
+    /**
+     * @return the executor of the async applications created in this
+     *         session.
+     * @see AsyncExecutor#getDefaultExecutor()
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            if (asyncPool == null) {
+                return AsyncExecutor.getDefaultExecutor();
+            }
+            executor = AsyncExecutor.newExecutor(asyncPool);
+            owned = true;
+        }
+        return executor;
+    }
+
+    private void replace(ExecutorService e) {
+        if (executor != null && owned) {
+            executor.shutdown();
+        }
+        executor = e;
+        owned = false;
+    }
+
+    /**
+     * Determines whether the JVM stack is captured when an exception which is
+     * thrown from the Hojo code of this session is wrapped in a
+     * {@link HojoException}. The stack of the wrapped exception is always
+     * available, so the capture may be turned off for scripts which throw and
+     * catch many exceptions.
+     *
+     * @param capture
+     *            whether the stack should be captured. The default is
+     *            <code>true</code>.
+     */
+    public void setStackTraces(boolean capture) {
+        stackTraces = capture;
+    }
+
+    /**
+     * @return whether the JVM stack is captured for wrapped exceptions.
+     * @see #setStackTraces(boolean)
+     */
+    public boolean isStackTraces() {
+        return stackTraces;
+    }
+
+    /**
+     * @return the value of the last statement having a value, or the value of
+     *         a top-level return statement.
+     */
+    public Object getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Executes the given top-level statements in order, until a top-level
+     * return statement is executed.
+     *
+     * @param program
+     *            the statements
+     * @return <code>false</code> if a return statement was executed.
+     * @exception HojoException
+     *                if the observer determines that an error is fatal
+     */
+    public boolean execute(Statement[] program) throws HojoException {
+        for (int i = 0; i < program.length; i++) {
+            if (!execute(program[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes one top-level statement.
+     *
+     * @param stm
+     *            the statement
+     * @return <code>false</code> if the statement was a return statement.
+     * @exception HojoException
+     *                if the observer determines that an error is fatal
+     * @see HojoInterpreter#execute(Statement)
+     */
+    public boolean execute(Statement stm) throws HojoException {
+        Object outer = current.get();
+        current.set(this);
+        try {
+            if (obs.commandExecute(stm)) {
+                Object result = stm.xeq(runtime);
+                if (result instanceof Completion) {
+                    if (((Completion)result).isReturn()) {
+                        lastResult = ((Completion)result).getValue();
+                        return false;
+                    }
+                }
+                else if (stm.hasValue()) {
+                    obs.commandResult(lastResult = Completion.unwrap(result));
+                }
+                else {
+                    obs.commandResult();
+                }
+            }
+        }
+        catch (Throwable t) {
+            // runtime error - let the observer decide whether it is fatal
+            HojoException e = HojoException.wrap(t);
+            if (!obs.handleError(e)) {
+                throw e;
+            }
+            obs.recovered();
+        }
+        finally {
+            current.set(outer);
+        }
+        return true;
+    }
+
+}
@@ -645,10 +645,16 @@ public class HojoSyntax implements Cloneable, java.io.Serializable, HojoConst {
 
                 @Override
                 public Object invoke(Object[] arguments) throws HojoException {
-                    ipret.getObserver().handleWarning(new HojoException(
-                            null, HojoException.WARN_USER,
+                    // in another session, the location of the interpreter is
+                    // unrelated
+                    HojoSession ses = HojoSession.current();
+                    boolean own = ses == null || ses == ipret.getSession();
+                    HojoObserver obs = own ? ipret.getObserver()
+                            : ses.getObserver();
+                    obs.handleWarning(new HojoException(null,
+                            HojoException.WARN_USER,
                             new String[] { "" + arguments[0] },
-                            lex.currentLocation()));
+                            own ? lex.currentLocation() : null));
                     return null;
                 }
 
@@ -657,6 +663,7 @@ public class HojoSyntax implements Cloneable, java.io.Serializable, HojoConst {
                     return name;
                 }
             };
+            lex.addConstant(name, warn);
             lex.addMetaSymbol(s, new Integer(META_WARN),
                     new GenericLexer.Action() {
                         @Override
@@ -686,7 +693,9 @@ public class HojoSyntax implements Cloneable, java.io.Serializable, HojoConst {
 
                 @Override
                 public Object invoke(Object[] arguments) throws HojoException {
-                    Writer wr = ipret.getObserver().getOutputWriter();
+                    HojoSession ses = HojoSession.current();
+                    Writer wr = (ses == null ? ipret.getObserver()
+                            : ses.getObserver()).getOutputWriter();
                     StringBuffer buf = (StringBuffer)format.invoke(
                             format.validateArgs(arguments));
 
@@ -706,6 +715,7 @@ public class HojoSyntax implements Cloneable, java.io.Serializable, HojoConst {
                     return name;
                 }
             };
+            lex.addConstant(name, print);
             lex.addMetaSymbol(s, new Integer(META_PRINT),
                     new GenericLexer.Action() {
                         @Override
@@ -787,13 +797,17 @@ public class HojoSyntax implements Cloneable, java.io.Serializable, HojoConst {
             lex.addSymbol(s, TT_LITERAL, Const.TRUE);
         }
         if ((s = standardLiterals[3]) != null) {
-            lex.addSymbol(s, TT_LITERAL, new Const(new OsInterface()));
+            OsInterface os = new OsInterface();
+            lex.addConstant(s, os);
+            lex.addSymbol(s, TT_LITERAL, new Const(os));
         }
         if ((s = standardLiterals[4]) != null) {
+            lex.addConstant(s, lib);
             lex.addSymbol(s, TT_LITERAL, new Const(lib));
         }
         for (int i = 0; i < customLiteralNames.length; i++) {
             if ((s = customLiteralNames[i]) != null) {
+                lex.addConstant(s, customLiteralValues[i]);
                 lex.addSymbol(s, TT_LITERAL, customLiteralValues[i]);
             }
         }
@@ -0,0 +1,132 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lang.Type;
+
+/**
+ * A script which has been compiled once by
+ * {@link HojoInterpreter#prepare(Object, String[], Type[])}, and which may be
+ * executed any number of times with different values of its input variables.
+ * The execution of a prepared script involves neither the lexer nor the
+ * compiler, and a prepared script may be executed by several threads at the
+ * same time, each execution having its own global variables.
+ *
+ * @author Henrik Lauritzen
+ */
+public class PreparedScript implements java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // the names and types of the input variables, which are declared at the
+    // first addresses of the runtime
+    private final String[] inputs;
+    private final Type[] types;
+
+    // the compiled top-level statements
+    private final Statement[] program;
+
+    PreparedScript(String[] inputs, Type[] types, Statement[] program) {
+        this.inputs = inputs;
+        this.types = types;
+        this.program = program;
+    }
+
+    public String[] getInputNames() {
+        return inputs.clone();
+    }
+
+    public Type[] getInputTypes() {
+        return types.clone();
+    }
+
+    public Statement[] getStatements() {
+        return program.clone();
+    }
+
+    /**
+     * Executes the script in a new session.
+     *
+     * @param inputs
+     *            the values of the input variables, indexed by name. Input
+     *            variables which are not present have the value
+     *            <code>null</code>.
+     * @param obs
+     *            the observer of the session, or <code>null</code>. In the
+     *            latter case, the first runtime error terminates the script.
+     * @return the session, which holds the result and the final values of
+     *         the global variables.
+     * @exception HojoException
+     *                if the script is terminated by an error
+     */
+    public HojoSession execute(Map inputs, HojoObserver obs)
+            throws HojoException {
+        HojoSession ses = new HojoSession(
+                obs == null ? new FailingObserver() : obs);
+        HojoRuntime rt = ses.getRuntime();
+        for (int i = 0; i < this.inputs.length; i++) {
+            rt.alloc(i, false, this.inputs[i], types[i],
+                    inputs == null ? null : inputs.get(this.inputs[i]));
+        }
+        ses.execute(program);
+        return ses;
+    }
+
+    /**
+     * Executes the script in a new session.
+     *
+     * @param inputs
+     *            the values of the input variables.
+     * @return the value of the last top-level statement having a value.
+     * @exception HojoException
+     *                if the script is terminated by a runtime error
+     * @see #execute(Map, HojoObserver)
+     */
+    public Object execute(Map inputs) throws HojoException {
+        return execute(inputs, null).getLastResult();
+    }
+
+    /**
+     * Executes the script in a new session.
+     *
+     * @param inputs
+     *            the values of the input variables.
+     * @return the values of the global variables after the execution,
+     *         including the input variables, indexed by name.
+     * @exception HojoException
+     *                if the script is terminated by a runtime error
+     * @see #execute(Map, HojoObserver)
+     */
+    public Map executeForOutputs(Map inputs) throws HojoException {
+        return new HashMap(execute(inputs, null).getRuntime().asMap());
+    }
+
+    // an observer which treats all errors as fatal
+    private final static class FailingObserver extends SilentHojoObserver {
+        @Override
+        public boolean handleError(HojoException e) {
+            return false;
+        }
+    }
+
+}
@@ -147,6 +147,30 @@ public abstract class StandardFunction
     @Override
     public abstract Object invoke(Object[] arguments) throws HojoException;
 
+    // The fixed-arity entry points validate an argument array by default.
+    // Subclasses should override the entry points matching their arity.
+
+    @Override
+    public Object invoke0() throws HojoException {
+        return invoke(validateArgs(new Object[0]));
+    }
+
+    @Override
+    public Object invoke1(Object arg0) throws HojoException {
+        return invoke(validateArgs(new Object[] { arg0 }));
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return invoke(validateArgs(new Object[] { arg0, arg1 }));
+    }
+
+    @Override
+    public Object invoke3(Object arg0, Object arg1, Object arg2)
+            throws HojoException {
+        return invoke(validateArgs(new Object[] { arg0, arg1, arg2 }));
+    }
+
     @Override
     public String toString() {
         return toString(HojoSyntax.DEFAULT, StringUtils.defaultFormat);
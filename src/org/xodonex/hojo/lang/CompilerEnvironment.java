@@ -45,7 +45,7 @@ public interface CompilerEnvironment {
      *         the variable is not found, then the return value is
      *         <code>null</code>.
      */
-    public short[] findVar(String name, Type[] type);
+    public int[] findVar(String name, Type[] type);
 
     public CompilerEnvironment getParent(short chainLength);
 
@@ -53,11 +53,11 @@ public interface CompilerEnvironment {
 
     public Type getType(String name);
 
-    public short getAddress(String name);
+    public int getAddress(String name);
 
     public short getLevel();
 
-    public short alloc(String name, Type type, short modifiers);
+    public int alloc(String name, Type type, short modifiers);
 
     public int size();
 
@@ -20,6 +20,7 @@ package org.xodonex.hojo.lang;
 
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.expr.TypecastExpr;
 import org.xodonex.hojo.lang.type.NullType;
 import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
@@ -80,11 +81,21 @@ public class Const extends Expression {
     }
 
     protected Object value;
+    protected Type typ; // null if the type is that of the value
 
     public Const(Object value) {
         this.value = value;
     }
 
+    /**
+     * Creates a constant of the given static type, e.g. for the value of a
+     * constant expression.
+     */
+    public Const(Object value, Type typ) {
+        this.value = value;
+        this.typ = typ;
+    }
+
     @Override
     public Object xeq(Environment env) {
         return value;
@@ -95,14 +106,25 @@ public class Const extends Expression {
         return true;
     }
 
+    @Override
+    public boolean conformsTo(Type t) {
+        // a non-null value also conforms to the primitive type of its class
+        return TypecastExpr.isIdentity(t, getType()) || (value != null
+                && TypecastExpr.isIdentity(t,
+                        HojoLib.typeOf(ReflectUtils.unwrap(value.getClass()))));
+    }
+
     @Override
     public Class getTypeC() {
+        if (typ != null) {
+            return typ.toClass();
+        }
         return (value == null) ? Object.class : value.getClass();
     }
 
     @Override
     protected Type getType0() {
-        return HojoLib.typeOf(value);
+        return (typ != null) ? typ : HojoLib.typeOf(value);
     }
 
     @Override
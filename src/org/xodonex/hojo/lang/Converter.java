@@ -0,0 +1,168 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang;
+
+import org.xodonex.hojo.HojoException;
+
+/**
+ * A <code>Converter</code> converts the values of a single source class to a
+ * given {@link Type}. Converters are obtained from
+ * {@link Type#getConverter(Object)}, which resolves the conversion once for
+ * every source class, and are cached by the code performing the conversions.
+ *
+ * @author Henrik Lauritzen
+ */
+public abstract class Converter {
+
+    // the source class of a converter which accepts every value
+    private final static Class ANY = Converter.class;
+
+    private final Class source; // the source class, or null for null values
+    protected final Type target; // the target type
+
+    protected Converter(Class source, Type target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Creates a converter which returns its argument unchanged.
+     *
+     * @param source
+     *            the source class
+     * @param target
+     *            the target type
+     * @return the new converter
+     */
+    public static Converter identity(Class source, Type target) {
+        return new Converter(source, target) {
+            @Override
+            protected Object convert(Object o) {
+                return o;
+            }
+        };
+    }
+
+    /**
+     * Creates a converter which performs the general conversion of the
+     * target type.
+     *
+     * @param source
+     *            the source class
+     * @param target
+     *            the target type
+     * @return the new converter
+     */
+    public static Converter generic(Class source, Type target) {
+        return new Converter(source, target) {
+            @Override
+            protected Object convert(Object o) {
+                return this.target.convert(o);
+            }
+        };
+    }
+
+    /**
+     * Creates a converter which accepts every value, and performs the general
+     * conversion of the target type.
+     *
+     * @param target
+     *            the target type
+     * @return the new converter
+     */
+    public static Converter general(Type target) {
+        return generic(ANY, target);
+    }
+
+    /**
+     * Updates a cached converter which does not accept a given value. The
+     * converter for the class of the value is returned if nothing or only
+     * <code>null</code> has been converted before, and a converter accepting
+     * every value is returned once the value classes have been seen to vary,
+     * such that the cache is not updated repeatedly.
+     *
+     * @param cached
+     *            the cached converter, or <code>null</code>.
+     * @param target
+     *            the target type
+     * @param o
+     *            the value to be converted
+     * @return the converter to be cached instead
+     */
+    public static Converter update(Converter cached, Type target, Object o) {
+        return (cached == null || cached.source == null)
+                ? target.getConverter(o)
+                : target.getGeneralConverter();
+    }
+
+    /**
+     * @return the class of the values converted by this converter,
+     *         <code>null</code> if it converts <code>null</code> values, or
+     *         <code>Object.class</code> if it accepts every value.
+     */
+    public final Class getSource() {
+        return (source == ANY) ? Object.class : source;
+    }
+
+    /**
+     * @return the type to which values are converted.
+     */
+    public final Type getTarget() {
+        return target;
+    }
+
+    /**
+     * Determines whether this converter applies to the given value.
+     *
+     * @param o
+     *            the value
+     * @return whether the class of the value is the source class of this
+     *         converter, or the converter accepts every value.
+     */
+    public final boolean accepts(Object o) {
+        return (o == null) ? source == null || source == ANY
+                : o.getClass() == source || source == ANY;
+    }
+
+    /**
+     * Converts the given value, which must be accepted by this converter.
+     *
+     * @param o
+     *            the value
+     * @return the converted value
+     * @throws HojoException
+     *             if the value could not be converted
+     * @see Type#typeCast(Object)
+     */
+    public final Object typeCast(Object o) throws HojoException {
+        try {
+            return convert(o);
+        }
+        catch (RuntimeException e) {
+            throw HojoException.wrap(e);
+        }
+        catch (Error e) {
+            throw HojoException.wrap(e);
+        }
+    }
+
+    // perform the conversion
+    protected abstract Object convert(Object o);
+
+}
@@ -25,8 +25,41 @@ public interface Environment extends java.io.Serializable {
 
     public Environment getParent();
 
-    public Variable get(short index);
+    /**
+     * Retrieves the variable at the given index, creating a variable cell for
+     * it if necessary. This should only be used when the variable itself must
+     * be shared, as opposed to its value.
+     *
+     * @return the variable, or <code>null</code> if it has not been allocated.
+     */
+    public Variable get(int index);
 
-    public Variable alloc(short index, boolean isFinal, String name,
+    /**
+     * @return the value of the variable at the given index.
+     */
+    public Object getValue(int index);
+
+    /**
+     * Assigns a new value to the variable at the given index.
+     *
+     * @return the new value of the variable.
+     */
+    public Object setValue(int index, Object value);
+
+    /**
+     * Assigns a new value to the variable at the given index, which is known
+     * to be a value of the type of the variable, such that no conversion is
+     * needed.
+     *
+     * @return the new value of the variable.
+     */
+    public Object assign(int index, Object value);
+
+    /**
+     * Declares and initializes the variable at the given index.
+     *
+     * @return the initial value of the variable.
+     */
+    public Object alloc(int index, boolean isFinal, String name,
             Type type, Object initialValue);
 }
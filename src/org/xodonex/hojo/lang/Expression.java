@@ -61,6 +61,17 @@ public abstract class Expression extends Code {
         return false;
     }
 
+    /**
+     * Determines whether every value of the represented expression is known to
+     * be a value of the given type, such that the conversion of the value to
+     * that type has no effect.
+     *
+     * @see org.xodonex.hojo.lang.expr.TypecastExpr#isIdentity(Type, Type)
+     */
+    public boolean conformsTo(Type t) {
+        return false;
+    }
+
     /**
      * @return whether the expression can be used as a statement
      */
@@ -51,6 +51,31 @@ public interface Function extends Runnable {
 
     public Object invoke(Object[] arguments) throws HojoException;
 
+    /**
+     * Invokes the function without arguments. This is equivalent to
+     * <code>invoke(validateArgs(new Object[0]))</code>.
+     */
+    public Object invoke0() throws HojoException;
+
+    /**
+     * Invokes the function on one argument. This is equivalent to
+     * <code>invoke(validateArgs(new Object[] { arg0 }))</code>, but the
+     * argument array may be avoided. The argument must not be
+     * {@link #NO_ARG}.
+     */
+    public Object invoke1(Object arg0) throws HojoException;
+
+    /**
+     * Invokes the function on two arguments, cf. {@link #invoke1(Object)}.
+     */
+    public Object invoke2(Object arg0, Object arg1) throws HojoException;
+
+    /**
+     * Invokes the function on three arguments, cf. {@link #invoke1(Object)}.
+     */
+    public Object invoke3(Object arg0, Object arg1, Object arg2)
+            throws HojoException;
+
     public Object[] validateArgs(Object[] args) throws IllegalArgumentException;
 
 }
@@ -18,7 +18,11 @@
 */
 package org.xodonex.hojo.lang;
 
+import java.util.ArrayList;
+
 import org.xodonex.hojo.lang.env.ClassEnv;
+import org.xodonex.hojo.lang.stm.BlockStatement;
+import org.xodonex.hojo.lang.stm.FuncCreateStm;
 
 /**
  * A half-hearted workaround for the lack of class-generation in the AST,
@@ -31,6 +35,14 @@ public class HClass {
     protected Statement code;
     protected short size;
 
+    // the methods of the class, which are created for each instance when
+    // first accessed
+    protected FuncCreateStm[] methods;
+
+    // the shape of the most recently created instance, which is shared by
+    // the following instances declaring the same public members
+    protected transient volatile Shape shape = null;
+
     public HClass() {
         this(null, (short)0);
     }
@@ -38,13 +50,40 @@ public class HClass {
     public HClass(Statement code, short size) {
         super();
         this.size = size;
-        this.code = code;
+
+        // separate the method declarations from the initialization of the
+        // fields
+        Statement[] stms = (code instanceof BlockStatement)
+                ? ((BlockStatement)code).getStatements()
+                : new Statement[] { code };
+        ArrayList fields = new ArrayList(stms.length);
+        ArrayList methods = new ArrayList(stms.length);
+        for (int i = 0; i < stms.length; i++) {
+            if (stms[i] instanceof FuncCreateStm) {
+                methods.add(stms[i]);
+            }
+            else if (stms[i] != null) {
+                fields.add(stms[i]);
+            }
+        }
+        this.methods = (FuncCreateStm[])methods
+                .toArray(new FuncCreateStm[methods.size()]);
+        this.code = (methods.size() == 0) ? code
+                : new BlockStatement((Statement[])fields
+                        .toArray(new Statement[fields.size()]));
     }
 
     public HObject newInstance() {
         ClassEnv env = new ClassEnv(null, size);
-        code.xeq(env);
-        return env.createClass();
+        for (int i = 0; i < methods.length; i++) {
+            methods[i].declare(env);
+        }
+        if (code != null) {
+            code.xeq(env);
+        }
+        HObject result = env.createClass(shape);
+        shape = result.getShape();
+        return result;
     }
 
 }
@@ -23,7 +23,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.env.ClassEnv;
 
 /**
  * HClasses are a half-hearted workaround for the lack of class-generation in
@@ -36,7 +38,29 @@ public class HObject implements java.io.Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    protected HashMap map;
+    protected Shape shape;
+
+    // cf. Env: slots[i] is the value of the member at index i, if types[i] !=
+    // null. Otherwise slots[i] is the Variable cell holding the member, which
+    // is shared with the functions of the class, or the declaration of a
+    // method which has not yet been created (cf. ClassEnv.addMethod()).
+    // An object may be shared by threads, so the slots are accessed while
+    // holding the lock of the slots array, which is shared with the
+    // environment of the methods: boxing a member or creating a method
+    // changes both slots[i] and types[i]. As for the variables of a frame,
+    // the variable cells themselves are not synchronized.
+    protected Object[] slots;
+    protected Type[] types;
+
+    /**
+     * Creates an object of the given shape, which takes ownership of the slots
+     * and types of a frame of variables.
+     */
+    public HObject(Shape shape, Object[] slots, Type[] types) {
+        this.shape = shape;
+        this.slots = slots;
+        this.types = types;
+    }
 
     public HObject(String[] names, Object[] values) {
         this(names, values, true);
@@ -47,12 +71,7 @@ public class HObject implements java.io.Serializable {
     }
 
     public HObject(String[] names, Variable[] values) {
-        map = new HashMap(names.length);
-        for (int i = names.length - 1; i >= 0; i--) {
-            if (names[i] != null) {
-                map.put(names[i], values[i]);
-            }
-        }
+        this(new Shape(names), values.clone(), new Type[names.length]);
     }
 
     private static Variable[] createVars(String[] names, Object[] values,
@@ -78,39 +97,109 @@ public class HObject implements java.io.Serializable {
         return result;
     }
 
-    public Variable get(String name) throws NoSuchFieldException {
-        Variable v = (Variable)map.get(name);
-        if (v == null) {
-            throw new NoSuchFieldException(name);
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the variable holding the member stored in the given slot of
+     *         the {@link #getShape() shape} of this object. The member is boxed
+     *         into a variable, if necessary.
+     */
+    public Variable get(int slot) {
+        // cf. Env.get()
+        synchronized (slots) {
+            ClassEnv.createMethod(slots, types, slot);
+            Type t = types[slot];
+            if (t == null) {
+                return (Variable)slots[slot];
+            }
+
+            Variable v = new NormalVar(t, slots[slot]);
+            types[slot] = null;
+            slots[slot] = v;
+            return v;
         }
-        return v;
     }
 
-    public Object set(String name, Object value) throws NoSuchFieldException {
-        Variable v = (Variable)map.get(name);
-        if (v == null) {
+    /**
+     * @return the value of the member stored in the given slot.
+     */
+    public Object getValue(int slot) {
+        synchronized (slots) {
+            ClassEnv.createMethod(slots, types, slot);
+            if (types[slot] != null) {
+                return slots[slot];
+            }
+        }
+        // a boxed member is never unboxed
+        return get(slot).getValue();
+    }
+
+    /**
+     * Sets the value of the member stored in the given slot.
+     *
+     * @return the new value.
+     */
+    public Object setValue(int slot, Object value) throws HojoException {
+        // cf. Env.setValue()
+        synchronized (slots) {
+            Type t = types[slot];
+            if (t != null) {
+                Object v = t.typeCast(value);
+                if (v != value) {
+                    throw new HojoException(null, HojoException.ERR_INTERNAL,
+                            new String[] { "", "" }, null);
+                }
+                return slots[slot] = v;
+            }
+        }
+        return get(slot).set(null, value);
+    }
+
+    private int slotOf(String name) throws NoSuchFieldException {
+        int slot = shape.indexOf(name);
+        if (slot < 0) {
             throw new NoSuchFieldException(name);
         }
-        return v.set(null, value);
+        return slot;
+    }
+
+    public Variable get(String name) throws NoSuchFieldException {
+        return get(slotOf(name));
+    }
+
+    public Object getValue(String name) throws NoSuchFieldException {
+        return getValue(slotOf(name));
+    }
+
+    public Object set(String name, Object value) throws NoSuchFieldException {
+        return setValue(slotOf(name), value);
     }
 
     public Collection getMemberNames(Collection addTo) {
         if (addTo == null) {
-            return new ArrayList(map.keySet());
+            addTo = new ArrayList();
         }
-        else {
-            addTo.addAll(map.keySet());
-            return addTo;
+        for (int i = 0; i < slots.length; i++) {
+            String name = shape.nameOf(i);
+            if (name != null) {
+                addTo.add(name);
+            }
         }
+        return addTo;
     }
 
     public Map getMembers(Map addTo) {
         if (addTo == null) {
-            return new HashMap(map);
+            addTo = new HashMap();
         }
-        else {
-            addTo.putAll(map);
-            return addTo;
+        for (int i = 0; i < slots.length; i++) {
+            String name = shape.nameOf(i);
+            if (name != null) {
+                addTo.put(name, get(i));
+            }
         }
+        return addTo;
     }
 }
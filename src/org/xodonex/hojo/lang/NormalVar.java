@@ -32,6 +32,9 @@ public class NormalVar extends Variable {
 
     protected Type type;
 
+    // the converter used for the last value
+    private transient volatile Converter conv = null;
+
     public NormalVar(Class type, Object value) {
         this(HojoLib.typeOf(type), value);
     }
@@ -48,7 +51,11 @@ public class NormalVar extends Variable {
 
     @Override
     public Object set(Object resolvent, Object value) throws HojoException {
-        Object v = type.typeCast(value);
+        Converter c = conv;
+        if (c == null || !c.accepts(value)) {
+            conv = c = Converter.update(c, type, value);
+        }
+        Object v = c.typeCast(value);
         if (v != value) {
             throw new HojoException(null, HojoException.ERR_INTERNAL,
                     new String[] {
@@ -58,6 +65,11 @@ public class NormalVar extends Variable {
         return this.value = v;
     }
 
+    @Override
+    public Object assign(Object value) {
+        return this.value = value;
+    }
+
     @Override
     public String toString(HojoSyntax stx, StringUtils.Format fmt,
             String indent) {
@@ -0,0 +1,92 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang;
+
+import java.util.HashMap;
+
+/**
+ * The layout of an {@link HObject}, mapping the name of each public member to
+ * the slot holding its value. All instances of an {@link HClass} which declare
+ * the same public members share the same shape, such that a member access can
+ * cache the slot resolved for a shape. The shapes are interned by their
+ * classes, and are released together with them.
+ *
+ * @author Henrik Lauritzen
+ */
+public final class Shape implements java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // names[i] is the name of the member stored in slot i, or null if the
+    // slot does not hold a public member
+    private final String[] names;
+    private final HashMap index;
+
+    public Shape(String[] names) {
+        this.names = names.clone();
+        index = new HashMap(names.length);
+        for (int i = names.length - 1; i >= 0; i--) {
+            if (names[i] != null) {
+                index.put(names[i], Integer.valueOf(i));
+            }
+        }
+    }
+
+    /**
+     * @return the number of slots of an object of this shape, including the
+     *         slots which do not hold public members.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the slot holding the given member, or -1 if no such member
+     *         exists.
+     */
+    public int indexOf(String name) {
+        Integer i = (Integer)index.get(name);
+        return (i == null) ? -1 : i.intValue();
+    }
+
+    /**
+     * @return the name of the member stored in the given slot, or
+     *         <code>null</code>
+     */
+    public String nameOf(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * @return true if this shape stores the given members in the same slots.
+     */
+    public boolean matches(String[] names) {
+        if (names.length != this.names.length) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            String n = names[i];
+            if (n == null ? this.names[i] != null : !n.equals(this.names[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
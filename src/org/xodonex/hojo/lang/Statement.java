@@ -19,7 +19,6 @@
 package org.xodonex.hojo.lang;
 
 import org.xodonex.hojo.HojoException;
-import org.xodonex.hojo.util.FlowException;
 
 /**
  * Abstract base class for code that is a statement.
@@ -63,9 +62,6 @@ public abstract class Statement extends Code {
         try {
             return run(env);
         }
-        catch (FlowException e) {
-            throw e;
-        }
         catch (Throwable t) {
             throw HojoException.wrap(t, this);
         }
@@ -83,9 +79,11 @@ public abstract class Statement extends Code {
      *
      * @param env
      *            the evaluation environment
-     * @return the expression value, if this statement is an expression
-     *         statement. Otherwise the return value should be
-     *         <code>null</code>, but is not used.
+     * @return a {@link org.xodonex.hojo.util.Completion} if the statement
+     *         completes abruptly, due to a break, continue or return
+     *         statement, which must then be passed on by the enclosing
+     *         statements. Otherwise the expression value, if this statement
+     *         is an expression statement, or <code>null</code>.
      * @throws Throwable
      *             any code can be invoked in this way, hence any exception may
      *             result
@@ -18,6 +18,8 @@
 */
 package org.xodonex.hojo.lang;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.xodonex.hojo.HojoConst;
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
@@ -54,6 +56,18 @@ public abstract class Type implements java.io.Serializable, HojoConst {
             TYP_HOBJECT = 19,
             TYP_MAX = TYP_HOBJECT;
 
+    // the maximal number of source classes for which converters are cached
+    private final static int CONVERTER_CACHE_LIMIT = 64;
+
+    // the converters created by getConverter(), keyed by source class. The
+    // cache is cleared when it is full, so that a type which converts
+    // values of many (e.g. generated) classes does not retain them all
+    private transient volatile ConcurrentHashMap converters = null;
+    // the converter of the null value, which can't be a key of the cache
+    private transient volatile Converter nullConverter = null;
+    // the converter accepting every value, created by getGeneralConverter()
+    private transient volatile Converter general = null;
+
     public int kind() {
         return TYP_SIMPLE;
     }
@@ -71,6 +85,51 @@ public abstract class Type implements java.io.Serializable, HojoConst {
         }
     }
 
+    // Return the converter from the class of the given object to this type.
+    // The converter is normally created once for every source class, cf.
+    // HojoSession.
+    public final Converter getConverter(Object o) {
+        if (o == null) {
+            Converter result = nullConverter;
+            if (result == null) {
+                nullConverter = result = createConverter(null);
+            }
+            return result;
+        }
+
+        ConcurrentHashMap cache = converters;
+        if (cache == null) {
+            converters = cache = new ConcurrentHashMap();
+        }
+        Class c = o.getClass();
+        Converter result = (Converter)cache.get(c);
+        if (result == null) {
+            if (cache.size() >= CONVERTER_CACHE_LIMIT) {
+                cache.clear();
+            }
+            result = createConverter(c);
+            cache.put(c, result);
+        }
+        return result;
+    }
+
+    // Return a converter which accepts every value, for use where the
+    // classes of the converted values vary.
+    public final Converter getGeneralConverter() {
+        Converter result = general;
+        if (result == null) {
+            general = result = Converter.general(this);
+        }
+        return result;
+    }
+
+    // Create a converter from the given class (null for the null value) to
+    // this type. Overridden by types for which a conversion is known to be
+    // the identity, or can be specialized for the source class.
+    protected Converter createConverter(Class source) {
+        return Converter.generic(source, this);
+    }
+
     // The class represented by this <code>Type</code>.
     public abstract Class toClass();
 
@@ -65,6 +65,15 @@ public class Variable extends AbstractLValue {
         }
     }
 
+    /**
+     * Assigns a value which is known to be of the type of the variable.
+     *
+     * @return the new value of the variable.
+     */
+    public Object assign(Object value) throws HojoException {
+        return set(null, value);
+    }
+
     @Override
     public Object xeq(Environment env) {
         return value;
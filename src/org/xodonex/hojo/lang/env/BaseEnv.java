@@ -18,12 +18,23 @@
 */
 package org.xodonex.hojo.lang.env;
 
+import java.util.HashSet;
+
 import org.xodonex.hojo.HojoRuntime;
 import org.xodonex.hojo.lang.CompilerEnvironment;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.util.ArrayUtils;
 
 public class BaseEnv extends CompilerEnv {
 
+    // addresses[i] is the address in the runtime of the ith variable allocated
+    // by the compiler, cf. HojoRuntime.nextAddress()
+    protected int[] addresses = new int[8];
+
+    // the variables of the runtime which have been removed by the compiler,
+    // while the runtime is not updated
+    protected HashSet forgotten = new HashSet();
+
     public BaseEnv(HojoRuntime rt) {
         super(rt);
         level = 0;
@@ -39,51 +50,91 @@ public class BaseEnv extends CompilerEnv {
     }
 
     @Override
-    public short[] findVar(String name, Type[] typ) {
-        Short s;
-        if ((s = (Short)locations.get(name)) == null) {
-            return parent.findVar(name, typ);
+    public int[] findVar(String name, Type[] typ) {
+        Integer s;
+        if ((s = (Integer)locations.get(name)) == null) {
+            return forgotten.contains(name) ? null
+                    : parent.findVar(name, typ);
         }
         else {
-            short _s = s.shortValue();
+            int _s = s.intValue();
             typ[0] = types[_s];
-            return new short[] { (short)(_s + parent.size()), 0, 0,
-                    modifiers[_s] };
+            return new int[] { addresses[_s], 0, 0, modifiers[_s] };
         }
     }
 
     @Override
     public Type getType(String name) {
-        short s;
-        return ((s = super.getAddress(name)) < 0) ? parent.getType(name)
-                : types[s];
+        int s;
+        if ((s = super.getAddress(name)) >= 0) {
+            return types[s];
+        }
+        return forgotten.contains(name) ? null : parent.getType(name);
     }
 
     @Override
     public short getModifiers(String name) {
-        short s;
-        return ((s = super.getAddress(name)) < 0) ? parent.getModifiers(name)
-                : modifiers[s];
+        int s;
+        if ((s = super.getAddress(name)) >= 0) {
+            return modifiers[s];
+        }
+        return forgotten.contains(name) ? 0 : parent.getModifiers(name);
     }
 
     @Override
-    public short getAddress(String name) {
-        short addr = super.getAddress(name);
+    public int getAddress(String name) {
+        int addr = super.getAddress(name);
         if (addr >= 0) {
-            return (short)(addr + parent.size());
+            return addresses[addr];
         }
         else {
-            return parent.getAddress(name);
+            return forgotten.contains(name) ? -1 : parent.getAddress(name);
         }
     }
 
     @Override
-    public short alloc(String name, Type type, short modifiers) {
-        short addr = parent.getAddress(name);
+    public int alloc(String name, Type type, short modifiers) {
+        int addr = forgotten.contains(name) ? -1 : parent.getAddress(name);
         if (addr >= 0) {
             return addr;
         }
-        return (short)(super.alloc(name, type, modifiers) + parent.size());
+
+        int n = size;
+        addr = super.alloc(name, type, modifiers);
+        if (size > n) {
+            // the variable will be stored at this address, when the
+            // declaration is executed
+            if (addr >= addresses.length) {
+                addresses = ArrayUtils.enlarge(addresses, 0);
+            }
+            addresses[addr] = getLink().nextAddress(addr);
+        }
+        return addresses[addr];
+    }
+
+    /**
+     * Removes a variable from the compiler, while the runtime is not updated
+     * until the compiled code is executed. The address of the variable is not
+     * reused by subsequent declarations, since the variable is still declared
+     * when they are compiled.
+     *
+     * @param name
+     *            the name of the variable.
+     * @return <code>false</code> if the variable is not declared.
+     */
+    public boolean forget(String name) {
+        assigned.remove(name);
+        if (locations.remove(name) != null) {
+            return true;
+        }
+        return !forgotten.contains(name) && parent.getAddress(name) >= 0
+                && forgotten.add(name);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        forgotten.clear();
     }
 
     @Override
@@ -102,7 +153,7 @@ public class BaseEnv extends CompilerEnv {
             return super.doAssign(name);
         }
         else {
-            return parent.doAssign(name);
+            return !forgotten.contains(name) && parent.doAssign(name);
         }
     }
 
@@ -112,7 +163,7 @@ public class BaseEnv extends CompilerEnv {
             return super.isAssigned(name);
         }
         else {
-            return parent.isAssigned(name);
+            return !forgotten.contains(name) && parent.isAssigned(name);
         }
     }
 
@@ -20,6 +20,10 @@ package org.xodonex.hojo.lang.env;
 
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.HObject;
+import org.xodonex.hojo.lang.Shape;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.Variable;
+import org.xodonex.hojo.lang.stm.FuncCreateStm;
 
 public class ClassEnv extends Env {
 
@@ -32,12 +36,98 @@ public class ClassEnv extends Env {
         publicNames = new String[size];
     }
 
-    public void addMember(String name, short address) {
+    // a view of the variables of an object, used to create its methods
+    private ClassEnv(Object[] slots, Type[] types) {
+        super(null, slots, types);
+    }
+
+    public void addMember(String name, int address) {
         publicNames[address] = name;
     }
 
-    public HObject createClass() {
-        return new HObject(publicNames, vars);
+    /**
+     * Declares a method, which is not created until the variable holding it is
+     * first accessed. Until then, the slot of the variable holds the
+     * declaration of the method, which is shared by all instances of the
+     * class. The method is then bound to the environment in which it is
+     * accessed, whose variables are those of the instance.
+     */
+    public void addMethod(int address, FuncCreateStm decl) {
+        types[address] = null;
+        slots[address] = decl;
+    }
+
+    // creates the method declared in the given slot, if necessary
+    private void ensureMethod(int index) {
+        Object decl = slots[index];
+        if (decl instanceof FuncCreateStm && types[index] == null) {
+            slots[index] = null;
+            ((FuncCreateStm)decl).create(this);
+        }
+    }
+
+    /**
+     * Creates a method declared in a slot of an object, if it has not yet
+     * been accessed. The caller must hold the lock of the slots.
+     *
+     * @see #addMethod(int, FuncCreateStm)
+     */
+    public static void createMethod(Object[] slots, Type[] types, int index) {
+        if (slots[index] instanceof FuncCreateStm) {
+            new ClassEnv(slots, types).ensureMethod(index);
+        }
+    }
+
+    // The slots are accessed while holding the lock of the slots array,
+    // which is shared with the object (cf. HObject), since creating a method
+    // or boxing a variable changes both slots[i] and types[i]
+
+    @Override
+    public Variable get(int index) {
+        synchronized (slots) {
+            ensureMethod(index);
+            return super.get(index);
+        }
+    }
+
+    @Override
+    public Object getValue(int index) {
+        synchronized (slots) {
+            ensureMethod(index);
+            return super.getValue(index);
+        }
+    }
+
+    @Override
+    public Object setValue(int index, Object value) {
+        synchronized (slots) {
+            ensureMethod(index);
+            return super.setValue(index, value);
+        }
+    }
+
+    @Override
+    public Object assign(int index, Object value) {
+        synchronized (slots) {
+            ensureMethod(index);
+            return super.assign(index, value);
+        }
+    }
+
+    /**
+     * Creates the object defined by this class environment, which takes over
+     * the variables of the environment. The members are shared by the object
+     * and the code of the class.
+     *
+     * @param shape
+     *            the shape of a previous instance of the class, which is
+     *            reused if the same public members have been declared.
+     */
+    public HObject createClass(Shape shape) {
+        if (shape == null || !shape.matches(publicNames)) {
+            shape = new Shape(publicNames);
+        }
+        return new HObject(shape, slots, types);
     }
 
 }
@@ -31,10 +31,10 @@ public class CompilerEnv implements CompilerEnvironment {
 
     protected CompilerEnvironment parent;
     protected short level;
-    protected HashMap locations; // String -m-> Short
+    protected HashMap locations; // String -m-> Integer
     protected Type[] types;
     protected short[] modifiers;
-    protected short size;
+    protected int size;
     protected HashSet assigned = new HashSet(); // used by doAssign() /
                                                 // isAssigned()
 
@@ -65,7 +65,7 @@ public class CompilerEnv implements CompilerEnvironment {
             String[] names, Type[] types, short[] modifiers, boolean newLvl) {
         int iSize = 8;
         if (names != null) {
-            size = (short)names.length;
+            size = names.length;
             if (names.length > iSize) {
                 iSize = names.length + 8;
             }
@@ -87,7 +87,7 @@ public class CompilerEnv implements CompilerEnvironment {
 
         if (names != null) {
             for (int i = 0; i < size; i++) {
-                locations.put(names[i], new Short((short)i));
+                locations.put(names[i], Integer.valueOf(i));
                 this.types[i] = types[i];
                 this.modifiers[i] = modifiers[i];
             }
@@ -117,13 +117,13 @@ public class CompilerEnv implements CompilerEnvironment {
     }
 
     @Override
-    public short[] findVar(String name, Type[] type) {
-        Short s;
+    public int[] findVar(String name, Type[] type) {
+        Integer s;
 
-        if ((s = (Short)locations.get(name)) == null) {
+        if ((s = (Integer)locations.get(name)) == null) {
             // look for the variable in the parent environment, or return
             // null if the variable doesn't exist.
-            short[] result;
+            int[] result;
             if (parent == null
                     || (result = parent.findVar(name, type)) == null) {
                 return null;
@@ -132,7 +132,7 @@ public class CompilerEnv implements CompilerEnvironment {
             return result;
         }
         else {
-            short _s = s.shortValue();
+            int _s = s.intValue();
 
             // save the variable type
             type[0] = types[_s];
@@ -140,36 +140,36 @@ public class CompilerEnv implements CompilerEnvironment {
             // indicate that the variable is found at address s at this this
             // depth
             // and level.
-            return new short[] { _s, 0, level, modifiers[_s] };
+            return new int[] { _s, 0, level, modifiers[_s] };
         }
     }
 
     @Override
     public Type getType(String name) {
-        short s;
+        int s;
         return ((s = getAddress(name)) >= 0) ? types[s] : null;
     }
 
     @Override
-    public short getAddress(String name) {
-        Short s;
-        return ((s = (Short)locations.get(name)) != null) ? s.shortValue()
+    public int getAddress(String name) {
+        Integer s;
+        return ((s = (Integer)locations.get(name)) != null) ? s.intValue()
                 : -1;
     }
 
     @Override
     public short getModifiers(String name) {
-        Short s;
-        return ((s = (Short)locations.get(name)) != null)
-                ? modifiers[s.shortValue()]
+        Integer s;
+        return ((s = (Integer)locations.get(name)) != null)
+                ? modifiers[s.intValue()]
                 : 0;
     }
 
     @Override
-    public short alloc(String name, Type type, short modifiers) {
-        Short s = (Short)locations.get(name);
+    public int alloc(String name, Type type, short modifiers) {
+        Integer s = (Integer)locations.get(name);
         if (s != null) {
-            return s.shortValue();
+            return s.intValue();
         }
 
         if (size >= types.length - 1) {
@@ -179,10 +179,10 @@ public class CompilerEnv implements CompilerEnvironment {
         }
 
         // calculate the new address and record the information
-        short addr = size++;
+        int addr = size++;
         types[addr] = type;
         this.modifiers[addr] = modifiers;
-        locations.put(name, new Short(addr));
+        locations.put(name, Integer.valueOf(addr));
         return addr;
     }
 
@@ -192,13 +192,13 @@ public class CompilerEnv implements CompilerEnvironment {
      */
     @Override
     public void remove(String name) {
-        Short s = (Short)locations.remove(name);
+        Integer s = (Integer)locations.remove(name);
         if (s == null) {
             // illegal!
             throw new IllegalStateException();
         }
 
-        short _s = s.shortValue();
+        int _s = s.intValue();
         if (_s + 1 != size) {
             // illegal!
             locations.put(name, s);
@@ -227,7 +227,7 @@ public class CompilerEnv implements CompilerEnvironment {
 
     @Override
     public boolean doAssign(String name) {
-        short addr = getAddress(name);
+        int addr = getAddress(name);
         if (addr < 0) {
             return false;
         }
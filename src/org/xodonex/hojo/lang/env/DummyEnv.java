@@ -39,12 +39,27 @@ public class DummyEnv implements Environment {
     }
 
     @Override
-    public Variable get(short index) {
+    public Variable get(int index) {
         throw new HojoException();
     }
 
     @Override
-    public Variable alloc(short index, boolean isFinal, String name,
+    public Object getValue(int index) {
+        throw new HojoException();
+    }
+
+    @Override
+    public Object setValue(int index, Object value) {
+        throw new HojoException();
+    }
+
+    @Override
+    public Object assign(int index, Object value) {
+        throw new HojoException();
+    }
+
+    @Override
+    public Object alloc(int index, boolean isFinal, String name,
             Type type, Object initialValue) {
         throw new HojoException();
     }
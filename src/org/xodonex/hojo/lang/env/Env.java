@@ -18,21 +18,81 @@
 */
 package org.xodonex.hojo.lang.env;
 
+import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.NormalVar;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.Variable;
 
+/**
+ * A frame of local variables. The values of ordinary variables are stored
+ * directly in the slots of the frame, while the declared type of each slot is
+ * kept in a parallel type descriptor. A slot is only boxed into a
+ * {@link Variable} cell when the variable itself is requested through
+ * {@link #get(int)}, ie. when it is captured by a closure or linked into
+ * other code, and for final variables.
+ * <p>
+ * The frames of a function or a block may share a type descriptor, see
+ * {@link #getTypes()}, which is copied before it is first changed.
+ * <p>
+ * The frames having the same parent, eg. the frames of a block executed in a
+ * loop, share a record of the frames enclosing them, such that the frame of a
+ * variable at a given scope depth is found directly, see
+ * {@link #getEnclosing(Environment, int)}. The record is created when the
+ * second frame is created for the parent, so that a block executed once
+ * allocates none.
+ */
 public class Env implements Environment {
 
     private static final long serialVersionUID = 1L;
 
     protected Environment parent;
-    protected Variable[] vars;
+
+    // the frames enclosing this frame, the parent being the last one, or
+    // null if they are found through getParent(). Only the innermost
+    // enclosing frames which are instances of Env are included.
+    private final Env[] display;
+
+    // the display of the frames having this frame as their parent, and
+    // whether such a frame has been created
+    private transient volatile Env[] children = null;
+    private transient boolean hasChild = false;
+
+    // slots[i] is the value of the variable at index i, if types[i] != null.
+    // Otherwise slots[i] is the Variable cell (or null if the variable
+    // has not been allocated).
+    protected Object[] slots;
+    protected Type[] types;
+
+    // the shared type descriptor, as long as types refers to it
+    private Type[] shared = null;
 
     public Env(Environment parent, short size) {
         this.parent = parent;
-        vars = new Variable[size];
+        display = displayOf(parent);
+        slots = new Object[size];
+        types = new Type[size];
+    }
+
+    /**
+     * Creates a frame sharing the given type descriptor, which must not be
+     * modified.
+     */
+    public Env(Environment parent, Type[] types) {
+        this.parent = parent;
+        display = displayOf(parent);
+        slots = new Object[types.length];
+        this.types = shared = types;
+    }
+
+    /**
+     * Creates a frame sharing the given slots and types.
+     */
+    protected Env(Environment parent, Object[] slots, Type[] types) {
+        this.parent = parent;
+        display = displayOf(parent);
+        this.slots = slots;
+        this.types = types;
     }
 
     @Override
@@ -40,24 +100,208 @@ public class Env implements Environment {
         return parent;
     }
 
+    /**
+     * @param env
+     *            a frame.
+     * @param depth
+     *            a scope depth, 0 denoting the frame itself.
+     * @return the frame enclosing the given frame at the given depth.
+     */
+    public static Environment getEnclosing(Environment env, int depth) {
+        if (depth == 0) {
+            return env;
+        }
+
+        Environment e = env;
+        int i = depth;
+        Env[] d = (env instanceof Env) ? ((Env)env).display : null;
+        if (d != null) {
+            int n = d.length;
+            if (depth <= n) {
+                return d[n - depth];
+            }
+            e = d[0];
+            i -= n;
+        }
+        for (; i > 0; i--) {
+            e = e.getParent();
+        }
+        return e;
+    }
+
+    private static Env[] displayOf(Environment parent) {
+        if (!(parent instanceof Env)) {
+            return null;
+        }
+
+        Env p = (Env)parent;
+        Env[] result = p.children;
+        if (result == null) {
+            if (!p.hasChild) {
+                p.hasChild = true;
+                return null;
+            }
+
+            Env[] d = p.display;
+            int n = (d == null) ? 0 : d.length;
+            result = new Env[n + 1];
+            if (n > 0) {
+                System.arraycopy(d, 0, result, 0, n);
+            }
+            result[n] = p;
+            p.children = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Variable get(int index) {
+        Type t = types[index];
+        if (t == null) {
+            return (Variable)slots[index];
+        }
+
+        // box the variable, such that it can be shared
+        Variable v = new NormalVar(t, slots[index]);
+        setType(index, null);
+        slots[index] = v;
+        return v;
+    }
+
+    /**
+     * Stores an existing variable at the given index. This is used to make the
+     * variables captured by a closure available to the function body.
+     */
+    public void bind(int index, Variable v) {
+        setType(index, null);
+        slots[index] = v;
+    }
+
+    /**
+     * Declares a non-final variable, whose initial value is already known to
+     * be a value of its type.
+     */
+    public void declare(int index, Type type, Object value) {
+        setType(index, type);
+        slots[index] = value;
+    }
+
+    /**
+     * @return a copy of the current type descriptor. Once the variables of
+     *         the frame have been declared, it can be shared by the later
+     *         frames of the same function or block, such that they need not
+     *         allocate their own descriptor.
+     */
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    private void setType(int index, Type type) {
+        if (types[index] != type) {
+            if (types == shared) {
+                types = types.clone();
+                shared = null;
+            }
+            types[index] = type;
+        }
+    }
+
+    /**
+     * @return whether the variable at the given index has been boxed, such
+     *         that it may be referenced from outside the frame.
+     */
+    public boolean isBoxed(int index) {
+        return types[index] == null;
+    }
+
+    /**
+     * @return the value held by a temporary slot, which is not a variable,
+     *         or <code>null</code> if no value has been stored.
+     * @see org.xodonex.hojo.lang.expr.LoopInvariant
+     */
+    public Object getTemp(int index) {
+        return slots[index];
+    }
+
+    /**
+     * Stores a value in a temporary slot, which is not a variable.
+     */
+    public void setTemp(int index, Object value) {
+        slots[index] = value;
+    }
+
+    /**
+     * Clears all slots, such that the frame can be reused for a new invocation
+     * of the same function.
+     *
+     * @return <code>false</code> if a variable of the frame has been boxed, in
+     *         which case the frame is left unchanged, as the variable may still
+     *         be referenced.
+     */
+    public boolean clear() {
+        for (int i = 0; i < slots.length; i++) {
+            if (types[i] == null && slots[i] != null) {
+                return false;
+            }
+        }
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+            if (types != shared) {
+                types[i] = null;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object getValue(int index) {
+        return (types[index] != null) ? slots[index]
+                : ((Variable)slots[index]).getValue();
+    }
+
     @Override
-    public Variable get(short index) {
-        return vars[index];
+    public Object setValue(int index, Object value) {
+        Type t = types[index];
+        if (t == null) {
+            return ((Variable)slots[index]).set(null, value);
+        }
+
+        Object v = t.typeCast(value);
+        if (v != value) {
+            throw new HojoException(null, HojoException.ERR_INTERNAL,
+                    new String[] { "", "" }, null);
+        }
+        return slots[index] = v;
+    }
+
+    @Override
+    public Object assign(int index, Object value) {
+        if (types[index] == null) {
+            return ((Variable)slots[index]).assign(value);
+        }
+        return slots[index] = value;
     }
 
     @Override
-    public Variable alloc(short index, boolean isFinal, String name,
+    public Object alloc(int index, boolean isFinal, String name,
             Type type, Object initialValue) {
-        if (vars[index] == null) {
-            // variable is declared and initialized
-            return vars[index] = isFinal
-                    ? new Variable(type.typeCast(initialValue))
-                    : new NormalVar(type, initialValue);
+        if (slots[index] == null) {
+            // variable is declared and initialized. A shared descriptor may
+            // already hold its type.
+            if (isFinal) {
+                Variable v = new Variable(type.typeCast(initialValue));
+                setType(index, null);
+                slots[index] = v;
+                return v.getValue();
+            }
+            else {
+                setType(index, type);
+                return slots[index] = type.typeCast(initialValue);
+            }
         }
         else {
             // variable has been redeclared - reuse the container
-            vars[index].set(null, initialValue);
-            return vars[index];
+            return setValue(index, initialValue);
         }
     }
 
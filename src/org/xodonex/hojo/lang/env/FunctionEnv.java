@@ -0,0 +1,185 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.env;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.xodonex.hojo.lang.CompilerEnvironment;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.expr.TypecastExpr;
+import org.xodonex.hojo.lang.expr.VarExpr;
+
+/**
+ * Compile-time scope of a function body. Every variable of an enclosing scope
+ * which is referenced from the body is captured: it is assigned a local slot
+ * of its own, and the code accessing the variable is compiled as a local
+ * access of that slot. When the function is created, the
+ * {@link #getCaptures() captured variables} are resolved once in the defining
+ * environment and stored in the function, so that the body itself never has
+ * to be relinked.
+ * <p>
+ * The body of a method is shared by the instances of its class. The members
+ * of the class are therefore not captured, but accessed in the parent frame
+ * of the body, which is the instance the method is bound to (cf.
+ * {@link org.xodonex.hojo.lang.func.HojoFunction#bind(
+ * org.xodonex.hojo.lang.Environment)}).
+ */
+public class FunctionEnv extends CompilerEnv {
+
+    // location (depth << 32 | address, relative to the parent) -m-> Short
+    protected HashMap captureMap = new HashMap();
+    protected ArrayList captures = new ArrayList(); // VarExpr
+    protected ArrayList captureSlots = new ArrayList(); // Short
+
+    // whether every value returned from the body is known to conform to the
+    // return type
+    protected boolean exactReturns = true;
+
+    // whether this is the scope of a method, the parent being its class
+    protected boolean method;
+
+    public FunctionEnv(CompilerEnvironment parent,
+            String[] names, Class[] types, short[] modifiers) {
+        this(parent, names, types, modifiers, false);
+    }
+
+    /**
+     * @param method
+     *            whether the function is a method of the class whose scope is
+     *            the parent.
+     */
+    public FunctionEnv(CompilerEnvironment parent,
+            String[] names, Class[] types, short[] modifiers, boolean method) {
+        super(parent, names, types, modifiers, true);
+        this.method = method;
+    }
+
+    @Override
+    public int[] findVar(String name, Type[] type) {
+        if (getAddress(name) >= 0 || parent == null) {
+            return super.findVar(name, type);
+        }
+
+        int[] result = parent.findVar(name, type);
+        if (result == null) {
+            return null;
+        }
+        else if (method && result[ADDR_DEPTH] == 0) {
+            // a member of the receiver
+            result[ADDR_DEPTH]++;
+            return result;
+        }
+        else {
+            return capture(result, type[0]);
+        }
+    }
+
+    /**
+     * @return whether this is the scope of a method.
+     */
+    public boolean isMethod() {
+        return method;
+    }
+
+    /**
+     * Captures a variable of an enclosing scope.
+     *
+     * @param address
+     *            the location of the variable, relative to the parent of
+     *            this environment (as returned by
+     *            {@link CompilerEnvironment#findVar(String, Type[])}).
+     * @param type
+     *            the declared type of the variable.
+     * @return the location of the local slot holding the captured variable.
+     */
+    public int[] capture(int[] address, Type type) {
+        Long key = Long.valueOf(((long)address[ADDR_DEPTH] << 32)
+                | (address[ADDR_LOCAL] & 0xffffffffL));
+        Short s = (Short)captureMap.get(key);
+        short slot;
+
+        if (s == null) {
+            // use a name which cannot clash with any identifier
+            slot = (short)alloc("\0" + captures.size(), type,
+                    (short)address[ADDR_MODIFIERS]);
+            captureMap.put(key, Short.valueOf(slot));
+            captures.add(new VarExpr(address, type));
+            captureSlots.add(Short.valueOf(slot));
+        }
+        else {
+            slot = s.shortValue();
+        }
+
+        return new int[] { slot, 0, level, address[ADDR_MODIFIERS] };
+    }
+
+    /**
+     * @return the code which resolves the captured variables in the defining
+     *         environment, or <code>null</code> if nothing was captured.
+     */
+    public Expression[] getCaptures() {
+        return captures.isEmpty() ? null
+                : (Expression[])captures
+                        .toArray(new Expression[captures.size()]);
+    }
+
+    /**
+     * @return the local slots of the captured variables, in the order of
+     *         {@link #getCaptures()}, or <code>null</code> if nothing was
+     *         captured.
+     */
+    public short[] getCaptureSlots() {
+        int n = captureSlots.size();
+        if (n == 0) {
+            return null;
+        }
+        short[] result = new short[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = ((Short)captureSlots.get(i)).shortValue();
+        }
+        return result;
+    }
+
+    /**
+     * Records a value returned from the body of the function, or from a
+     * block nested in the body.
+     *
+     * @param retType
+     *            the return type of the block, or <code>null</code>.
+     * @param value
+     *            the returned value.
+     */
+    public void addReturn(Type retType, Expression value) {
+        if (!TypecastExpr.conforms(retType, value)) {
+            exactReturns = false;
+        }
+    }
+
+    /**
+     * @return whether every value returned from the body is known to conform
+     *         to the return type of the function, cf.
+     *         {@link #addReturn(Type, Expression)}.
+     */
+    public boolean hasExactReturns() {
+        return exactReturns;
+    }
+
+}
@@ -39,7 +39,7 @@ public class NoEnv implements CompilerEnvironment {
     }
 
     @Override
-    public short[] findVar(String name, Type[] type) {
+    public int[] findVar(String name, Type[] type) {
         return null;
     }
 
@@ -49,8 +49,8 @@ public class NoEnv implements CompilerEnvironment {
     }
 
     @Override
-    public short getAddress(String name) {
-        return (short)-1;
+    public int getAddress(String name) {
+        return -1;
     }
 
     @Override
@@ -59,7 +59,7 @@ public class NoEnv implements CompilerEnvironment {
     }
 
     @Override
-    public short alloc(String name, Type type, short modifiers) {
+    public int alloc(String name, Type type, short modifiers) {
         throw new HojoException();
     }
 
@@ -26,6 +26,9 @@ import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Operator;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.func.ArgumentPlan;
+import org.xodonex.hojo.lang.func.HojoFunction;
+import org.xodonex.hojo.lang.func.TailCall;
 import org.xodonex.hojo.lang.type.FunctionType;
 import org.xodonex.util.StringUtils;
 
@@ -40,6 +43,16 @@ public class ApplyExpr extends ArrayExpr {
     protected Expression func;
     protected Type typ;
     protected transient Type[] argTypes = null;
+    protected boolean tailCall = false;
+
+    // the argument plan for the function most recently applied, and the
+    // number of times the plan has been replaced
+    private transient volatile ArgumentPlan plan = null;
+    private transient volatile int planMisses = 0;
+
+    // the number of different functions for which an argument plan is
+    // created, before validateArgs() is used instead
+    private final static int MAX_PLAN_MISSES = 8;
 
     public ApplyExpr(Expression func, Expression[] exprs) {
         super(exprs);
@@ -71,6 +84,12 @@ public class ApplyExpr extends ArrayExpr {
         return argTypes;
     }
 
+    @Override
+    public Expression optimize(int level) {
+        func = func.optimize(level);
+        return super.optimize(level);
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         ApplyExpr result = (ApplyExpr)super.linkVars(env, maxLvl);
@@ -94,13 +113,86 @@ public class ApplyExpr extends ArrayExpr {
         Function f = HojoLib.toFunction(func.xeq(env));
         boolean isVoid = f.getReturnType() == Void.TYPE;
 
+        ArgumentPlan p = getPlan(f);
+        Object result;
+        if (tailCall && !isVoid && f instanceof HojoFunction) {
+            // let the invoking function perform the call
+            return new TailCall((HojoFunction)f, args(f, p, env));
+        }
+        else if (!isFixed() || (p != null && !p.isExact())) {
+            result = f.invoke(args(f, p, env));
+        }
+        else {
+            // use the entry point of the function matching the number of
+            // arguments
+            switch (exprs.length) {
+            case 0:
+                result = f.invoke0();
+                break;
+            case 1:
+                result = f.invoke1(exprs[0].xeq(env));
+                break;
+            case 2:
+                result = f.invoke2(exprs[0].xeq(env), exprs[1].xeq(env));
+                break;
+            default:
+                result = f.invoke3(exprs[0].xeq(env), exprs[1].xeq(env),
+                        exprs[2].xeq(env));
+            }
+        }
+        return isVoid ? null : result;
+    }
+
+    // evaluates the arguments and binds them to the parameters of f
+    private Object[] args(Function f, ArgumentPlan p, Environment env) {
+        if (p != null) {
+            return p.bind(exprs, env);
+        }
         Object[] args = new Object[exprs.length];
         for (int i = 0; i < exprs.length; i++) {
             args[i] = exprs[i].xeq(env);
         }
+        return f.validateArgs(args);
+    }
 
-        Object result = f.invoke(f.validateArgs(args));
-        return isVoid ? null : result;
+    /**
+     * Returns the plan for binding the arguments of this application to the
+     * parameters of the given function. The plan is cached for the most
+     * recently applied function.
+     *
+     * @param f
+     *            the function to be applied
+     * @return the argument plan, or <code>null</code> if
+     *         {@link Function#validateArgs(Object[])} should be used.
+     */
+    public ArgumentPlan getPlan(Function f) {
+        ArgumentPlan p = plan;
+        if (p != null && p.appliesTo(f)) {
+            return p;
+        }
+        else if (planMisses >= MAX_PLAN_MISSES) {
+            return null;
+        }
+        planMisses++;
+        plan = p = ArgumentPlan.create(f, exprs);
+        return p;
+    }
+
+    /**
+     * @return true if the application has at most 3 arguments, none of which
+     *         are missing, such that the fixed-arity entry points of
+     *         {@link Function} may be used.
+     */
+    public boolean isFixed() {
+        if (exprs.length > 3) {
+            return false;
+        }
+        for (int i = 0; i < exprs.length; i++) {
+            if (exprs[i] == Const.NO_ARG) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -125,4 +217,22 @@ public class ApplyExpr extends ArrayExpr {
         return result.append(stx.punctuators[PCT_IDX_RPAREN]).toString();
     }
 
+    public Expression getFunction() {
+        return func;
+    }
+
+    /**
+     * Indicates that this application is in tail position of a function body,
+     * such that the call can be performed by the invoking function.
+     *
+     * @see TailCall
+     */
+    public void setTailCall() {
+        tailCall = true;
+    }
+
+    public boolean isTailCall() {
+        return tailCall;
+    }
+
 }
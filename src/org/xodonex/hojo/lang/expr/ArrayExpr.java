@@ -81,4 +81,8 @@ public abstract class ArrayExpr extends Expression {
         }
     }
 
+    public Expression[] getExpressions() {
+        return exprs;
+    }
+
 }
@@ -38,11 +38,16 @@ public class AssignCompoundOp extends BinaryExpr {
     protected Function op;
     protected Type castType;
 
+    // type feedback, see TypeFeedback
+    private final int opIdx;
+    private transient volatile int kind;
+
     public AssignCompoundOp(Function op, Expression lhs, Expression rhs,
             Type castType) {
         super(lhs, rhs);
         this.op = op;
         this.castType = castType;
+        opIdx = TypeFeedback.indexOf(op);
     }
 
     @Override
@@ -54,7 +59,24 @@ public class AssignCompoundOp extends BinaryExpr {
 
         // retrieve the value of the lvalue, evaluate the rhs and perform the
         // operation.
-        Object v = op.invoke(new Object[] { lv.get(res), rhs.xeq(env) });
+        Object v1 = lv.get(res);
+        Object v2 = rhs.xeq(env);
+        Object v;
+        int k = kind;
+        if (k != TypeFeedback.GENERIC && TypeFeedback.kindOf(v1, v2) == k) {
+            v = TypeFeedback.binary(opIdx, k, v1, v2);
+        }
+        else {
+            if (k == TypeFeedback.UNKNOWN) {
+                k = TypeFeedback.kindOf(v1, v2);
+                kind = TypeFeedback.isSpecialized(opIdx, k) ? k
+                        : TypeFeedback.GENERIC;
+            }
+            else {
+                kind = TypeFeedback.GENERIC;
+            }
+            v = op.invoke2(v1, v2);
+        }
 
         // cast the value, if necessary
         if (castType != null) {
@@ -85,4 +107,12 @@ public class AssignCompoundOp extends BinaryExpr {
         return toString(op, stx, fmt) + stx.operators[OP_IDX_ASSIGN];
     }
 
+    public Function getOperator() {
+        return op;
+    }
+
+    public Type getCastType() {
+        return castType;
+    }
+
 }
@@ -34,16 +34,39 @@ public class AssignOp extends BinaryExpr {
 
     private static final long serialVersionUID = 1L;
 
+    // whether the assigned value is known to conform to the type of the
+    // variable
+    private final boolean exact;
+
     public AssignOp(Expression lhs, Expression rhs) {
         super(lhs, rhs);
+        exact = rhs.conformsTo(lhs.getType());
     }
 
     @Override
     public Object xeq(Environment env) throws HojoException {
+        if (exact && lhs instanceof VarExpr) {
+            VarExpr v = (VarExpr)lhs;
+            return v.assign(v.resolve(env), rhs.xeq(env));
+        }
+
         LValue lv = (LValue)lhs;
         return lv.set(lv.resolve(env), rhs.xeq(env));
     }
 
+    @Override
+    public boolean conformsTo(Type t) {
+        return rhs.conformsTo(t);
+    }
+
+    /**
+     * @return whether the assigned value is known to conform to the type of
+     *         the variable, such that it need not be converted.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
     @Override
     public Class getTypeC() {
         return lhs.getTypeC();
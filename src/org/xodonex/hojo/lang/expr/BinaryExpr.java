@@ -77,4 +77,12 @@ public abstract class BinaryExpr extends Expression {
 
     protected abstract String toString(HojoSyntax stx, StringUtils.Format fmt);
 
+    public Expression getLhs() {
+        return lhs;
+    }
+
+    public Expression getRhs() {
+        return rhs;
+    }
+
 }
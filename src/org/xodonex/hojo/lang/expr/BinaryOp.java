@@ -21,11 +21,13 @@ package org.xodonex.hojo.lang.expr;
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Operator;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -38,15 +40,175 @@ public class BinaryOp extends BinaryExpr {
 
     protected Function op;
 
+    // type feedback, see TypeFeedback
+    private final int opIdx;
+    private transient volatile int kind;
+
+    // the kind of the operands, if the specialized operation is known
+    // statically to apply and to yield a value of the result type
+    private final int staticKind;
+
+    // the slot caching the value, if the expression is loop invariant, cf.
+    // LoopInvariant.hoist()
+    LoopInvariant invariant = null;
+
     public BinaryOp(Function op, Expression lhs, Expression rhs) {
         super(lhs, rhs);
         this.op = op;
+        opIdx = TypeFeedback.indexOf(op);
+
+        int k = TypeFeedback.staticKindOf(lhs, rhs);
+        staticKind = (TypeFeedback.isSpecialized(opIdx, k)
+                && TypecastExpr.isIdentity(getType(),
+                        HojoLib.typeOf(TypeFeedback.resultClass(opIdx, k))))
+                                ? k
+                                : TypeFeedback.UNKNOWN;
     }
 
     @Override
     public Object xeq(Environment env) throws HojoException {
-        return getType().typeCast(
-                op.invoke(new Object[] { lhs.xeq(env), rhs.xeq(env) }));
+        LoopInvariant inv = invariant;
+        if (inv == null) {
+            return eval(env);
+        }
+
+        Object v = inv.lookup(env);
+        if (v == null) {
+            inv.store(env, this, v = eval(env));
+        }
+        return v;
+    }
+
+    private Object eval(Environment env) throws HojoException {
+        Object v1 = lhs.xeq(env);
+        Object v2 = rhs.xeq(env);
+
+        if (staticKind != TypeFeedback.UNKNOWN) {
+            // neither a guard nor a conversion is needed
+            return TypeFeedback.binary(opIdx, staticKind, v1, v2);
+        }
+
+        int k = kind;
+        if (k == TypeFeedback.GENERIC) {
+            return getType().typeCast(op.invoke2(v1, v2));
+        }
+        else if (TypeFeedback.kindOf(v1, v2) == k) {
+            return TypeFeedback.binary(opIdx, k, v1, v2);
+        }
+        else {
+            return specialize(v1, v2);
+        }
+    }
+
+    private Object specialize(Object v1, Object v2) throws HojoException {
+        int k = TypeFeedback.kindOf(v1, v2);
+        Object result = op.invoke2(v1, v2);
+        Object cast = getType().typeCast(result);
+
+        // the specialized operation is used only if the result needs no cast,
+        // and only until the first guard failure.
+        kind = (kind == TypeFeedback.UNKNOWN && cast == result &&
+                TypeFeedback.isSpecialized(opIdx, k)) ? k
+                        : TypeFeedback.GENERIC;
+        return cast;
+    }
+
+    @Override
+    public Expression optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && ConstantFolder.isPure(op) &&
+                ConstantFolder.isImmutableConst(lhs) &&
+                ConstantFolder.isImmutableConst(rhs)) {
+            return ConstantFolder.fold(this);
+        }
+        if (level >= 2) {
+            // x * 1, 1 * x, x / 1, x + 0, 0 + x and x - 0 equal x, if the
+            // value of x is primitive and keeps its type.
+            switch (opIdx) {
+            case OP_IDX_MUL:
+                if (isIdentity(lhs, rhs, 1)) {
+                    return lhs;
+                }
+                else if (isIdentity(rhs, lhs, 1)) {
+                    return rhs;
+                }
+                break;
+            case OP_IDX_DIV:
+                if (isIdentity(lhs, rhs, 1)) {
+                    return lhs;
+                }
+                break;
+            case OP_IDX_ADD:
+                // -0.0 + 0 is not -0.0
+                if (ReflectUtils.unwrap(getTypeC()) == double.class) {
+                    break;
+                }
+                if (isIdentity(lhs, rhs, 0)) {
+                    return lhs;
+                }
+                else if (isIdentity(rhs, lhs, 0)) {
+                    return rhs;
+                }
+                break;
+            case OP_IDX_SUB:
+                if (isIdentity(lhs, rhs, 0)) {
+                    return lhs;
+                }
+                break;
+            }
+
+            // x ** 2 equals x * x, if x is a double variable. The variable
+            // is read twice instead of calling Math.pow().
+            if (op == HojoLib.getOperator(OP_IDX_POW) &&
+                    lhs instanceof VarExpr &&
+                    lhs.getTypeC() == double.class &&
+                    ReflectUtils.unwrap(getTypeC()) == double.class &&
+                    isConst(rhs, 2)) {
+                return new BinaryOp(HojoLib.getOperator(OP_IDX_MUL), lhs, lhs);
+            }
+        }
+        return this;
+    }
+
+    // determine whether x op c == x
+    private boolean isIdentity(Expression x, Expression c, int value) {
+        if (!(c instanceof Const)) {
+            return false;
+        }
+
+        // x must have a non-null value of the result type. This holds for
+        // primitive types and for the (boxed) result of an arithmetic
+        // operator.
+        Class cls = ReflectUtils.unwrap(getTypeC());
+        Class xcls = x.getTypeC();
+        if ((cls != int.class && cls != long.class && cls != double.class) ||
+                (xcls != cls && !(xcls == ReflectUtils.wrap(cls) &&
+                        x instanceof BinaryOp && ((BinaryOp)x).opIdx >= 0))) {
+            return false;
+        }
+        return isConst(c, value);
+    }
+
+    // determine whether c is a numeric constant of the given value
+    private static boolean isConst(Expression c, int value) {
+        if (!(c instanceof Const)) {
+            return false;
+        }
+        Object v = ((Const)c).getValue();
+        Class vc = v == null ? null : v.getClass();
+        return (vc == Integer.class || vc == Long.class ||
+                vc == Double.class) &&
+                ((Number)v).doubleValue() == value;
+    }
+
+    @Override
+    public boolean conformsTo(Type t) {
+        // the result is converted, unless the specialized operation applies,
+        // which yields a non-null result
+        return (staticKind != TypeFeedback.UNKNOWN)
+                ? TypecastExpr.isIdentity(t, HojoLib
+                        .typeOf(TypeFeedback.resultClass(opIdx, staticKind)))
+                : TypecastExpr.isIdentity(t, getType());
     }
 
     @Override
@@ -66,4 +228,8 @@ public class BinaryOp extends BinaryExpr {
         return toString(op, stx, fmt);
     }
 
+    public Function getOperator() {
+        return op;
+    }
+
 }
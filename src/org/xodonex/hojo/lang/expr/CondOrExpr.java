@@ -21,6 +21,7 @@ package org.xodonex.hojo.lang.expr;
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
@@ -46,6 +47,23 @@ public class CondOrExpr extends BinaryExpr {
                         : Boolean.FALSE;
     }
 
+    @Override
+    public Expression optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && ConstantFolder.isImmutableConst(lhs)) {
+            if (ConvertUtils.toBool(((Const)lhs).getValue())) {
+                return Const.TRUE;
+            }
+            else if (rhs.getTypeC() == boolean.class) {
+                return rhs;
+            }
+            else if (ConstantFolder.isImmutableConst(rhs)) {
+                return ConstantFolder.fold(this);
+            }
+        }
+        return this;
+    }
+
     @Override
     public Class getTypeC() {
         return Boolean.class;
@@ -0,0 +1,98 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.expr;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.xodonex.hojo.HojoConst;
+import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Function;
+
+/**
+ * Support for the constant folding done by
+ * {@link Expression#optimize(int)}. An expression is folded only if it
+ * applies a side-effect free built-in operator to immutable constant values,
+ * and only if its evaluation succeeds and results in an immutable value;
+ * otherwise any error is left to be reported at run time.
+ *
+ * @author Henrik Lauritzen
+ */
+final class ConstantFolder implements HojoConst {
+
+    // the built-in operators which have no side effects on immutable operands
+    private final static int[] PURE = { OP_IDX_NEG, OP_IDX_NOT, OP_IDX_LNOT,
+            OP_IDX_ABS, OP_IDX_POW, OP_IDX_MUL, OP_IDX_DIV, OP_IDX_MOD,
+            OP_IDX_ADD, OP_IDX_SUB, OP_IDX_SHL, OP_IDX_SHR, OP_IDX_SHRA,
+            OP_IDX_LT, OP_IDX_LE, OP_IDX_GE, OP_IDX_GT, OP_IDX_MIN,
+            OP_IDX_MAX, OP_IDX_EQ, OP_IDX_NE, OP_IDX_AND, OP_IDX_OR,
+            OP_IDX_XOR };
+
+    private ConstantFolder() {
+    }
+
+    public static boolean isPure(Function op) {
+        for (int i = 0; i < PURE.length; i++) {
+            if (op == HojoLib.getOperator(PURE[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isImmutable(Object o) {
+        if (o == null) {
+            return true;
+        }
+        Class c = o.getClass();
+        return c == String.class || c == Boolean.class ||
+                c == Character.class || c == Integer.class ||
+                c == Long.class || c == Double.class || c == Float.class ||
+                c == Short.class || c == Byte.class ||
+                c == BigInteger.class || c == BigDecimal.class;
+    }
+
+    /**
+     * @return whether the expression is a constant with an immutable value.
+     */
+    public static boolean isImmutableConst(Expression e) {
+        return e instanceof Const && isImmutable(((Const)e).getValue());
+    }
+
+    /**
+     * Evaluates an expression whose operands are immutable constants.
+     *
+     * @return a {@link Const} holding the value of <code>e</code>, or
+     *         <code>e</code> itself if the evaluation fails or the value is
+     *         mutable.
+     */
+    public static Expression fold(Expression e) {
+        Object value;
+        try {
+            value = e.xeq(null);
+        }
+        catch (Throwable t) {
+            return e;
+        }
+        return isImmutable(value) ? new Const(value, e.getType()) : e;
+    }
+
+}
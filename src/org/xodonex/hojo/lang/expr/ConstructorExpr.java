@@ -18,6 +18,9 @@
 */
 package org.xodonex.hojo.lang.expr;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 
 import org.xodonex.hojo.HojoException;
@@ -38,10 +41,19 @@ public class ConstructorExpr extends ArrayExpr {
     private static final long serialVersionUID = 1L;
 
     protected Constructor constr;
+    protected transient MethodHandle invoker;
 
     public ConstructorExpr(Constructor constr, Expression[] args) {
         super(args);
         this.constr = constr;
+        invoker = ReflectUtils.getInvoker(constr);
+    }
+
+    // the method handle is not serialized
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        invoker = ReflectUtils.getInvoker(constr);
     }
 
     @Override
@@ -51,10 +63,10 @@ public class ConstructorExpr extends ArrayExpr {
             args[i] = exprs[i] == null ? null : exprs[i].xeq(env);
         }
         try {
-            return constr.newInstance(args);
+            return (Object)invoker.invokeExact(args);
         }
-        catch (Exception e) {
-            throw new HojoException(e);
+        catch (Throwable t) {
+            throw new HojoException(t);
         }
     }
 
@@ -38,25 +38,29 @@ public class DelayedConstructorExpr extends ArrayExpr {
     private static final long serialVersionUID = 1L;
 
     protected Class base;
+    protected InlineCache cache;
 
     public DelayedConstructorExpr(Class base, Expression[] args) {
         super(args);
         this.base = base;
+        cache = new InlineCache();
     }
 
     @Override
     public Object xeq(Environment env) {
         Object[] args = new Object[exprs.length];
-        Class[] types = new Class[exprs.length];
         for (int i = 0; i < exprs.length; i++) {
             if (exprs[i] != null) {
-                types[i] = (((args[i] = exprs[i].xeq(env)) == null) ? null
-                        : args[i].getClass());
+                args[i] = exprs[i].xeq(env);
             }
         }
         try {
-            Constructor constr = ReflectUtils.getMatchingConstructor(base,
-                    types);
+            Constructor constr = (Constructor)cache.find(base, args);
+            if (constr == null) {
+                constr = ReflectUtils.getMatchingConstructor(base,
+                        ReflectUtils.getTypeList(args));
+                cache.add(base, args, constr);
+            }
             return constr.newInstance(args);
         }
         catch (Exception e) {
@@ -25,6 +25,7 @@ import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.util.StringUtils;
 
@@ -38,17 +39,24 @@ public class DelayedFieldExpr extends Expression {
 
     protected Expression base;
     protected String name;
+    protected InlineCache cache;
 
     public DelayedFieldExpr(Expression base, String name) {
         this.base = base;
         this.name = name;
+        cache = new InlineCache();
     }
 
     @Override
     public Object xeq(Environment env) {
         Object b = base.xeq(env);
         try {
-            Field f = b.getClass().getField(name);
+            Class c = b.getClass();
+            Field f = (Field)cache.find(c, Function.UNIT);
+            if (f == null) {
+                f = c.getField(name);
+                cache.add(c, Function.UNIT, f);
+            }
             return f.get(b);
         }
         catch (Exception e) {
@@ -56,11 +64,19 @@ public class DelayedFieldExpr extends Expression {
         }
     }
 
+    @Override
+    public Expression optimize(int level) {
+        base = base.optimize(level);
+        return this;
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         Expression base_ = base.linkVars(env, maxLvl);
         if (base_ != base) {
-            return new DelayedFieldExpr(base_, name);
+            DelayedFieldExpr result = (DelayedFieldExpr)clone();
+            result.base = base_;
+            return result;
         }
         else {
             return this;
@@ -39,29 +39,34 @@ public class DelayedInvokeExpr extends ArrayExpr {
 
     protected Expression base;
     protected String name;
+    protected InlineCache cache;
 
     public DelayedInvokeExpr(Expression base, String name, Expression[] args) {
         super(args);
         this.base = base;
         this.name = name;
+        cache = new InlineCache();
     }
 
     @Override
     public Object xeq(Environment env) {
         Object obj = base.xeq(env);
         Object[] args = new Object[exprs.length];
-        Class[] types = new Class[exprs.length];
 
         for (int i = 0; i < exprs.length; i++) {
             if (exprs[i] != null) {
-                types[i] = ((args[i] = exprs[i].xeq(env)) == null) ? null
-                        : args[i].getClass();
+                args[i] = exprs[i].xeq(env);
             }
         }
 
         try {
-            Method m = ReflectUtils.getMatchingMethod(obj.getClass(), name,
-                    types);
+            Class c = obj.getClass();
+            Method m = (Method)cache.find(c, args);
+            if (m == null) {
+                m = ReflectUtils.getMatchingMethod(c, name,
+                        ReflectUtils.getTypeList(args));
+                cache.add(c, args, m);
+            }
             Object result = m.invoke(obj, args);
             return (m.getReturnType() == Void.TYPE) ? null : result;
         }
@@ -70,6 +75,12 @@ public class DelayedInvokeExpr extends ArrayExpr {
         }
     }
 
+    @Override
+    public Expression optimize(int level) {
+        base = base.optimize(level);
+        return super.optimize(level);
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         DelayedInvokeExpr result = (DelayedInvokeExpr)super.linkVars(env,
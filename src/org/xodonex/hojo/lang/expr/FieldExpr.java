@@ -18,12 +18,16 @@
 */
 package org.xodonex.hojo.lang.expr;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.LValue;
+import org.xodonex.util.ReflectUtils;
 
 /**
  *
@@ -33,8 +37,18 @@ public class FieldExpr extends FinalFieldExpr implements LValue {
 
     private static final long serialVersionUID = 1L;
 
+    protected transient MethodHandle setter;
+
     public FieldExpr(Expression base, Field f) {
         super(base, f);
+        setter = ReflectUtils.getSetter(f);
+    }
+
+    // the method handle is not serialized
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        setter = ReflectUtils.getSetter(f);
     }
 
     @Override
@@ -45,21 +59,21 @@ public class FieldExpr extends FinalFieldExpr implements LValue {
     @Override
     public Object get(Object resolvent) {
         try {
-            return f.get(resolvent);
+            return (Object)getter.invokeExact(resolvent);
         }
-        catch (Exception e) {
-            throw HojoException.wrap(e);
+        catch (Throwable t) {
+            throw HojoException.wrap(t);
         }
     }
 
     @Override
     public Object set(Object resolvent, Object value) {
         try {
-            f.set(resolvent, value);
+            setter.invokeExact(resolvent, value);
             return value;
         }
-        catch (Exception e) {
-            throw HojoException.wrap(e);
+        catch (Throwable t) {
+            throw HojoException.wrap(t);
         }
     }
 
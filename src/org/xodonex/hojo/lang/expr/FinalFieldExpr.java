@@ -18,6 +18,9 @@
 */
 package org.xodonex.hojo.lang.expr;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 import org.xodonex.hojo.HojoException;
@@ -26,6 +29,7 @@ import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -38,23 +42,38 @@ public class FinalFieldExpr extends Expression {
 
     protected Expression base;
     protected Field f;
+    protected transient MethodHandle getter;
 
     public FinalFieldExpr(Expression base, Field f) {
         this.base = base;
         this.f = f;
+        getter = ReflectUtils.getGetter(f);
+    }
+
+    // the method handle is not serialized
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        getter = ReflectUtils.getGetter(f);
     }
 
     @Override
     public Object xeq(Environment env) {
         Object b = base.xeq(env);
         try {
-            return f.get(b);
+            return (Object)getter.invokeExact(b);
         }
-        catch (Exception e) {
-            throw new HojoException(e);
+        catch (Throwable t) {
+            throw new HojoException(t);
         }
     }
 
+    @Override
+    public Expression optimize(int level) {
+        base = base.optimize(level);
+        return this;
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         Expression base_ = base.linkVars(env, maxLvl);
@@ -25,8 +25,8 @@ import org.xodonex.hojo.lang.AbstractLValue;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.HObject;
+import org.xodonex.hojo.lang.Shape;
 import org.xodonex.hojo.lang.Type;
-import org.xodonex.hojo.lang.Variable;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -40,25 +40,33 @@ public class HClassMemberExpr extends AbstractLValue {
     protected String name;
     protected Expression arg;
 
+    // the slot of the member in the shape of the most recently accessed object
+    private transient volatile Slot slot = null;
+
     public HClassMemberExpr(Expression dobj, String name) {
         super();
         this.name = name;
         this.arg = dobj;
     }
 
-    protected Variable getVar(Environment env) {
-        HObject base = (HObject)arg.xeq(env);
-        try {
-            return base.get(name);
-        }
-        catch (NoSuchFieldException e) {
-            throw HojoException.wrap(e);
+    // returns the slot of the member in the given object
+    private int slotOf(HObject base) {
+        Shape shape = base.getShape();
+        Slot s = slot;
+        if (s == null || s.shape != shape) {
+            int index = shape.indexOf(name);
+            if (index < 0) {
+                throw HojoException.wrap(new NoSuchFieldException(name));
+            }
+            slot = s = new Slot(shape, index);
         }
+        return s.index;
     }
 
     @Override
     public Object xeq(Environment env) {
-        return getVar(env).getValue();
+        HObject base = (HObject)arg.xeq(env);
+        return base.getValue(slotOf(base));
     }
 
     @Override
@@ -75,17 +83,19 @@ public class HClassMemberExpr extends AbstractLValue {
 
     @Override
     public Object resolve(Environment env) throws HojoException {
-        return getVar(env);
+        return arg.xeq(env);
     }
 
     @Override
     public Object get(Object resolvent) throws HojoException {
-        return ((Variable)resolvent).getValue();
+        HObject base = (HObject)resolvent;
+        return base.getValue(slotOf(base));
     }
 
     @Override
     public Object set(Object resolvent, Object value) throws HojoException {
-        return ((Variable)resolvent).set(null, value);
+        HObject base = (HObject)resolvent;
+        return base.setValue(slotOf(base), value);
     }
 
     @Override
@@ -103,4 +113,15 @@ public class HClassMemberExpr extends AbstractLValue {
     protected String toString(HojoSyntax stx) {
         return null; // not used;
     }
+
+    // a member slot resolved for a shape
+    private final static class Slot {
+        final Shape shape;
+        final int index;
+
+        Slot(Shape shape, int index) {
+            this.shape = shape;
+            this.index = index;
+        }
+    }
 }
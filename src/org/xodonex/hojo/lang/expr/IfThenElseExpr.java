@@ -19,9 +19,11 @@
 package org.xodonex.hojo.lang.expr;
 
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.func.TailCall;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.StringUtils;
 
@@ -33,17 +35,52 @@ public class IfThenElseExpr extends TernaryExpr {
 
     private static final long serialVersionUID = 1L;
 
+    // whether the values of both alternatives conform to the type
+    private final boolean exact;
+
     public IfThenElseExpr(Expression e1, Expression e2, Expression e3) {
         super(e1, e2, e3);
 
         // enforce a type check
-        getType();
+        Type t = getType();
+        exact = e2.conformsTo(t) && e3.conformsTo(t);
     }
 
     @Override
     public Object xeq(Environment env) {
-        return getType().typeCast(
-                ConvertUtils.toBool(e1.xeq(env)) ? e2.xeq(env) : e3.xeq(env));
+        Object result = ConvertUtils.toBool(e1.xeq(env)) ? e2.xeq(env)
+                : e3.xeq(env);
+
+        // a call in tail position is converted by the called function
+        return (exact || result instanceof TailCall) ? result
+                : getType().typeCast(result);
+    }
+
+    @Override
+    public boolean conformsTo(Type t) {
+        return (e2.conformsTo(t) && e3.conformsTo(t))
+                || TypecastExpr.isIdentity(t, getType());
+    }
+
+    /**
+     * @return whether the values of both alternatives are known to conform to
+     *         the type of this expression, such that they are not converted.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    @Override
+    public Expression optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && ConstantFolder.isImmutableConst(e1)) {
+            Expression e = ConvertUtils.toBool(((Const)e1).getValue()) ? e2
+                    : e3;
+            // a call in tail position needs no conversion, cf. TailCall.mark()
+            return (e instanceof ApplyExpr && ((ApplyExpr)e).isTailCall()) ? e
+                    : TypecastExpr.mkTypecast(getType(), e);
+        }
+        return this;
     }
 
     @Override
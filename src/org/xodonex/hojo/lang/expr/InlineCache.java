@@ -0,0 +1,112 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.expr;
+
+/**
+ * A polymorphic inline cache for the Java members resolved at run time by a
+ * call site, such as {@link DelayedInvokeExpr}. The cache maps the receiver
+ * class and the argument classes of an evaluation to the resolved member.
+ * When a call site has seen more than {@link #POLYMORPHIC_LIMIT} different
+ * combinations, it becomes megamorphic and stops caching; lookups then rely on
+ * the resolution cache of {@link org.xodonex.util.ReflectUtils}.
+ *
+ * @author Henrik Lauritzen
+ */
+final class InlineCache implements java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximal number of type combinations cached by a single call site.
+     */
+    public final static int POLYMORPHIC_LIMIT = 4;
+
+    // alternating Class[] keys and resolved members. The array is never
+    // modified, only replaced.
+    private transient volatile Object[] entries;
+    private transient volatile boolean megamorphic;
+
+    public InlineCache() {
+    }
+
+    /**
+     * Looks up the member for the given receiver class and argument values.
+     *
+     * @return the cached member, or <code>null</code> if it is not cached.
+     */
+    public Object find(Class receiver, Object[] args) {
+        Object[] es = entries;
+        if (es == null) {
+            return null;
+        }
+
+        loop: for (int i = 0; i < es.length; i += 2) {
+            Class[] key = (Class[])es[i];
+            if (key[0] != receiver) {
+                continue;
+            }
+            for (int j = 0; j < args.length; j++) {
+                Object a = args[j];
+                if (key[j + 1] != (a == null ? null : a.getClass())) {
+                    continue loop;
+                }
+            }
+            return es[i + 1];
+        }
+
+        return null;
+    }
+
+    /**
+     * Records the member resolved for the given receiver class and argument
+     * values.
+     */
+    public void add(Class receiver, Object[] args, Object member) {
+        if (megamorphic) {
+            return;
+        }
+
+        Object[] es = entries;
+        int n = (es == null) ? 0 : es.length;
+        if (n < 2 * POLYMORPHIC_LIMIT) {
+            Object[] es_ = new Object[n + 2];
+            if (n > 0) {
+                System.arraycopy(es, 0, es_, 0, n);
+            }
+            es_[n] = getKey(receiver, args);
+            es_[n + 1] = member;
+            entries = es_;
+        }
+        else {
+            // too many types - stop caching at this site
+            megamorphic = true;
+            entries = null;
+        }
+    }
+
+    private static Class[] getKey(Class receiver, Object[] args) {
+        Class[] key = new Class[args.length + 1];
+        key[0] = receiver;
+        for (int i = 0; i < args.length; i++) {
+            key[i + 1] = (args[i] == null) ? null : args[i].getClass();
+        }
+        return key;
+    }
+
+}
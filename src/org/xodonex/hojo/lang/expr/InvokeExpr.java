@@ -18,7 +18,11 @@
 */
 package org.xodonex.hojo.lang.expr;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
@@ -39,30 +43,51 @@ public class InvokeExpr extends ArrayExpr {
 
     protected Expression base;
     protected Method m;
+    // (receiver, arguments...) or (arguments...), see ReflectUtils.getInvoker()
+    protected transient MethodHandle invoker;
+    protected boolean isStatic;
 
     public InvokeExpr(Expression base, Method m, Expression[] args) {
         super(args);
         this.base = base;
         this.m = m;
+        invoker = ReflectUtils.getInvoker(m);
+        isStatic = (m.getModifiers() & Modifier.STATIC) != 0;
+    }
+
+    // the method handle is not serialized
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        invoker = ReflectUtils.getInvoker(m);
     }
 
     @Override
     public Object xeq(Environment env) {
         Object obj = base == null ? null : base.xeq(env);
-        Object[] args = new Object[exprs.length];
+        int offs = isStatic ? 0 : 1;
+        Object[] args = new Object[exprs.length + offs];
+        if (offs > 0) {
+            args[0] = obj;
+        }
         for (int i = 0; i < exprs.length; i++) {
-            args[i] = exprs[i] == null ? null : exprs[i].xeq(env);
+            args[i + offs] = exprs[i] == null ? null : exprs[i].xeq(env);
         }
 
         try {
-            Object result = m.invoke(obj, args);
-            return (m.getReturnType() == Void.TYPE) ? null : result;
+            return (Object)invoker.invokeExact(args);
         }
-        catch (Exception e) {
-            throw HojoException.wrap(e, this);
+        catch (Throwable t) {
+            throw HojoException.wrap(t, this);
         }
     }
 
+    @Override
+    public Expression optimize(int level) {
+        base = base == null ? null : base.optimize(level);
+        return super.optimize(level);
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         InvokeExpr result = (InvokeExpr)super.linkVars(env, maxLvl);
@@ -24,8 +24,9 @@ import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Type;
-import org.xodonex.hojo.lang.env.DummyEnv;
+import org.xodonex.hojo.lang.func.FunctionProfile;
 import org.xodonex.hojo.lang.func.HojoFunction;
+import org.xodonex.hojo.lang.func.TailCall;
 import org.xodonex.hojo.lang.type.GenericFunctionType;
 import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
@@ -44,40 +45,72 @@ public class LambdaExpr extends Expression {
     protected String extraName;
     protected Expression body;
     protected short size;
-    protected short level;
+    protected Expression[] captures; // relative to the defining environment
+    protected short[] captureSlots;
+    protected FunctionProfile profile; // shared by the created functions
 
     public LambdaExpr(String[] names, Class[] types, Object[] defaults,
-            String extraName, Expression body, short size, short level) {
+            String extraName, Expression body, short size,
+            Expression[] captures, short[] captureSlots,
+            FunctionProfile profile) {
         this.names = names;
         this.types = types;
         this.defaults = defaults;
         this.extraName = extraName;
         this.body = body;
         this.size = size;
-        this.level = level;
+        this.captures = captures;
+        this.captureSlots = captureSlots;
+        this.profile = profile;
+        TailCall.mark(body, null);
     }
 
     @Override
     public Object xeq(Environment env) {
+        // the body refers to outer variables only through the captured
+        // variables, so it is shared by all the created closures
         return new HojoFunction(names, types, defaults, extraName, null,
-                body.linkVars(new DummyEnv(env), level), size);
+                body, size, captureSlots, HojoFunction.capture(captures, env),
+                profile);
+    }
+
+    @Override
+    public Expression optimize(int level) {
+        body = body.optimize(level);
+        return this;
     }
 
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
-        Expression body_ = body.linkVars(new DummyEnv(env), maxLvl);
-        if (body_ != body) {
-            return new LambdaExpr(names, types, defaults, extraName, body_,
-                    size, level);
+        if (captures == null) {
+            return this;
         }
-        else {
+
+        Expression[] captures_ = null;
+        for (int i = 0; i < captures.length; i++) {
+            Expression c = captures[i].linkVars(env, maxLvl);
+            if (c != captures[i]) {
+                if (captures_ == null) {
+                    captures_ = captures.clone();
+                }
+                captures_[i] = c;
+            }
+        }
+
+        if (captures_ == null) {
             return this;
         }
+        else {
+            LambdaExpr result = (LambdaExpr)clone();
+            result.captures = captures_;
+            return result;
+        }
     }
 
     @Override
     protected Type getType0() {
-        return new GenericFunctionType(Function.class, types, body.getTypeC());
+        return GenericFunctionType.getInstance(Function.class, types,
+                body.getTypeC());
     }
 
     @Override
@@ -27,7 +27,7 @@ import org.xodonex.hojo.lang.env.DummyEnv;
 import org.xodonex.hojo.lang.env.Env;
 import org.xodonex.hojo.lang.stm.BlockStatement;
 import org.xodonex.hojo.lang.stm.NOP;
-import org.xodonex.hojo.util.ReturnException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -73,11 +73,9 @@ public class LetExpr extends Expression {
     @Override
     public Object xeq(Environment env) {
         Env env2 = new Env(env, size);
-        try {
-            block.xeq(env2);
-        }
-        catch (ReturnException e) {
-            return retType.typeCast(e.getValue());
+        Object result = block.xeq(env2);
+        if (result instanceof Completion) {
+            return retType.typeCast(((Completion)result).getValue());
         }
         return null; // return without value
     }
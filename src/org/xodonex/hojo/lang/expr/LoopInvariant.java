@@ -0,0 +1,487 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.expr;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Environment;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lang.Variable;
+import org.xodonex.hojo.lang.env.Env;
+import org.xodonex.hojo.lang.stm.BlockEnvStatement;
+import org.xodonex.hojo.lang.stm.BlockStatement;
+import org.xodonex.hojo.lang.stm.BreakStm;
+import org.xodonex.hojo.lang.stm.ContinueStm;
+import org.xodonex.hojo.lang.stm.ExprBlockStm;
+import org.xodonex.hojo.lang.stm.ExprStm;
+import org.xodonex.hojo.lang.stm.ForSeqStm;
+import org.xodonex.hojo.lang.stm.ForStm;
+import org.xodonex.hojo.lang.stm.IfStm;
+import org.xodonex.hojo.lang.stm.NOP;
+import org.xodonex.hojo.lang.stm.ReturnStm;
+import org.xodonex.hojo.lang.stm.VarDeclStm;
+import org.xodonex.util.ReflectUtils;
+
+/**
+ * The location of a loop-invariant expression, whose value is cached in a
+ * temporary slot of the frame of the enclosing <code>for</code> loop. The
+ * first evaluation in an execution of the loop stores the value, and later
+ * evaluations read it. Structurally equal invariant expressions of a loop
+ * share a slot, such that the common subexpression is evaluated only once.
+ * <p>
+ * An expression is invariant if it applies side-effect free built-in
+ * operators (and conversions to value types) to immutable constants and to
+ * local variables of value types, which the loop does not assign. A value is
+ * cached only if all these variables are unboxed slots of ordinary frames,
+ * as a boxed variable may also be assigned by a closure called from the loop;
+ * otherwise, and if the value is mutable, the expression is evaluated each
+ * time. As the value is computed when the expression is first evaluated, any
+ * error is reported at the same point as without the cache.
+ *
+ * @author Henrik Lauritzen
+ */
+public final class LoopInvariant implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // stored in the slot of an expression whose value cannot be cached
+    private final static Object NONE = new Object();
+
+    private final short frames; // frames between the expression and the loop
+    private final short slot; // the temporary slot in the loop frame
+
+    private LoopInvariant(int frames, int slot) {
+        this.frames = (short)frames;
+        this.slot = (short)slot;
+    }
+
+    /**
+     * @return the cached value of the expression, or <code>null</code> if it
+     *         must be evaluated.
+     */
+    Object lookup(Environment env) {
+        Env loop = loopFrame(env);
+        if (loop == null) {
+            return null;
+        }
+        Object v = loop.getTemp(slot);
+        return (v == NONE) ? null : v;
+    }
+
+    /**
+     * Caches the value of the expression <code>e</code>, which has been
+     * evaluated in the given environment.
+     */
+    void store(Environment env, Expression e, Object value) {
+        Env loop = loopFrame(env);
+        if (loop != null && loop.getTemp(slot) == null) {
+            loop.setTemp(slot, (value != null &&
+                    ConstantFolder.isImmutable(value) && isCacheable(e, env))
+                            ? value
+                            : NONE);
+        }
+    }
+
+    private Env loopFrame(Environment env) {
+        Environment e = Env.getEnclosing(env, frames);
+        return (e.getClass() == Env.class) ? (Env)e : null;
+    }
+
+    // determine whether the variables of e are unboxed local variables
+    private static boolean isCacheable(Expression e, Environment env) {
+        if (e instanceof VarExpr) {
+            VarExpr v = (VarExpr)e;
+            Environment f = Env.getEnclosing(env, v.getDepth());
+            return f.getClass() == Env.class &&
+                    !((Env)f).isBoxed(v.getAddress());
+        }
+        else if (e instanceof BinaryExpr) {
+            BinaryExpr b = (BinaryExpr)e;
+            return isCacheable(b.lhs, env) && isCacheable(b.rhs, env);
+        }
+        else if (e instanceof UnaryExpr) {
+            return isCacheable(((UnaryExpr)e).arg, env);
+        }
+        else {
+            return true;
+        }
+    }
+
+    /**
+     * Marks the largest loop-invariant expressions of a <code>for</code>
+     * loop. This is done only if the loop declares no functions or classes,
+     * and consists of statements and expressions whose effect on the local
+     * variables is known.
+     *
+     * @param cond
+     *            the loop condition, or <code>null</code>.
+     * @param update
+     *            the update statement, or <code>null</code>.
+     * @param body
+     *            the loop body.
+     * @param variables
+     *            the addresses of any variables of the loop frame which the
+     *            loop itself assigns on each iteration, or <code>null</code>.
+     * @param base
+     *            the address of the first temporary slot of the loop frame.
+     * @return the number of temporary slots used, which must be added to the
+     *         size of the loop frame.
+     */
+    public static int hoist(Expression cond, Statement update,
+            Statement[] body, int[] variables, int base) {
+        Hoister h = new Hoister(base);
+        if (variables != null) {
+            for (int i = 0; i < variables.length; i++) {
+                h.assigned.add(key(0, variables[i]));
+            }
+        }
+
+        // find the assigned variables, then mark the invariants
+        h.loop(cond, update, body);
+        if (!h.supported) {
+            return 0;
+        }
+        h.marking = true;
+        h.loop(cond, update, body);
+        return h.invariants.size();
+    }
+
+    private static Long key(int frame, int addr) {
+        return Long.valueOf(((long)frame << 32) | (addr & 0xffffffffL));
+    }
+
+    // determine whether the class is the type of an immutable value
+    private static boolean isValue(Class c) {
+        Class u = ReflectUtils.unwrap(c);
+        return (u.isPrimitive() && u != void.class) || c == String.class;
+    }
+
+    private static final class Hoister {
+
+        final int base;
+        boolean marking = false;
+        boolean supported = true;
+
+        // the variables assigned in the loop, cf. key()
+        final Set assigned = new HashSet();
+
+        // the marked expressions which own a slot, and their frames
+        final List invariants = new ArrayList();
+        final List frames = new ArrayList();
+
+        Hoister(int base) {
+            this.base = base;
+        }
+
+        void loop(Expression cond, Statement update, Statement[] body) {
+            if (cond != null) {
+                top(cond, 0);
+            }
+            if (update != null) {
+                stm(update, 0);
+            }
+            stms(body, 0);
+        }
+
+        void stms(Statement[] stms, int n) {
+            for (int i = 0; i < stms.length; i++) {
+                stm(stms[i], n);
+            }
+        }
+
+        // visit a statement which executes n frames below the loop frame
+        void stm(Statement s, int n) {
+            if (s == null || s instanceof NOP || s instanceof BreakStm ||
+                    s instanceof ContinueStm) {
+                return;
+            }
+            else if (s instanceof ExprStm) {
+                top(((ExprStm)s).getExpression(), n);
+            }
+            else if (s instanceof VarDeclStm) {
+                VarDeclStm d = (VarDeclStm)s;
+                Expression[] init = d.getInitializers();
+                for (int i = 0; i < init.length; i++) {
+                    if (n == 0) {
+                        // redeclared on each iteration
+                        assigned.add(key(0, d.getAddress(i)));
+                    }
+                    top(init[i], n);
+                }
+            }
+            else if (s instanceof ReturnStm) {
+                top(((ReturnStm)s).getValue(), n);
+            }
+            else if (s instanceof ExprBlockStm) {
+                ExprBlockStm b = (ExprBlockStm)s;
+                top(b.getExpression(), n);
+                stm(b.getBlock(), n);
+                if (s instanceof IfStm) {
+                    stm(((IfStm)s).getAlternative(), n);
+                }
+            }
+            else if (s.getClass() == BlockStatement.class) {
+                stms(((BlockStatement)s).getStatements(), n);
+            }
+            else if (s.getClass() == BlockEnvStatement.class) {
+                stms(((BlockStatement)s).getStatements(), n + 1);
+            }
+            else if (s instanceof ForStm) {
+                ForStm f = (ForStm)s;
+                stm(f.getInit(), n + 1);
+                top(f.getCondition(), n + 1);
+                stm(f.getUpdate(), n + 1);
+                stms(f.getBody(), n + 1);
+            }
+            else if (s instanceof ForSeqStm) {
+                ForSeqStm f = (ForSeqStm)s;
+                top(f.getSequence(), n);
+                stms(f.getBody(), n + 1);
+            }
+            else {
+                // eg. a function declaration, which may capture variables
+                supported = false;
+            }
+        }
+
+        void top(Expression e, int n) {
+            if (e != null && expr(e, n)) {
+                mark(e, n);
+            }
+        }
+
+        // determine whether the expression is invariant; otherwise mark its
+        // invariant subexpressions
+        boolean expr(Expression e, int n) {
+            Class c = e.getClass();
+            if (e instanceof Const) {
+                return ConstantFolder.isImmutableConst(e);
+            }
+            else if (c == VarExpr.class) {
+                VarExpr v = (VarExpr)e;
+                int rel = v.getDepth() - n;
+                return rel >= 0 && isValue(v.getTypeC()) &&
+                        !assigned.contains(key(rel, v.getAddress()));
+            }
+            else if ((c == BinaryOp.class &&
+                    ConstantFolder.isPure(((BinaryOp)e).op)) ||
+                    (c == UnaryOp.class &&
+                            ConstantFolder.isPure(((UnaryOp)e).op)) ||
+                    (c == TypecastExpr.class && isValue(e.getTypeC()))) {
+                return operands(e, n);
+            }
+
+            if (e instanceof AssignOp || e instanceof AssignCompoundOp) {
+                assign(((BinaryExpr)e).lhs, n);
+            }
+            else if (e instanceof AssignXchgOp) {
+                assign(((BinaryExpr)e).lhs, n);
+                assign(((BinaryExpr)e).rhs, n);
+            }
+            else if (e instanceof PreIncOp || e instanceof PreDecOp ||
+                    e instanceof PostIncOp || e instanceof PostDecOp) {
+                assign(((UnaryExpr)e).arg, n);
+            }
+            else if (e instanceof LetExpr) {
+                stm(((LetExpr)e).block, n + 1);
+            }
+            operands(e, n);
+            return false;
+        }
+
+        // determine whether all operands are invariant; otherwise mark the
+        // invariant ones
+        boolean operands(Expression e, int n) {
+            Expression[] es = operands(e);
+            if (es == null) {
+                supported = false;
+                return false;
+            }
+
+            boolean[] inv = new boolean[es.length];
+            boolean all = true;
+            for (int i = 0; i < es.length; i++) {
+                if (es[i] != null) {
+                    all &= inv[i] = expr(es[i], n);
+                }
+            }
+            if (!all) {
+                for (int i = 0; i < es.length; i++) {
+                    if (inv[i]) {
+                        mark(es[i], n);
+                    }
+                }
+            }
+            return all;
+        }
+
+        // the operands of an expression, or null if they are unknown
+        Expression[] operands(Expression e) {
+            if (e instanceof BinaryExpr) {
+                BinaryExpr b = (BinaryExpr)e;
+                return new Expression[] { b.lhs, b.rhs };
+            }
+            else if (e instanceof UnaryExpr) {
+                return new Expression[] { ((UnaryExpr)e).arg };
+            }
+            else if (e instanceof TernaryExpr) {
+                TernaryExpr t = (TernaryExpr)e;
+                return new Expression[] { t.e1, t.e2, t.e3 };
+            }
+            else if (e instanceof ArrayExpr) {
+                Expression[] args = ((ArrayExpr)e).exprs;
+                Expression first = (e instanceof ApplyExpr)
+                        ? ((ApplyExpr)e).func
+                        : (e instanceof InvokeExpr) ? ((InvokeExpr)e).base
+                                : (e instanceof DelayedInvokeExpr)
+                                        ? ((DelayedInvokeExpr)e).base
+                                        : null;
+                Expression[] result = new Expression[args.length + 1];
+                result[0] = first;
+                System.arraycopy(args, 0, result, 1, args.length);
+                return result;
+            }
+            else if (e instanceof VarIndexExpr) {
+                VarIndexExpr v = (VarIndexExpr)e;
+                return new Expression[] { v.base, v.index };
+            }
+            else if (e instanceof FinalFieldExpr) {
+                return new Expression[] { ((FinalFieldExpr)e).base };
+            }
+            else if (e instanceof DelayedFieldExpr) {
+                return new Expression[] { ((DelayedFieldExpr)e).base };
+            }
+            else if (e instanceof HClassMemberExpr) {
+                return new Expression[] { ((HClassMemberExpr)e).arg };
+            }
+            else if (e instanceof HObjectCreateExpr) {
+                return new Expression[] { ((HObjectCreateExpr)e).hclass };
+            }
+            else if (e instanceof Variable || e instanceof LetExpr ||
+                    e instanceof TypeExpr || e instanceof VoidExpr) {
+                return new Expression[0];
+            }
+            else {
+                // eg. a lambda expression
+                return null;
+            }
+        }
+
+        void assign(Expression lv, int n) {
+            if (lv instanceof VarExpr) {
+                VarExpr v = (VarExpr)lv;
+                int rel = v.getDepth() - n;
+                if (rel >= 0) {
+                    assigned.add(key(rel, v.getAddress()));
+                }
+            }
+        }
+
+        // mark an invariant expression, which is evaluated n frames below
+        // the loop frame
+        void mark(Expression e, int n) {
+            if (!marking) {
+                return;
+            }
+            if (e.getClass() == TypecastExpr.class) {
+                mark(((UnaryExpr)e).arg, n);
+                return;
+            }
+            if ((e.getClass() != BinaryOp.class &&
+                    e.getClass() != UnaryOp.class) || !hasVariable(e)) {
+                // constants are folded, and variables are read directly
+                return;
+            }
+
+            int i = 0;
+            while (i < invariants.size() &&
+                    !equal((Expression)invariants.get(i),
+                            ((Integer)frames.get(i)).intValue(), e, n)) {
+                i++;
+            }
+            if (i == invariants.size()) {
+                invariants.add(e);
+                frames.add(Integer.valueOf(n));
+            }
+
+            LoopInvariant inv = new LoopInvariant(n, base + i);
+            if (e instanceof BinaryOp) {
+                ((BinaryOp)e).invariant = inv;
+            }
+            else {
+                ((UnaryOp)e).invariant = inv;
+            }
+        }
+
+        boolean hasVariable(Expression e) {
+            if (e instanceof VarExpr) {
+                return true;
+            }
+            else if (e instanceof BinaryExpr) {
+                BinaryExpr b = (BinaryExpr)e;
+                return hasVariable(b.lhs) || hasVariable(b.rhs);
+            }
+            else if (e instanceof UnaryExpr) {
+                return hasVariable(((UnaryExpr)e).arg);
+            }
+            return false;
+        }
+
+        // determine whether the invariant expressions e1 and e2, evaluated
+        // n1 and n2 frames below the loop frame, have the same value
+        boolean equal(Expression e1, int n1, Expression e2, int n2) {
+            if (e1.getClass() != e2.getClass()) {
+                return false;
+            }
+            else if (e1 instanceof VarExpr) {
+                VarExpr v1 = (VarExpr)e1, v2 = (VarExpr)e2;
+                return v1.getDepth() - n1 == v2.getDepth() - n2 &&
+                        v1.getAddress() == v2.getAddress();
+            }
+            else if (e1 instanceof Const) {
+                Object c1 = ((Const)e1).getValue();
+                Object c2 = ((Const)e2).getValue();
+                return (c1 == null ? c2 == null : c1.equals(c2)) &&
+                        e1.getType().equals(e2.getType());
+            }
+            else if (e1 instanceof BinaryOp) {
+                BinaryOp b1 = (BinaryOp)e1, b2 = (BinaryOp)e2;
+                return b1.op == b2.op && equal(b1.lhs, n1, b2.lhs, n2) &&
+                        equal(b1.rhs, n1, b2.rhs, n2);
+            }
+            else if (e1 instanceof UnaryOp) {
+                UnaryOp u1 = (UnaryOp)e1, u2 = (UnaryOp)e2;
+                return u1.op == u2.op && equal(u1.arg, n1, u2.arg, n2);
+            }
+            else if (e1 instanceof TypecastExpr) {
+                TypecastExpr t1 = (TypecastExpr)e1, t2 = (TypecastExpr)e2;
+                return t1.t.equals(t2.t) && equal(t1.arg, n1, t2.arg, n2);
+            }
+            return false;
+        }
+
+    }
+
+}
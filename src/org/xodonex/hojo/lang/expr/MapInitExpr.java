@@ -69,6 +69,15 @@ public class MapInitExpr extends ArrayExpr {
         }
     }
 
+    @Override
+    public Expression optimize(int level) {
+        cre8 = cre8 == null ? null : cre8.optimize(level);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keys[i].optimize(level);
+        }
+        return super.optimize(level);
+    }
+
     @Override
     public Expression linkVars(Environment env, short maxLvl) {
         MapInitExpr result = (MapInitExpr)super.linkVars(env, maxLvl);
@@ -19,7 +19,6 @@
 package org.xodonex.hojo.lang.expr;
 
 import org.xodonex.hojo.HojoException;
-import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
@@ -45,7 +44,7 @@ public class PostDecOp extends UnaryExpr {
         LValue lv = (LValue)arg;
         Object res = lv.resolve(env);
         Number result = ConvertUtils.toNumber(lv.get(res), true);
-        lv.set(res, HojoLib.incDec(result, false));
+        lv.set(res, TypeFeedback.incDec(result, false));
         return result;
     }
 
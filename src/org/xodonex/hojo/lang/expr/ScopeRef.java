@@ -25,6 +25,7 @@ import org.xodonex.hojo.lang.CompilerEnvironment;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.env.FunctionEnv;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -65,14 +66,27 @@ public class ScopeRef extends Expression {
             return null;
         }
 
-        short locAddr = base.getAddress(name);
+        int locAddr = base.getAddress(name);
         if (locAddr < 0) {
             return null;
         }
 
-        return new VarExpr(locAddr, length, base.getLevel(),
-                base.getModifiers(name),
-                base.getType(name));
+        // determine the address relative to env, capturing the variable in
+        // every function scope which is passed on the way
+        Type typ = base.getType(name);
+        int[] addr = new int[] { locAddr, 0, base.getLevel(),
+                base.getModifiers(name) };
+        for (short i = (short)(length - 1); i >= 0; i--) {
+            CompilerEnvironment e = env.getParent(i);
+            if (e instanceof FunctionEnv) {
+                addr = ((FunctionEnv)e).capture(addr, typ);
+            }
+            else {
+                addr[CompilerEnvironment.ADDR_DEPTH]++;
+            }
+        }
+
+        return new VarExpr(addr, typ);
     }
 
     @Override
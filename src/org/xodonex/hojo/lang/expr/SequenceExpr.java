@@ -43,9 +43,8 @@ public class SequenceExpr extends TernaryExpr {
     @Override
     public Object xeq(Environment env) throws HojoException {
         Function op = HojoLib.getOperator(OP_IDX_SEQ);
-        return op.invoke(new Object[] {
-                e1.xeq(env), e2.xeq(env), e3 == null ? null : e3.xeq(env)
-        });
+        return op.invoke3(e1.xeq(env), e2.xeq(env),
+                e3 == null ? null : e3.xeq(env));
     }
 
     @Override
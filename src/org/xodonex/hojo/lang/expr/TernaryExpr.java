@@ -67,4 +67,16 @@ public abstract class TernaryExpr extends Expression {
         }
     }
 
+    public Expression getFirst() {
+        return e1;
+    }
+
+    public Expression getSecond() {
+        return e2;
+    }
+
+    public Expression getThird() {
+        return e3;
+    }
+
 }
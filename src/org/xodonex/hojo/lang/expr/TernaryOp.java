@@ -45,9 +45,8 @@ public class TernaryOp extends TernaryExpr {
 
     @Override
     public Object xeq(Environment env) throws HojoException {
-        return getType().typeCast(op.invoke(new Object[] {
-                e1.xeq(env), e2.xeq(env), e3 == null ? null : e3.xeq(env)
-        }));
+        return getType().typeCast(op.invoke3(e1.xeq(env), e2.xeq(env),
+                e3 == null ? null : e3.xeq(env)));
     }
 
     @Override
@@ -0,0 +1,309 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.expr;
+
+import org.xodonex.hojo.HojoConst;
+import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Function;
+
+/**
+ * Type feedback for the arithmetic and comparison operator nodes. On its first
+ * evaluation, a node records the kind of its operands ({@link #INT},
+ * {@link #LONG}, {@link #DOUBLE} or {@link #STRING}). Later evaluations check
+ * that the operands have the same kind and then use the specialized
+ * operations of this class, which give the same results as the built-in
+ * {@link org.xodonex.hojo.lang.Operator}s without dispatching on the numeric
+ * priorities. A node whose operator or operands cannot be specialized, or
+ * whose guard has failed, becomes {@link #GENERIC} and stays on the generic
+ * path.
+ *
+ * @author Henrik Lauritzen
+ */
+final class TypeFeedback implements HojoConst {
+
+    /**
+     * The operand kinds.
+     */
+    public final static int UNKNOWN = 0, INT = 1, LONG = 2, DOUBLE = 3,
+            STRING = 4, GENERIC = 5;
+
+    // the operators which have a specialized implementation
+    private final static int[] SPECIALIZED = { OP_IDX_NEG, OP_IDX_MUL,
+            OP_IDX_DIV, OP_IDX_MOD, OP_IDX_ADD, OP_IDX_SUB, OP_IDX_LT,
+            OP_IDX_LE, OP_IDX_GE, OP_IDX_GT, OP_IDX_EQ, OP_IDX_NE };
+
+    private TypeFeedback() {
+    }
+
+    /**
+     * Determines the built-in operator implemented by the given function.
+     *
+     * @return the operator index, or -1 if the operator has no specialized
+     *         implementation.
+     */
+    public static int indexOf(Function op) {
+        for (int i = 0; i < SPECIALIZED.length; i++) {
+            if (op == HojoLib.getOperator(SPECIALIZED[i])) {
+                return SPECIALIZED[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the kind of the given value, or {@link #GENERIC}.
+     */
+    public static int kindOf(Object o) {
+        if (o == null) {
+            return GENERIC;
+        }
+
+        Class c = o.getClass();
+        if (c == Integer.class) {
+            return INT;
+        }
+        else if (c == Long.class) {
+            return LONG;
+        }
+        else if (c == Double.class) {
+            return DOUBLE;
+        }
+        else if (c == String.class) {
+            return STRING;
+        }
+        else {
+            return GENERIC;
+        }
+    }
+
+    /**
+     * @return the kind of the given pair of operands, or {@link #GENERIC}.
+     */
+    public static int kindOf(Object o1, Object o2) {
+        int k1 = kindOf(o1);
+        if (k1 == STRING) {
+            // only the left operand determines string concatenation
+            return STRING;
+        }
+        int k2 = kindOf(o2);
+        if (k2 >= STRING) {
+            return GENERIC;
+        }
+        // numeric promotion: INT < LONG < DOUBLE
+        return k1 > k2 ? k1 : k2;
+    }
+
+    /**
+     * Determines the kind of the operands of an operator from their static
+     * types. This is known only if the values of the operands are known to be
+     * non-null values of the types int, long or double.
+     *
+     * @return the kind of the operands, or {@link #UNKNOWN}.
+     */
+    public static int staticKindOf(Expression e1, Expression e2) {
+        int k1 = staticKindOf(e1);
+        int k2 = staticKindOf(e2);
+        return (k1 == UNKNOWN || k2 == UNKNOWN) ? UNKNOWN
+                : k1 > k2 ? k1 : k2;
+    }
+
+    private static int staticKindOf(Expression e) {
+        return e.conformsTo(HojoLib.typeOf(int.class)) ? INT
+                : e.conformsTo(HojoLib.typeOf(long.class)) ? LONG
+                        : e.conformsTo(HojoLib.typeOf(double.class)) ? DOUBLE
+                                : UNKNOWN;
+    }
+
+    /**
+     * @return the primitive type of the result of the specialized
+     *         implementation of an operator on numeric operands of the given
+     *         kind.
+     */
+    public static Class resultClass(int opIdx, int kind) {
+        switch (opIdx) {
+        case OP_IDX_LT:
+        case OP_IDX_LE:
+        case OP_IDX_GE:
+        case OP_IDX_GT:
+        case OP_IDX_EQ:
+        case OP_IDX_NE:
+            return boolean.class;
+        default:
+            return (kind == INT) ? int.class
+                    : (kind == LONG) ? long.class : double.class;
+        }
+    }
+
+    /**
+     * Determines whether the specialized implementation of an operator
+     * applies to operands of the given kind.
+     */
+    public static boolean isSpecialized(int opIdx, int kind) {
+        switch (kind) {
+        case INT:
+        case LONG:
+        case DOUBLE:
+            return opIdx >= 0;
+        case STRING:
+            return opIdx == OP_IDX_ADD;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Applies a specialized unary operator.
+     */
+    public static Object unary(int opIdx, int kind, Object o) {
+        // OP_IDX_NEG is the only specialized unary operator
+        switch (kind) {
+        case INT:
+            return Integer.valueOf(-((Integer)o).intValue());
+        case LONG:
+            return Long.valueOf(-((Long)o).longValue());
+        default:
+            return Double.valueOf(-((Double)o).doubleValue());
+        }
+    }
+
+    /**
+     * Applies a specialized binary operator.
+     */
+    public static Object binary(int opIdx, int kind, Object o1, Object o2) {
+        switch (kind) {
+        case INT:
+            return binary(opIdx, ((Integer)o1).intValue(),
+                    ((Integer)o2).intValue());
+        case LONG:
+            return binary(opIdx, ((Number)o1).longValue(),
+                    ((Number)o2).longValue());
+        case DOUBLE:
+            return binary(opIdx, ((Number)o1).doubleValue(),
+                    ((Number)o2).doubleValue());
+        default: // STRING
+            return (String)o1 + HojoLib.toString(o2);
+        }
+    }
+
+    private static Object binary(int opIdx, int i1, int i2) {
+        switch (opIdx) {
+        case OP_IDX_MUL:
+            return Integer.valueOf(i1 * i2);
+        case OP_IDX_DIV:
+            return Integer.valueOf(i1 / i2);
+        case OP_IDX_MOD:
+            return Integer.valueOf(i1 % i2);
+        case OP_IDX_ADD:
+            return Integer.valueOf(i1 + i2);
+        case OP_IDX_SUB:
+            return Integer.valueOf(i1 - i2);
+        case OP_IDX_LT:
+            return i1 < i2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_LE:
+            return i1 <= i2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GE:
+            return i1 >= i2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GT:
+            return i1 > i2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_EQ:
+            return i1 == i2 ? Boolean.TRUE : Boolean.FALSE;
+        default: // OP_IDX_NE
+            return i1 != i2 ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    private static Object binary(int opIdx, long l1, long l2) {
+        switch (opIdx) {
+        case OP_IDX_MUL:
+            return Long.valueOf(l1 * l2);
+        case OP_IDX_DIV:
+            return Long.valueOf(l1 / l2);
+        case OP_IDX_MOD:
+            return Long.valueOf(l1 % l2);
+        case OP_IDX_ADD:
+            return Long.valueOf(l1 + l2);
+        case OP_IDX_SUB:
+            return Long.valueOf(l1 - l2);
+        case OP_IDX_LT:
+            return l1 < l2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_LE:
+            return l1 <= l2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GE:
+            return l1 >= l2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GT:
+            return l1 > l2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_EQ:
+            return l1 == l2 ? Boolean.TRUE : Boolean.FALSE;
+        default: // OP_IDX_NE
+            return l1 != l2 ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    private static Object binary(int opIdx, double d1, double d2) {
+        switch (opIdx) {
+        case OP_IDX_MUL:
+            return Double.valueOf(d1 * d2);
+        case OP_IDX_DIV:
+            return Double.valueOf(d1 / d2);
+        case OP_IDX_MOD:
+            return Double.valueOf(d1 % d2);
+        case OP_IDX_ADD:
+            return Double.valueOf(d1 + d2);
+        case OP_IDX_SUB:
+            return Double.valueOf(d1 - d2);
+        // HojoLib.compareTo() reports NaN as greater than any value, and
+        // any value as greater than NaN
+        case OP_IDX_LT:
+            return d1 < d2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_LE:
+            return d1 <= d2 ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GE:
+            return !(d1 < d2) ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_GT:
+            return !(d1 <= d2) ? Boolean.TRUE : Boolean.FALSE;
+        case OP_IDX_EQ:
+            return d1 == d2 ? Boolean.TRUE : Boolean.FALSE;
+        default: // OP_IDX_NE
+            return d1 != d2 ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    /**
+     * Calculates <code>n + 1</code> or <code>n - 1</code>, using a specialized
+     * operation if the number is an {@link Integer}, a {@link Long} or a
+     * {@link Double}.
+     *
+     * @see HojoLib#incDec(Number, boolean)
+     */
+    public static Number incDec(Number n, boolean increase) {
+        int change = increase ? 1 : -1;
+        switch (kindOf(n)) {
+        case INT:
+            return Integer.valueOf(n.intValue() + change);
+        case LONG:
+            return Long.valueOf(n.longValue() + change);
+        case DOUBLE:
+            return Double.valueOf(n.doubleValue() + change);
+        default:
+            return HojoLib.incDec(n, increase);
+        }
+    }
+
+}
@@ -19,10 +19,14 @@
 package org.xodonex.hojo.lang.expr;
 
 import org.xodonex.hojo.HojoException;
+import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.func.TailCall;
+import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -35,9 +39,19 @@ public class TypecastExpr extends UnaryExpr {
 
     protected Type t;
 
+    // whether the value of the argument is known to conform to the type
+    private final boolean exact;
+
+    // the converter used for the last value
+    private transient volatile Converter conv = null;
+
+    // whether the argument is a call in tail position, cf. TailCall.mark()
+    protected boolean tailCall = false;
+
     public TypecastExpr(Type t, Expression arg) {
         super(arg);
         this.t = t;
+        exact = arg.conformsTo(t);
     }
 
     // create a narrowing or widening conversion, if necessary
@@ -71,6 +85,48 @@ public class TypecastExpr extends UnaryExpr {
         }
     }
 
+    /**
+     * Determines whether the conversion of a value of type t2 to the type t1
+     * returns the value itself. This is decided only for the types of
+     * immutable values (numbers, booleans, characters and strings), whose
+     * conversion is known not to copy the value, and for
+     * <code>Object</code>.
+     */
+    public static boolean isIdentity(Type t1, Type t2) {
+        if (t1 == HojoLib.OBJ_TYPE) {
+            return true;
+        }
+
+        Class c1 = t1.toClass();
+        Class c2 = t2.toClass();
+        if (!isValueClass(ReflectUtils.wrap(c1))) {
+            return false;
+        }
+        else if (c1.isPrimitive()) {
+            // a value of a primitive type is never null
+            return c2 == c1;
+        }
+        else {
+            return t2.kind() == Type.TYP_NULL || c2 == c1
+                    || (c2.isPrimitive() && ReflectUtils.wrap(c2) == c1);
+        }
+    }
+
+    private static boolean isValueClass(Class c) {
+        return c == Integer.class || c == Long.class || c == Double.class
+                || c == Boolean.class || c == String.class
+                || c == Character.class || c == Float.class
+                || c == Short.class || c == Byte.class;
+    }
+
+    /**
+     * Determines whether the value of the given expression is known to be a
+     * value of the type t, such that a conversion to that type may be omitted.
+     */
+    public static boolean conforms(Type t, Expression e) {
+        return t != null && e.conformsTo(t);
+    }
+
     // create a narrowing conversion, if necessary
     public static Expression mkConversion(Type t, Expression arg) {
         return (needConversion(t, arg.getType())) ? new TypecastExpr(t, arg)
@@ -79,7 +135,16 @@ public class TypecastExpr extends UnaryExpr {
 
     @Override
     public Object xeq(Environment env) throws HojoException {
-        return t.typeCast(arg.xeq(env));
+        Object v = arg.xeq(env);
+        if (exact || (tailCall && v instanceof TailCall)) {
+            // a call in tail position is converted by the calling function
+            return v;
+        }
+        Converter c = conv;
+        if (c == null || !c.accepts(v)) {
+            conv = c = Converter.update(c, t, v);
+        }
+        return c.typeCast(v);
     }
 
     @Override
@@ -87,6 +152,34 @@ public class TypecastExpr extends UnaryExpr {
         return t.toClass();
     }
 
+    @Override
+    public boolean conformsTo(Type t) {
+        return isIdentity(t, this.t);
+    }
+
+    /**
+     * @return whether the value of the argument is known to be a value of the
+     *         type, such that it is not converted.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Indicates that this conversion of the result of a function body
+     * contains a call in tail position. The conversion of the result of that
+     * call is left to the invoking function.
+     *
+     * @see TailCall
+     */
+    public void setTailCall() {
+        tailCall = true;
+    }
+
+    public boolean isTailCall() {
+        return tailCall;
+    }
+
     @Override
     protected Type getType0() {
         return t;
@@ -99,6 +192,9 @@ public class TypecastExpr extends UnaryExpr {
             if (getType().equals(arg.getType())) {
                 return arg;
             }
+            else if (ConstantFolder.isImmutableConst(arg)) {
+                return ConstantFolder.fold(this);
+            }
         }
         return this;
     }
@@ -69,4 +69,8 @@ public abstract class UnaryExpr extends Expression {
 
     protected abstract String toString(HojoSyntax stx, StringUtils.Format fmt);
 
+    public Expression getArgument() {
+        return arg;
+    }
+
 }
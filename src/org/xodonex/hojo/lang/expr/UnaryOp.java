@@ -38,14 +38,61 @@ public class UnaryOp extends UnaryExpr {
 
     protected Function op;
 
+    // type feedback, see TypeFeedback
+    private final int opIdx;
+    private transient volatile int kind;
+
+    // the slot caching the value, if the expression is loop invariant, cf.
+    // LoopInvariant.hoist()
+    LoopInvariant invariant = null;
+
     public UnaryOp(Function op, Expression arg) {
         super(arg);
         this.op = op;
+        opIdx = TypeFeedback.indexOf(op);
     }
 
     @Override
     public Object xeq(Environment env) throws HojoException {
-        return op.invoke(new Object[] { arg.xeq(env) });
+        LoopInvariant inv = invariant;
+        if (inv == null) {
+            return eval(env);
+        }
+
+        Object v = inv.lookup(env);
+        if (v == null) {
+            inv.store(env, this, v = eval(env));
+        }
+        return v;
+    }
+
+    private Object eval(Environment env) throws HojoException {
+        Object v = arg.xeq(env);
+
+        int k = kind;
+        if (k == TypeFeedback.GENERIC) {
+            return op.invoke1(v);
+        }
+        else if (TypeFeedback.kindOf(v) == k) {
+            return TypeFeedback.unary(opIdx, k, v);
+        }
+        else {
+            k = TypeFeedback.kindOf(v);
+            kind = (kind == TypeFeedback.UNKNOWN &&
+                    TypeFeedback.isSpecialized(opIdx, k)) ? k
+                            : TypeFeedback.GENERIC;
+            return op.invoke1(v);
+        }
+    }
+
+    @Override
+    public Expression optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && ConstantFolder.isPure(op) &&
+                ConstantFolder.isImmutableConst(arg)) {
+            return ConstantFolder.fold(this);
+        }
+        return this;
     }
 
     @Override
@@ -64,4 +111,8 @@ public class UnaryOp extends UnaryExpr {
         return toString(op, stx, fmt);
     }
 
+    public Function getOperator() {
+        return op;
+    }
+
 }
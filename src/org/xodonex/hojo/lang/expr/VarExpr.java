@@ -24,6 +24,7 @@ import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.Variable;
+import org.xodonex.hojo.lang.env.Env;
 import org.xodonex.util.StringUtils;
 
 /**
@@ -36,15 +37,16 @@ public class VarExpr extends AbstractLValue {
 
     private short level; // function nesting level
     private short depth; // scope depth (0 == local)
-    private short addr; // local addresss within the environment of residence
+    private int addr; // local addresss within the environment of residence
     private short modifiers;
     private Type typ; // declared type
 
-    public VarExpr(short[] address, Type typ) {
-        this(address[0], address[1], address[2], address[3], typ);
+    public VarExpr(int[] address, Type typ) {
+        this(address[0], (short)address[1], (short)address[2],
+                (short)address[3], typ);
     }
 
-    public VarExpr(short locAddr, short depth, short level, short modifiers,
+    public VarExpr(int locAddr, short depth, short level, short modifiers,
             Type typ) {
         this.addr = locAddr;
         this.depth = depth;
@@ -54,11 +56,15 @@ public class VarExpr extends AbstractLValue {
     }
 
     protected Variable retreive(Environment env) {
-        Environment e = env;
-        for (int i = depth; i > 0; i--) {
-            e = e.getParent();
-        }
-        return e.get(addr);
+        return Env.getEnclosing(env, depth).get(addr);
+    }
+
+    /**
+     * @return the variable denoted by this expression in the given
+     *         environment.
+     */
+    public Variable getVariable(Environment env) {
+        return retreive(env);
     }
 
     @Override
@@ -73,7 +79,7 @@ public class VarExpr extends AbstractLValue {
 
     @Override
     public Object xeq(Environment env) {
-        return retreive(env).getValue();
+        return Env.getEnclosing(env, depth).getValue(addr);
     }
 
     @Override
@@ -81,6 +87,12 @@ public class VarExpr extends AbstractLValue {
         return typ;
     }
 
+    @Override
+    public boolean conformsTo(Type t) {
+        // every value is converted when it is stored in the variable
+        return TypecastExpr.isIdentity(t, typ);
+    }
+
     @Override
     public String toString(HojoSyntax stx, StringUtils.Format fmt,
             String indent) {
@@ -105,21 +117,39 @@ public class VarExpr extends AbstractLValue {
 
     @Override
     public Object resolve(Environment env) {
-        return retreive(env);
+        // the resolvent is the environment in which the variable resides
+        return Env.getEnclosing(env, depth);
     }
 
     @Override
     public Object get(Object resolvent) {
-        return ((Variable)resolvent).getValue();
+        return ((Environment)resolvent).getValue(addr);
     }
 
     @Override
     public Object set(Object resolvent, Object value) {
-        return ((Variable)resolvent).set(null, value);
+        return ((Environment)resolvent).setValue(addr, value);
+    }
+
+    /**
+     * Assigns a value which is known to conform to the type of the variable.
+     *
+     * @see Environment#assign(int, Object)
+     */
+    public Object assign(Object resolvent, Object value) {
+        return ((Environment)resolvent).assign(addr, value);
     }
 
     public short getModifiers() {
         return modifiers;
     }
 
+    public int getAddress() {
+        return addr;
+    }
+
+    public short getDepth() {
+        return depth;
+    }
+
 }
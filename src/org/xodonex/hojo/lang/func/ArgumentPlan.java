@@ -0,0 +1,198 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Environment;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Function;
+
+/**
+ * The binding of the arguments supplied at a call site to the parameters of a
+ * particular function. The plan is computed once from the parameter list of
+ * the function, such that the argument array can be built from a template
+ * holding the default values, and {@link Function#validateArgs(Object[])}
+ * need not be called for every invocation. A plan is immutable, and may be
+ * shared by threads.
+ *
+ * @author Henrik Lauritzen
+ */
+public final class ArgumentPlan {
+
+    private final Function function;
+
+    // the number of parameters, excluding any extra parameter
+    private final int arity;
+
+    // true if the function accepts extra parameters
+    private final boolean extra;
+
+    // the argument array, containing the default values of the parameters
+    // which are not supplied, or null if the supplied arguments can be passed
+    // unchanged
+    private final Object[] template;
+
+    private ArgumentPlan(Function function, int arity, boolean extra,
+            Object[] template) {
+        this.function = function;
+        this.arity = arity;
+        this.extra = extra;
+        this.template = template;
+    }
+
+    /**
+     * Creates the plan for binding the given arguments to the parameters of a
+     * function.
+     *
+     * @param f
+     *            the function
+     * @param args
+     *            the argument expressions of the call site, where
+     *            {@link Const#NO_ARG} denotes a missing argument.
+     * @return the plan, or <code>null</code> if the arguments cannot be bound
+     *         to the parameters of <code>f</code>, in which case
+     *         {@link Function#validateArgs(Object[])} will report the error.
+     */
+    public static ArgumentPlan create(Function f, Expression[] args) {
+        int arity = f.getParameterTypes().length;
+        boolean extra = f.getExtraParameterName() != null;
+        int len = arity + (extra ? 1 : 0);
+        if (args.length > arity && !extra) {
+            return null;
+        }
+
+        // cf. StandardFunction.validateArgs()
+        Object[] template = new Object[len];
+        boolean exact = !extra && args.length == arity;
+        for (int i = 0; i < arity; i++) {
+            if (i < args.length && args[i] != Const.NO_ARG) {
+                continue;
+            }
+            Object v = f.getDefaultValue(i);
+            if (v == Function.NO_ARG) {
+                return null;
+            }
+            template[i] = v;
+            exact = false;
+        }
+        if (extra) {
+            template[arity] = Function.UNIT;
+        }
+        return new ArgumentPlan(f, arity, extra, exact ? null : template);
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Determines whether this plan applies to the given function, which is
+     * the case for the function for which it was created, and for the other
+     * functions created from the same declaration, e.g. closures or the
+     * functions declared by different runtimes executing the same code.
+     *
+     * @param f
+     *            the function
+     * @return whether the plan binds the arguments to the parameters of
+     *         <code>f</code>
+     */
+    public boolean appliesTo(Function f) {
+        if (f == function) {
+            return true;
+        }
+        return f instanceof HojoFunction && function instanceof HojoFunction
+                && ((HojoFunction)f).hasSameParameters((HojoFunction)function);
+    }
+
+    /**
+     * @return true if the supplied arguments are bound unchanged to the
+     *         parameters.
+     */
+    public boolean isExact() {
+        return template == null;
+    }
+
+    /**
+     * Evaluates the argument expressions and binds the values according to
+     * this plan.
+     *
+     * @param args
+     *            the argument expressions given to {@link #create}
+     * @param env
+     *            the environment in which to evaluate the expressions
+     * @return the argument array to be passed to
+     *         {@link Function#invoke(Object[])}
+     */
+    public Object[] bind(Expression[] args, Environment env) {
+        Object[] result;
+        if (template == null) {
+            result = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                result[i] = args[i].xeq(env);
+            }
+            return result;
+        }
+
+        result = template.clone();
+        int n = Math.min(args.length, arity);
+        for (int i = 0; i < n; i++) {
+            if (args[i] != Const.NO_ARG) {
+                result[i] = args[i].xeq(env);
+            }
+        }
+        if (extra && args.length > arity) {
+            Object[] rest = new Object[args.length - arity];
+            for (int i = 0; i < rest.length; i++) {
+                rest[i] = args[arity + i].xeq(env);
+            }
+            result[arity] = rest;
+        }
+        return result;
+    }
+
+    /**
+     * Binds the given argument values according to this plan.
+     *
+     * @param args
+     *            the values of the argument expressions given to
+     *            {@link #create}
+     * @return the argument array to be passed to
+     *         {@link Function#invoke(Object[])}
+     */
+    public Object[] bind(Object[] args) {
+        if (template == null) {
+            return args;
+        }
+
+        Object[] result = template.clone();
+        int n = Math.min(args.length, arity);
+        for (int i = 0; i < n; i++) {
+            if (args[i] != Function.NO_ARG) {
+                result[i] = args[i];
+            }
+        }
+        if (extra && args.length > arity) {
+            Object[] rest = new Object[args.length - arity];
+            System.arraycopy(args, arity, rest, 0, rest.length);
+            result[arity] = rest;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,218 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import org.xodonex.hojo.HojoException;
+import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.Environment;
+import org.xodonex.hojo.lang.Function;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.Variable;
+import org.xodonex.hojo.lang.expr.ApplyExpr;
+
+/**
+ * The superclass of the function bodies generated by the
+ * {@link FunctionCompiler}. The static methods are used by the generated code.
+ */
+abstract class CompiledBody {
+
+    // the constants used by the generated code
+    protected final Object[] consts;
+
+    // set when an assumption of the generated code has failed, cf. result()
+    private volatile boolean invalid = false;
+
+    protected CompiledBody(Object[] consts) {
+        this.consts = consts;
+    }
+
+    /**
+     * @return <code>false</code> if an assumption made by the generated code
+     *         has failed, in which case the body should be interpreted.
+     */
+    boolean isValid() {
+        return !invalid;
+    }
+
+    /**
+     * Executes the function body.
+     *
+     * @param arguments
+     *            the arguments to the function, which have not yet been
+     *            converted to the declared parameter types.
+     * @param captured
+     *            the variables captured by the function, or <code>null</code>.
+     * @param receiver
+     *            the environment of the instance to which a method is bound,
+     *            or <code>null</code>.
+     * @return the result of the body, as returned by a <code>return</code>
+     *         statement, or the value of the last statement.
+     * @throws Throwable
+     *             if the body throws an exception, which has not yet been
+     *             wrapped in a {@link HojoException}.
+     */
+    public abstract Object run(Object[] arguments, Variable[] captured,
+            Environment receiver) throws Throwable;
+
+    /**
+     * Executes the function body for a function of no parameters. Generated
+     * bodies of functions with at most three parameters, and no extra
+     * parameter, override the entry point for their arity and receive the
+     * arguments directly; by default, the arguments are passed to
+     * {@link #run(Object[], Variable[], Environment)}.
+     *
+     * @param captured
+     *            the variables captured by the function, or <code>null</code>.
+     * @param receiver
+     *            the environment of the instance to which a method is bound,
+     *            or <code>null</code>.
+     * @return the result of the body.
+     * @throws Throwable
+     *             if the body throws an exception.
+     */
+    public Object run0(Variable[] captured, Environment receiver)
+            throws Throwable {
+        return run(new Object[0], captured, receiver);
+    }
+
+    /**
+     * Executes the function body for a function of one parameter.
+     *
+     * @see #run0(Variable[], Environment)
+     */
+    public Object run1(Object arg0, Variable[] captured, Environment receiver)
+            throws Throwable {
+        return run(new Object[] { arg0 }, captured, receiver);
+    }
+
+    /**
+     * Executes the function body for a function of two parameters.
+     *
+     * @see #run0(Variable[], Environment)
+     */
+    public Object run2(Object arg0, Object arg1, Variable[] captured,
+            Environment receiver) throws Throwable {
+        return run(new Object[] { arg0, arg1 }, captured, receiver);
+    }
+
+    /**
+     * Executes the function body for a function of three parameters.
+     *
+     * @see #run0(Variable[], Environment)
+     */
+    public Object run3(Object arg0, Object arg1, Object arg2,
+            Variable[] captured, Environment receiver) throws Throwable {
+        return run(new Object[] { arg0, arg1, arg2 }, captured, receiver);
+    }
+
+    static Function toFunction(Object o) {
+        return HojoLib.toFunction(o);
+    }
+
+    // cf. ApplyExpr.xeq()
+    static Object apply(ApplyExpr site, Function f, Object[] arguments) {
+        boolean isVoid = f.getReturnType() == Void.TYPE;
+        Object result = f.invoke(bind(site, f, arguments));
+        return isVoid ? null : result;
+    }
+
+    static Object apply0(ApplyExpr site, Function f) {
+        boolean isVoid = f.getReturnType() == Void.TYPE;
+        ArgumentPlan p = site.getPlan(f);
+        Object result = (p == null || p.isExact()) ? f.invoke0()
+                : f.invoke(p.bind(Function.UNIT));
+        return isVoid ? null : result;
+    }
+
+    static Object apply1(ApplyExpr site, Function f, Object arg0) {
+        boolean isVoid = f.getReturnType() == Void.TYPE;
+        ArgumentPlan p = site.getPlan(f);
+        Object result = (p == null || p.isExact()) ? f.invoke1(arg0)
+                : f.invoke(p.bind(new Object[] { arg0 }));
+        return isVoid ? null : result;
+    }
+
+    static Object apply2(ApplyExpr site, Function f, Object arg0,
+            Object arg1) {
+        boolean isVoid = f.getReturnType() == Void.TYPE;
+        ArgumentPlan p = site.getPlan(f);
+        Object result = (p == null || p.isExact()) ? f.invoke2(arg0, arg1)
+                : f.invoke(p.bind(new Object[] { arg0, arg1 }));
+        return isVoid ? null : result;
+    }
+
+    static Object apply3(ApplyExpr site, Function f, Object arg0,
+            Object arg1, Object arg2) {
+        boolean isVoid = f.getReturnType() == Void.TYPE;
+        ArgumentPlan p = site.getPlan(f);
+        Object result = (p == null || p.isExact())
+                ? f.invoke3(arg0, arg1, arg2)
+                : f.invoke(p.bind(new Object[] { arg0, arg1, arg2 }));
+        return isVoid ? null : result;
+    }
+
+    // Guards the result of a call, which the generated code assumes to be of
+    // the wrapper class c of the static type t of the call. Any other value
+    // is converted, as done by the interpreter, and the body is invalidated.
+    static Object result(Object value, Class c, Type t, CompiledBody body) {
+        if (value != null && value.getClass() == c) {
+            return value;
+        }
+        body.invalid = true;
+        return t.typeCast(value);
+    }
+
+    // cf. ApplyExpr.xeq() for an application in tail position
+    static Object tailApply(ApplyExpr site, Function f, Object[] arguments) {
+        if (f instanceof HojoFunction
+                && f.getReturnType() != Void.TYPE) {
+            return new TailCall((HojoFunction)f, bind(site, f, arguments));
+        }
+        return apply(site, f, arguments);
+    }
+
+    // binds the arguments by means of the argument plan of the call site
+    private static Object[] bind(ApplyExpr site, Function f,
+            Object[] arguments) {
+        ArgumentPlan p = site.getPlan(f);
+        return (p == null) ? f.validateArgs(arguments) : p.bind(arguments);
+    }
+
+    // cf. IfThenElseExpr.xeq()
+    static Object tailCast(Object value, Type t) {
+        return (value instanceof TailCall) ? value : t.typeCast(value);
+    }
+
+    // cf. Env.setValue()
+    static Object assign(Type t, Object value) {
+        Object v = t.typeCast(value);
+        if (v != value) {
+            throw new HojoException(null, HojoException.ERR_INTERNAL,
+                    new String[] { "", "" }, null);
+        }
+        return v;
+    }
+
+    static void checkInterrupted() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+}
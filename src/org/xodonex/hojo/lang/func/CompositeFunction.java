@@ -50,8 +50,33 @@ public final class CompositeFunction extends StandardFunction {
 
     @Override
     public Object invoke(Object[] arguments) {
-        return funcL.invoke((Object[])HojoLib.toArray(funcR.invoke(arguments),
-                Object[].class, Object.class, false));
+        return compose(funcR.invoke(arguments));
+    }
+
+    @Override
+    public Object invoke0() {
+        return compose(funcR.invoke0());
+    }
+
+    @Override
+    public Object invoke1(Object arg0) {
+        return compose(funcR.invoke1(arg0));
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) {
+        return compose(funcR.invoke2(arg0, arg1));
+    }
+
+    @Override
+    public Object invoke3(Object arg0, Object arg1, Object arg2) {
+        return compose(funcR.invoke3(arg0, arg1, arg2));
+    }
+
+    // applies the left function to the result of the right function
+    private Object compose(Object result) {
+        return funcL.invoke((Object[])HojoLib.toArray(result, Object[].class,
+                Object.class, false));
     }
 
 }
@@ -0,0 +1,1376 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+
+import org.xodonex.hojo.HojoConst;
+import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.Code;
+import org.xodonex.hojo.lang.Const;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Function;
+import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.expr.ApplyExpr;
+import org.xodonex.hojo.lang.expr.AssignCompoundOp;
+import org.xodonex.hojo.lang.expr.AssignOp;
+import org.xodonex.hojo.lang.expr.BinaryExpr;
+import org.xodonex.hojo.lang.expr.BinaryOp;
+import org.xodonex.hojo.lang.expr.CondAndExpr;
+import org.xodonex.hojo.lang.expr.CondOrExpr;
+import org.xodonex.hojo.lang.expr.IfThenElseExpr;
+import org.xodonex.hojo.lang.expr.PostDecOp;
+import org.xodonex.hojo.lang.expr.PostIncOp;
+import org.xodonex.hojo.lang.expr.PreDecOp;
+import org.xodonex.hojo.lang.expr.PreIncOp;
+import org.xodonex.hojo.lang.expr.TypecastExpr;
+import org.xodonex.hojo.lang.expr.UnaryExpr;
+import org.xodonex.hojo.lang.expr.UnaryOp;
+import org.xodonex.hojo.lang.expr.VarExpr;
+import org.xodonex.hojo.lang.ops.AddOp;
+import org.xodonex.hojo.lang.ops.DivOp;
+import org.xodonex.hojo.lang.ops.EqOp;
+import org.xodonex.hojo.lang.ops.GeOp;
+import org.xodonex.hojo.lang.ops.GtOp;
+import org.xodonex.hojo.lang.ops.LNotOp;
+import org.xodonex.hojo.lang.ops.LeOp;
+import org.xodonex.hojo.lang.ops.LtOp;
+import org.xodonex.hojo.lang.ops.ModOp;
+import org.xodonex.hojo.lang.ops.MulOp;
+import org.xodonex.hojo.lang.ops.NeOp;
+import org.xodonex.hojo.lang.ops.NegOp;
+import org.xodonex.hojo.lang.ops.SubOp;
+import org.xodonex.hojo.lang.stm.BlockEnvStatement;
+import org.xodonex.hojo.lang.stm.BlockStatement;
+import org.xodonex.hojo.lang.stm.BreakStm;
+import org.xodonex.hojo.lang.stm.ContinueStm;
+import org.xodonex.hojo.lang.stm.DoStm;
+import org.xodonex.hojo.lang.stm.ExprStm;
+import org.xodonex.hojo.lang.stm.ForStm;
+import org.xodonex.hojo.lang.stm.IfStm;
+import org.xodonex.hojo.lang.stm.NOP;
+import org.xodonex.hojo.lang.stm.ReturnStm;
+import org.xodonex.hojo.lang.stm.ShortIfStm;
+import org.xodonex.hojo.lang.stm.VarDeclStm;
+import org.xodonex.hojo.lang.stm.WhileStm;
+import org.xodonex.util.ReflectUtils;
+import org.xodonex.util.vm.ClassFileWriter;
+import org.xodonex.util.vm.Opcodes;
+
+/**
+ * Translates the body of a {@link HojoFunction}, or the remainder of an
+ * execution of a <code>for</code> loop (cf. {@link LoopProfile}), to JVM
+ * bytecode, which may then be optimized by the JIT compiler of the JVM.
+ * <p>
+ * Only a subset of the language is supported: local variables, numeric and
+ * boolean operators, conditionals, loops and function calls. The variables of
+ * the types <code>int</code>, <code>long</code>, <code>double</code> and
+ * <code>boolean</code> are held in unboxed form in JVM local variables, while
+ * all other values are handled as objects. If a body contains any other kind
+ * of code, it is not compiled at all, but remains interpreted.
+ * <p>
+ * The generated code has the same semantics as the interpreted code. It
+ * assumes that the values returned by function calls have the static type of
+ * the call; a value which does not is converted as by the interpreter, and the
+ * generated code is invalidated, such that the interpreter is used from then
+ * on.
+ */
+final class FunctionCompiler implements Opcodes {
+
+    private final static String BODY = "org/xodonex/hojo/lang/func/CompiledBody";
+    private final static String NAME = "org/xodonex/hojo/lang/func/CompiledHojoFunction";
+    private final static String OBJECT = "java/lang/Object";
+    private final static String TYPE = "org/xodonex/hojo/lang/Type";
+    private final static String VARIABLE = "org/xodonex/hojo/lang/Variable";
+    private final static String ENVIRONMENT = "org/xodonex/hojo/lang/Environment";
+    private final static String FUNCTION = "org/xodonex/hojo/lang/Function";
+    private final static String APPLY = "org/xodonex/hojo/lang/expr/ApplyExpr";
+
+    // the kinds of values handled by the generated code
+    private final static int K_INT = 0, K_LONG = 1, K_DOUBLE = 2,
+            K_BOOLEAN = 3, K_OBJECT = 4;
+
+    private final static String[] WRAPPERS = { "java/lang/Integer",
+            "java/lang/Long", "java/lang/Double", "java/lang/Boolean" };
+    private final static String[] DESCRIPTORS = { "I", "J", "D", "Z" };
+    private final static String[] UNBOX = { "intValue", "longValue",
+            "doubleValue", "booleanValue" };
+    private final static int[] LOAD = { ILOAD, LLOAD, DLOAD, ILOAD, ALOAD };
+    private final static int[] STORE = { ISTORE, LSTORE, DSTORE, ISTORE,
+            ASTORE };
+
+    // the local variables of the run() method
+    private final static int L_THIS = 0, L_ARGS = 1, L_CAPTURED = 2,
+            L_RECEIVER = 3;
+
+    // the compiled function, or the loop and the types of the variables of
+    // the loop frame
+    private final HojoFunction func;
+    private final ForStm loopStm;
+    private final Type[] layout;
+
+    private final ArrayList consts = new ArrayList();
+    private ClassFileWriter.Code code;
+
+    // the number of parameters received directly by the body, or -1 if the
+    // body receives an argument array, and the locals holding the captured
+    // variables and the receiver of a method
+    private int arity = -1;
+    private int capturedLocal = L_CAPTURED;
+    private int receiverLocal = L_RECEIVER;
+
+    // the innermost variable frame and loop
+    private Frame frame = null;
+    private Loop loop = null;
+
+    // the local variable which holds the value of the last statement
+    private int result = -1;
+
+    FunctionCompiler(HojoFunction func) {
+        this.func = func;
+        loopStm = null;
+        layout = null;
+    }
+
+    /**
+     * Creates a compiler for the continuation of a <code>for</code> loop
+     * after a completed iteration. The generated body receives the values of
+     * the variables of the loop frame as its arguments, and the parent
+     * environment of the loop frame as its receiver.
+     *
+     * @param loop
+     *            the loop.
+     * @param layout
+     *            the types of the variables of the loop frame, or
+     *            <code>null</code> for the slots which don't hold a variable.
+     */
+    FunctionCompiler(ForStm loop, Type[] layout) {
+        func = null;
+        loopStm = loop;
+        this.layout = layout;
+    }
+
+    /**
+     * @return the compiled body, or <code>null</code> if the body can't be
+     *         compiled.
+     */
+    CompiledBody compile() {
+        byte[] b;
+        try {
+            b = generate();
+        }
+        catch (UnsupportedCodeException e) {
+            return null;
+        }
+        catch (IllegalStateException e) {
+            // the method is too large
+            return null;
+        }
+
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup()
+                    .defineHiddenClass(b, true);
+            MethodHandle c = l.findConstructor(l.lookupClass(),
+                    MethodType.methodType(void.class, Object[].class));
+            return (CompiledBody)c.invoke(consts.toArray());
+        }
+        catch (Throwable t) {
+            // the code is rejected by the JVM
+            return null;
+        }
+    }
+
+    private byte[] generate() {
+        ClassFileWriter cf = new ClassFileWriter(NAME, BODY,
+                ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        ClassFileWriter.Code init = cf.addMethod(ACC_PUBLIC, "<init>",
+                "([Ljava/lang/Object;)V");
+        init.local(ALOAD, L_THIS);
+        init.local(ALOAD, L_ARGS);
+        init.invoke(INVOKESPECIAL, BODY, "<init>", "([Ljava/lang/Object;)V");
+        init.op(RETURN);
+
+        String runDesc = "([Ljava/lang/Object;[L" + VARIABLE + ";L"
+                + ENVIRONMENT + ";)Ljava/lang/Object;";
+        if (func == null) {
+            // cf. LoopProfile.resume()
+            code = cf.addMethod(ACC_PUBLIC, "run", runDesc);
+            frame = new Frame(null, layout.length);
+            for (int i = 0; i < layout.length; i++) {
+                if (layout[i] != null) {
+                    bind(i, layout[i]);
+                }
+            }
+            forStm(loopStm, true);
+            if (code.isReachable()) {
+                code.op(ACONST_NULL);
+                code.op(ARETURN);
+            }
+            return cf.toByteArray();
+        }
+
+        Class[] types = func.getParameterTypes();
+        arity = (types.length <= 3 && func.getExtraParameterName() == null)
+                ? types.length : -1;
+        if (arity < 0) {
+            code = cf.addMethod(ACC_PUBLIC, "run", runDesc);
+            capturedLocal = L_CAPTURED;
+            receiverLocal = L_RECEIVER;
+        }
+        else {
+            // the body receives the arguments directly in run<n>(), and
+            // run() unpacks an argument array
+            StringBuffer buf = new StringBuffer("(");
+            for (int i = 0; i < arity; i++) {
+                buf.append("Ljava/lang/Object;");
+            }
+            String fixedDesc = buf.append("[L").append(VARIABLE)
+                    .append(";L").append(ENVIRONMENT)
+                    .append(";)Ljava/lang/Object;").toString();
+
+            ClassFileWriter.Code run = cf.addMethod(ACC_PUBLIC, "run",
+                    runDesc);
+            run.local(ALOAD, L_THIS);
+            for (int i = 0; i < arity; i++) {
+                run.local(ALOAD, L_ARGS);
+                run.intConst(i);
+                run.op(AALOAD);
+            }
+            run.local(ALOAD, L_CAPTURED);
+            run.local(ALOAD, L_RECEIVER);
+            run.invoke(INVOKEVIRTUAL, BODY, "run" + arity, fixedDesc);
+            run.op(ARETURN);
+
+            code = cf.addMethod(ACC_PUBLIC, "run" + arity, fixedDesc);
+            capturedLocal = arity + 1;
+            receiverLocal = arity + 2;
+        }
+
+        // bind the parameters and the captured variables
+        frame = new Frame(null, func.getSize());
+        for (int i = 0; i < types.length; i++) {
+            bind(i, HojoLib.typeOf(types[i]));
+        }
+        if (func.getExtraParameterName() != null) {
+            bind(types.length, HojoLib.TUPLE_TYPE);
+        }
+        short[] captureSlots = func.getCaptureSlots();
+        if (captureSlots != null) {
+            for (int i = 0; i < captureSlots.length; i++) {
+                frame.captured[captureSlots[i]] = i;
+            }
+        }
+
+        Code body = func.getBody();
+        if (body instanceof Expression) {
+            tailReturn((Expression)body, new Type[0]);
+        }
+        else {
+            // the value of the last statement is the result, unless the
+            // function is void
+            boolean value = !func.getRetType().isVoid();
+            if (value) {
+                result = code.newLocal(1);
+                code.op(ACONST_NULL);
+                code.local(ASTORE, result);
+            }
+            stm((Statement)body, value);
+            if (code.isReachable()) {
+                if (value) {
+                    code.local(ALOAD, result);
+                }
+                else {
+                    code.op(ACONST_NULL);
+                }
+                code.op(ARETURN);
+            }
+        }
+
+        return cf.toByteArray();
+    }
+
+    private void bind(int addr, Type t) {
+        // cf. HojoFunction.interpret()
+        if (arity < 0) {
+            code.local(ALOAD, L_ARGS);
+            code.intConst(addr);
+            code.op(AALOAD);
+        }
+        else {
+            code.local(ALOAD, 1 + addr);
+        }
+        typeCast(t);
+        int k = kindOf(t);
+        unbox(k);
+        code.local(STORE[k], frame.declare(code, addr, t));
+    }
+
+    /* ******************** STATEMENTS ******************** */
+
+    // if value is true, the value of the statement is stored in the result
+    // variable
+    private void stm(Statement s, boolean value) {
+        if (!code.isReachable()) {
+            return;
+        }
+
+        Class c = s.getClass();
+        if (c == BlockStatement.class) {
+            block(((BlockStatement)s).getStatements(), value);
+        }
+        else if (c == BlockEnvStatement.class) {
+            BlockEnvStatement b = (BlockEnvStatement)s;
+            frame = new Frame(frame, b.getSize());
+            block(b.getStatements(), value);
+            frame = frame.parent;
+        }
+        else if (c == ExprStm.class) {
+            int k = expr(((ExprStm)s).getExpression());
+            if (value) {
+                box(k);
+                code.local(ASTORE, result);
+            }
+            else {
+                pop(k);
+            }
+        }
+        else if (c == VarDeclStm.class) {
+            varDecl((VarDeclStm)s, value);
+        }
+        else if (c == ShortIfStm.class || c == IfStm.class) {
+            ShortIfStm i = (ShortIfStm)s;
+            ClassFileWriter.Label alt = code.newLabel();
+            ClassFileWriter.Label end = code.newLabel();
+            jumpIf(false, i.getExpression(), alt);
+            stm(i.getBlock(), value);
+            if (code.isReachable()) {
+                code.jump(GOTO, end);
+            }
+            code.mark(alt);
+            if (c == IfStm.class) {
+                stm(((IfStm)s).getAlternative(), value);
+            }
+            else {
+                nullResult(value);
+            }
+            code.mark(end);
+        }
+        else if (c == WhileStm.class) {
+            // the value of a loop is the value of the last iteration
+            unsupported(value, s);
+            WhileStm w = (WhileStm)s;
+            ClassFileWriter.Label top = code.newLabel();
+            loop = new Loop(loop, code.newLabel(), code.newLabel());
+            code.mark(top);
+            jumpIf(false, w.getExpression(), loop.breakLabel);
+            stm(w.getBlock(), false);
+            code.mark(loop.continueLabel);
+            if (code.isReachable()) {
+                checkInterrupted();
+                code.jump(GOTO, top);
+            }
+            code.mark(loop.breakLabel);
+            loop = loop.parent;
+        }
+        else if (c == DoStm.class) {
+            unsupported(value, s);
+            DoStm d = (DoStm)s;
+            ClassFileWriter.Label top = code.newLabel();
+            loop = new Loop(loop, code.newLabel(), code.newLabel());
+            code.mark(top);
+            stm(d.getBlock(), false);
+            if (code.isReachable()) {
+                checkInterrupted();
+            }
+            code.mark(loop.continueLabel);
+            if (code.isReachable()) {
+                jumpIf(true, d.getExpression(), top);
+            }
+            code.mark(loop.breakLabel);
+            loop = loop.parent;
+        }
+        else if (c == ForStm.class) {
+            forStm((ForStm)s, false);
+            nullResult(value);
+        }
+        else if (c == ReturnStm.class) {
+            // a compiled loop completes normally
+            unsupported(func == null, s);
+            Expression e = ((ReturnStm)s).getValue();
+            if (e == null) {
+                code.op(ACONST_NULL);
+                code.op(ARETURN);
+            }
+            else {
+                tailReturn(e, new Type[0]);
+            }
+        }
+        else if (s == BreakStm.BREAK) {
+            unsupported(loop == null, s);
+            code.jump(GOTO, loop.breakLabel);
+        }
+        else if (s == ContinueStm.CONTINUE) {
+            unsupported(loop == null, s);
+            code.jump(GOTO, loop.continueLabel);
+        }
+        else if (s == NOP.NOP) {
+            nullResult(value);
+        }
+        else {
+            unsupported(true, s);
+        }
+    }
+
+    private void block(Statement[] stms, boolean value) {
+        if (stms.length == 0) {
+            nullResult(value);
+            return;
+        }
+        for (int i = 0; i < stms.length - 1; i++) {
+            stm(stms[i], false);
+        }
+        stm(stms[stms.length - 1], value);
+    }
+
+    private void nullResult(boolean value) {
+        if (value && code.isReachable()) {
+            code.op(ACONST_NULL);
+            code.local(ASTORE, result);
+        }
+    }
+
+    private void varDecl(VarDeclStm d, boolean value) {
+        // final variables may not be redeclared, cf. Env.alloc()
+        unsupported((d.getModifiers()
+                & (HojoConst.MOD_FINAL | HojoConst.MOD_PUBLIC)) != 0, d);
+
+        Expression[] init = d.getInitializers();
+        Type typ = d.getDeclaredType();
+        for (int i = 0; i < init.length; i++) {
+            Type t = (typ == null) ? init[i].getType() : typ;
+            int k = kindOf(t);
+            int addr = d.getAddress(i);
+            int idx = frame.declare(code, addr, t);
+
+            // the initial value is converted to the declared type
+            int ki = expr(init[i]);
+            if (ki != k) {
+                box(ki);
+                typeCast(t);
+                unbox(k);
+            }
+            else if (k == K_OBJECT) {
+                typeCast(t);
+            }
+            if (value && i == init.length - 1) {
+                dup(k);
+                box(k);
+                code.local(ASTORE, result);
+            }
+            code.local(STORE[k], idx);
+        }
+    }
+
+    // If resume is true, the loop frame has already been bound, and the code
+    // continues with the update of a completed iteration, cf.
+    // LoopProfile.resume()
+    private void forStm(ForStm f, boolean resume) {
+        if (!resume) {
+            frame = new Frame(frame, f.getEnvSize());
+            if (f.getInit() != null) {
+                stm(f.getInit(), false);
+            }
+        }
+        else if (f.getUpdate() != null) {
+            stm(f.getUpdate(), false);
+        }
+
+        ClassFileWriter.Label top = code.newLabel();
+        loop = new Loop(loop, code.newLabel(), code.newLabel());
+        code.mark(top);
+        if (f.getCondition() != null) {
+            jumpIf(false, f.getCondition(), loop.breakLabel);
+        }
+        Statement[] body = f.getBody();
+        for (int i = 0; i < body.length; i++) {
+            stm(body[i], false);
+        }
+        code.mark(loop.continueLabel);
+        if (code.isReachable()) {
+            checkInterrupted();
+            if (f.getUpdate() != null) {
+                stm(f.getUpdate(), false);
+            }
+            code.jump(GOTO, top);
+        }
+        code.mark(loop.breakLabel);
+        loop = loop.parent;
+        frame = frame.parent;
+    }
+
+    private void checkInterrupted() {
+        code.invoke(INVOKESTATIC, BODY, "checkInterrupted", "()V");
+    }
+
+    /* ******************** EXPRESSIONS ******************** */
+
+    // Determines the kind of the value of the given expression, without
+    // generating any code.
+    private int kind(Expression e) {
+        Class c = e.getClass();
+        if (c == Const.class) {
+            Object v = ((Const)e).getValue();
+            return (v == null) ? K_OBJECT : valueKind(v.getClass());
+        }
+        else if (c == VarExpr.class) {
+            return variable((VarExpr)e).kind;
+        }
+        else if (c == AssignOp.class || c == AssignCompoundOp.class) {
+            return variable(((BinaryExpr)e).getLhs()).kind;
+        }
+        else if (c == PreIncOp.class || c == PreDecOp.class
+                || c == PostIncOp.class || c == PostDecOp.class) {
+            return variable(((UnaryExpr)e).getArgument()).kind;
+        }
+        else if (c == BinaryOp.class) {
+            BinaryOp b = (BinaryOp)e;
+            return !isPrimitive(b) ? kindOf(e.getType())
+                    : isArithmetic(b.getOperator())
+                            ? Math.max(kind(b.getLhs()), kind(b.getRhs()))
+                            : K_BOOLEAN;
+        }
+        else if (c == UnaryOp.class) {
+            UnaryOp u = (UnaryOp)e;
+            return (u.getOperator() == LNotOp.getInstance()) ? K_BOOLEAN
+                    : isPrimitive(u) ? kind(u.getArgument()) : K_OBJECT;
+        }
+        else if (c == CondAndExpr.class || c == CondOrExpr.class) {
+            return K_BOOLEAN;
+        }
+        else if (c == TypecastExpr.class) {
+            int k = valueKind(e.getType().toClass());
+            return (k != K_OBJECT
+                    && kind(((UnaryExpr)e).getArgument()) != K_OBJECT) ? k
+                            : kindOf(e.getType());
+        }
+        else if (c == IfThenElseExpr.class) {
+            IfThenElseExpr i = (IfThenElseExpr)e;
+            int k = kind(i.getSecond());
+            return (k != K_OBJECT && k == kind(i.getThird())
+                    && k == valueKind(e.getType().toClass())) ? k
+                            : kindOf(e.getType());
+        }
+        else if (c == ApplyExpr.class) {
+            return kindOf(e.getType());
+        }
+        else {
+            throw new UnsupportedCodeException(c.getName());
+        }
+    }
+
+    // Generates the code for the given expression.
+    // Returns the kind of the value, as determined by kind().
+    private int expr(Expression e) {
+        Class c = e.getClass();
+        if (c == Const.class) {
+            constant(((Const)e).getValue());
+        }
+        else if (c == VarExpr.class) {
+            load(variable((VarExpr)e));
+        }
+        else if (c == AssignOp.class) {
+            AssignOp a = (AssignOp)e;
+            Var v = variable(a.getLhs());
+            int k = expr(a.getRhs());
+            if (v.kind == K_OBJECT) {
+                box(k);
+            }
+            else {
+                // the compiler has inserted any necessary conversions
+                unsupported(k != v.kind, e);
+            }
+            store(v, true, a.isExact());
+        }
+        else if (c == AssignCompoundOp.class) {
+            // cf. AssignCompoundOp.xeq()
+            AssignCompoundOp a = (AssignCompoundOp)e;
+            Var v = variable(a.getLhs());
+            unsupported(!isArithmetic(a.getOperator()) || v.kind > K_DOUBLE,
+                    e);
+            int kr = kind(a.getRhs());
+            unsupported(kr > K_DOUBLE, e);
+            int m = Math.max(v.kind, kr);
+            load(v);
+            convert(v.kind, m);
+            expr(a.getRhs());
+            convert(kr, m);
+            arithmetic(a.getOperator(), m);
+            if (a.getCastType() != null) {
+                int kc = valueKind(a.getCastType().toClass());
+                unsupported(kc > K_DOUBLE, e);
+                convert(m, kc);
+                m = kc;
+            }
+            unsupported(m != v.kind, e);
+            store(v, true);
+        }
+        else if (c == PreIncOp.class || c == PreDecOp.class
+                || c == PostIncOp.class || c == PostDecOp.class) {
+            // cf. PreIncOp.xeq(), PostIncOp.xeq()
+            Var v = variable(((UnaryExpr)e).getArgument());
+            unsupported(v.kind > K_DOUBLE, e);
+            boolean isPost = c == PostIncOp.class || c == PostDecOp.class;
+            load(v);
+            if (isPost) {
+                dup(v.kind);
+            }
+            constant(v.kind == K_INT ? Integer.valueOf(1)
+                    : v.kind == K_LONG ? (Object)Long.valueOf(1)
+                            : Double.valueOf(1));
+            code.op(typed((c == PreIncOp.class || c == PostIncOp.class)
+                    ? IADD : ISUB, v.kind));
+            store(v, !isPost);
+        }
+        else if (c == BinaryOp.class) {
+            BinaryOp b = (BinaryOp)e;
+            Function op = b.getOperator();
+            if (!isPrimitive(b)) {
+                // cf. BinaryOp.xeq()
+                operator(op, new Expression[] { b.getLhs(), b.getRhs() });
+                typeCast(e.getType());
+                unbox(kind(e));
+                return kind(e);
+            }
+            else if (!isArithmetic(op)) {
+                return booleanValue(e);
+            }
+
+            int k1 = kind(b.getLhs());
+            int k2 = kind(b.getRhs());
+            int m = Math.max(k1, k2);
+            expr(b.getLhs());
+            convert(k1, m);
+            expr(b.getRhs());
+            convert(k2, m);
+            arithmetic(op, m);
+        }
+        else if (c == UnaryOp.class) {
+            UnaryOp u = (UnaryOp)e;
+            if (u.getOperator() == LNotOp.getInstance()) {
+                return booleanValue(e);
+            }
+            else if (isPrimitive(u)) {
+                code.op(typed(INEG, expr(u.getArgument())));
+            }
+            else {
+                // cf. UnaryOp.xeq()
+                operator(u.getOperator(),
+                        new Expression[] { u.getArgument() });
+            }
+        }
+        else if (c == CondAndExpr.class || c == CondOrExpr.class) {
+            return booleanValue(e);
+        }
+        else if (c == TypecastExpr.class) {
+            Type t = e.getType();
+            Expression arg = ((UnaryExpr)e).getArgument();
+            int ka = expr(arg);
+            int k = kind(e);
+            if (ka != K_OBJECT && k != K_OBJECT) {
+                convert(ka, k);
+            }
+            else {
+                box(ka);
+                if (!((TypecastExpr)e).isExact()) {
+                    typeCast(t);
+                }
+                unbox(k);
+            }
+        }
+        else if (c == IfThenElseExpr.class) {
+            // cf. IfThenElseExpr.xeq()
+            IfThenElseExpr i = (IfThenElseExpr)e;
+            int k = kind(e);
+            boolean isPrimitive = k != K_OBJECT
+                    && k == kind(i.getSecond()) && k == kind(i.getThird());
+            ClassFileWriter.Label alt = code.newLabel();
+            ClassFileWriter.Label end = code.newLabel();
+            jumpIf(false, i.getFirst(), alt);
+            int k2 = expr(i.getSecond());
+            if (!isPrimitive) {
+                box(k2);
+            }
+            code.jump(GOTO, end);
+            code.mark(alt);
+            int k3 = expr(i.getThird());
+            if (!isPrimitive) {
+                box(k3);
+            }
+            code.mark(end);
+            if (!isPrimitive) {
+                if (!i.isExact()) {
+                    typeCast(e.getType());
+                }
+                unbox(k);
+            }
+        }
+        else if (c == ApplyExpr.class) {
+            apply((ApplyExpr)e, "apply");
+            result(e.getType());
+        }
+        else {
+            throw new UnsupportedCodeException(c.getName());
+        }
+        return kind(e);
+    }
+
+    // cf. ApplyExpr.xeq()
+    private void apply(ApplyExpr a, String method) {
+        // the call site holds the argument plan, cf. ApplyExpr.getPlan()
+        object(a, APPLY);
+        box(expr(a.getFunction()));
+        code.invoke(INVOKESTATIC, BODY, "toFunction",
+                "(Ljava/lang/Object;)L" + FUNCTION + ";");
+        Expression[] args = a.getExpressions();
+        if (method.equals("apply") && a.isFixed()) {
+            // use the entry point matching the number of arguments
+            StringBuffer desc = new StringBuffer("(L" + APPLY + ";L"
+                    + FUNCTION + ";");
+            for (int i = 0; i < args.length; i++) {
+                box(expr(args[i]));
+                desc.append("Ljava/lang/Object;");
+            }
+            code.invoke(INVOKESTATIC, BODY, method + args.length,
+                    desc.append(")Ljava/lang/Object;").toString());
+        }
+        else {
+            array(args);
+            code.invoke(INVOKESTATIC, BODY, method, "(L" + APPLY + ";L"
+                    + FUNCTION + ";[Ljava/lang/Object;)Ljava/lang/Object;");
+        }
+    }
+
+    // unboxes the result of a call, whose static type is t. The assumed
+    // class is guarded, cf. CompiledBody.result()
+    private void result(Type t) {
+        int k = kindOf(t);
+        if (k != K_OBJECT) {
+            object(ReflectUtils.wrap(t.toClass()), "java/lang/Class");
+            object(t, TYPE);
+            code.local(ALOAD, L_THIS);
+            code.invoke(INVOKESTATIC, BODY, "result",
+                    "(Ljava/lang/Object;Ljava/lang/Class;L" + TYPE + ";L"
+                            + BODY + ";)Ljava/lang/Object;");
+        }
+        unbox(k);
+    }
+
+    // Generates the code which returns the value of an expression in tail
+    // position, after converting it to each of the given types in turn, as
+    // done by the enclosing conditional expressions.
+    private void tailReturn(Expression e, Type[] casts) {
+        Class c = e.getClass();
+        if (c == ApplyExpr.class && ((ApplyExpr)e).isTailCall()) {
+            // cf. TailCall.mark()
+            apply((ApplyExpr)e, "tailApply");
+            for (int i = 0; i < casts.length; i++) {
+                object(casts[i], TYPE);
+                code.invoke(INVOKESTATIC, BODY, "tailCast",
+                        "(Ljava/lang/Object;L" + TYPE + ";)Ljava/lang/Object;");
+            }
+            code.op(ARETURN);
+        }
+        else if (c == IfThenElseExpr.class) {
+            // cf. IfThenElseExpr.xeq()
+            IfThenElseExpr i = (IfThenElseExpr)e;
+            Type[] casts_ = casts;
+            if (!i.isExact()) {
+                casts_ = new Type[casts.length + 1];
+                casts_[0] = e.getType();
+                System.arraycopy(casts, 0, casts_, 1, casts.length);
+            }
+            ClassFileWriter.Label alt = code.newLabel();
+            jumpIf(false, i.getFirst(), alt);
+            tailReturn(i.getSecond(), casts_);
+            code.mark(alt);
+            tailReturn(i.getThird(), casts_);
+        }
+        else if (c == TypecastExpr.class && ((TypecastExpr)e).isTailCall()) {
+            // cf. TypecastExpr.xeq()
+            Type[] casts_ = new Type[casts.length + 1];
+            casts_[0] = e.getType();
+            System.arraycopy(casts, 0, casts_, 1, casts.length);
+            tailReturn(((UnaryExpr)e).getArgument(), casts_);
+        }
+        else {
+            box(expr(e));
+            for (int i = 0; i < casts.length; i++) {
+                typeCast(casts[i]);
+            }
+            code.op(ARETURN);
+        }
+    }
+
+    private void constant(Object v) {
+        if (v == null) {
+            code.op(ACONST_NULL);
+            return;
+        }
+
+        switch (valueKind(v.getClass())) {
+        case K_INT:
+            code.intConst(((Integer)v).intValue());
+            break;
+        case K_LONG:
+            code.longConst(((Long)v).longValue());
+            break;
+        case K_DOUBLE:
+            code.doubleConst(((Double)v).doubleValue());
+            break;
+        case K_BOOLEAN:
+            code.intConst(((Boolean)v).booleanValue() ? 1 : 0);
+            break;
+        default:
+            object(v, OBJECT);
+        }
+    }
+
+    // loads an object from the constant pool of the compiled body
+    private void object(Object o, String cls) {
+        int idx = -1;
+        for (int i = consts.size() - 1; i >= 0; i--) {
+            if (consts.get(i) == o) {
+                idx = i;
+                break;
+            }
+        }
+        if (idx < 0) {
+            idx = consts.size();
+            consts.add(o);
+        }
+
+        code.local(ALOAD, L_THIS);
+        code.field(GETFIELD, BODY, "consts", "[Ljava/lang/Object;");
+        code.intConst(idx);
+        code.op(AALOAD);
+        if (cls != OBJECT) {
+            code.type(CHECKCAST, cls);
+        }
+    }
+
+    // converts the object on the top of the stack, cf. Type.typeCast()
+    private void typeCast(Type t) {
+        object(t, TYPE);
+        code.op(SWAP);
+        code.invoke(INVOKEVIRTUAL, TYPE, "typeCast",
+                "(Ljava/lang/Object;)Ljava/lang/Object;");
+    }
+
+    // Generates a boolean value by means of jumps
+    private int booleanValue(Expression e) {
+        ClassFileWriter.Label f = code.newLabel();
+        ClassFileWriter.Label end = code.newLabel();
+        jumpIf(false, e, f);
+        code.intConst(1);
+        code.jump(GOTO, end);
+        code.mark(f);
+        code.intConst(0);
+        code.mark(end);
+        return K_BOOLEAN;
+    }
+
+    // Generates a jump to the target if the condition evaluates to the given
+    // value, cf. ConvertUtils.toBool().
+    private void jumpIf(boolean b, Expression e, ClassFileWriter.Label target) {
+        Class c = e.getClass();
+        if (c == BinaryOp.class && isPrimitive((BinaryOp)e)
+                && !isArithmetic(((BinaryOp)e).getOperator())) {
+            compare(b, (BinaryOp)e, target);
+        }
+        else if (c == UnaryOp.class
+                && ((UnaryOp)e).getOperator() == LNotOp.getInstance()) {
+            jumpIf(!b, ((UnaryOp)e).getArgument(), target);
+        }
+        else if (c == CondAndExpr.class || c == CondOrExpr.class) {
+            BinaryExpr be = (BinaryExpr)e;
+            if (b == (c == CondOrExpr.class)) {
+                // either operand decides the outcome
+                jumpIf(b, be.getLhs(), target);
+                jumpIf(b, be.getRhs(), target);
+            }
+            else {
+                ClassFileWriter.Label skip = code.newLabel();
+                jumpIf(!b, be.getLhs(), skip);
+                jumpIf(b, be.getRhs(), target);
+                code.mark(skip);
+            }
+        }
+        else {
+            int k = expr(e);
+            if (k != K_BOOLEAN) {
+                box(k);
+                code.invoke(INVOKESTATIC, "org/xodonex/util/ConvertUtils",
+                        "toBool", "(Ljava/lang/Object;)Z");
+            }
+            code.jump(b ? IFNE : IFEQ, target);
+        }
+    }
+
+    // cf. HojoLib.compareTo(), HojoLib.eq()
+    private void compare(boolean b, BinaryOp e, ClassFileWriter.Label target) {
+        Function op = e.getOperator();
+        int cond = (op == EqOp.getInstance()) ? IFEQ
+                : (op == NeOp.getInstance()) ? IFNE
+                        : (op == LtOp.getInstance()) ? IFLT
+                                : (op == GeOp.getInstance()) ? IFGE
+                                        : (op == GtOp.getInstance()) ? IFGT
+                                                : (op == LeOp.getInstance())
+                                                        ? IFLE : -1;
+        if (!b) {
+            // the conditions are ordered in complementary pairs
+            cond = ((cond - IFEQ) ^ 1) + IFEQ;
+        }
+
+        int k1 = kind(e.getLhs());
+        int k2 = kind(e.getRhs());
+        if (k1 <= K_DOUBLE && k2 <= K_DOUBLE) {
+            int m = Math.max(k1, k2);
+            expr(e.getLhs());
+            convert(k1, m);
+            expr(e.getRhs());
+            convert(k2, m);
+            switch (m) {
+            case K_INT:
+                code.jump(cond + (IF_ICMPEQ - IFEQ), target);
+                return;
+            case K_LONG:
+                code.op(LCMP);
+                break;
+            default:
+                // NaN compares as greater than any value
+                code.op(DCMPG);
+            }
+            code.jump(cond, target);
+        }
+        else if (k1 == K_BOOLEAN && k2 == K_BOOLEAN) {
+            expr(e.getLhs());
+            expr(e.getRhs());
+            code.jump(cond + (IF_ICMPEQ - IFEQ), target);
+        }
+        else {
+            box(expr(e.getLhs()));
+            box(expr(e.getRhs()));
+            code.invoke(INVOKESTATIC, "org/xodonex/hojo/HojoLib", "eq",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+            code.jump((cond == IFEQ) ? IFNE : IFEQ, target);
+        }
+    }
+
+    private static boolean isArithmetic(Function op) {
+        return op == AddOp.getInstance() || op == SubOp.getInstance()
+                || op == MulOp.getInstance() || op == DivOp.getInstance()
+                || op == ModOp.getInstance();
+    }
+
+    private void arithmetic(Function op, int k) {
+        int base = (op == AddOp.getInstance()) ? IADD
+                : (op == SubOp.getInstance()) ? ISUB
+                        : (op == MulOp.getInstance()) ? IMUL
+                                : (op == DivOp.getInstance()) ? IDIV : IREM;
+        code.op(typed(base, k));
+    }
+
+    // the variant of an int instruction for the given kind
+    private static int typed(int opcode, int k) {
+        // the instructions are ordered as int, long, float, double
+        return opcode + ((k == K_DOUBLE) ? 3 : k);
+    }
+
+    // Determines whether an operation is compiled to JVM instructions, rather
+    // than delegated to the operator. The result of a numeric operation has
+    // the larger of the operand kinds, cf. ReflectUtils.getResultPriority().
+    private boolean isPrimitive(BinaryOp b) {
+        Function op = b.getOperator();
+        int k1 = kind(b.getLhs());
+        int k2 = kind(b.getRhs());
+        if (op == EqOp.getInstance() || op == NeOp.getInstance()) {
+            return true;
+        }
+        else if (k1 > K_DOUBLE || k2 > K_DOUBLE) {
+            return false;
+        }
+        else if (isArithmetic(op)) {
+            return valueKind(b.getType().toClass()) == Math.max(k1, k2);
+        }
+        else {
+            return op == LtOp.getInstance() || op == LeOp.getInstance()
+                    || op == GtOp.getInstance() || op == GeOp.getInstance();
+        }
+    }
+
+    private boolean isPrimitive(UnaryOp u) {
+        return u.getOperator() == NegOp.getInstance()
+                && kind(u.getArgument()) <= K_DOUBLE;
+    }
+
+    // invokes an operator with the values of the given expressions
+    private void operator(Function op, Expression[] args) {
+        object(op, FUNCTION);
+        array(args);
+        code.invoke(INVOKEINTERFACE, FUNCTION, "invoke",
+                "([Ljava/lang/Object;)Ljava/lang/Object;");
+    }
+
+    // creates an array containing the values of the given expressions
+    private void array(Expression[] exprs) {
+        code.intConst(exprs.length);
+        code.type(ANEWARRAY, OBJECT);
+        for (int i = 0; i < exprs.length; i++) {
+            code.op(DUP);
+            code.intConst(i);
+            box(expr(exprs[i]));
+            code.op(AASTORE);
+        }
+    }
+
+    /* ******************** VARIABLES ******************** */
+
+    private Var variable(Expression e) {
+        unsupported(e.getClass() != VarExpr.class, e);
+        VarExpr v = (VarExpr)e;
+        Frame f = frame;
+        int i = v.getDepth();
+        for (; i > 0 && f != null; i--) {
+            f = f.parent;
+        }
+
+        int addr = v.getAddress();
+        if (f == null) {
+            // the parent frame of the body of a method holds the members of
+            // the receiver, cf. HojoFunction.bind(). The parent environment
+            // of a loop holds all other variables referenced by the loop.
+            unsupported(func != null && (i > 0 || !func.isBound()), e);
+            return new Var(kindOf(v.getType()), -1, -1, addr, i,
+                    v.getType());
+        }
+        if (f.captured[addr] >= 0) {
+            return new Var(kindOf(v.getType()), -1, f.captured[addr], null);
+        }
+        else {
+            // the variable must have been declared, and the compiler
+            // assigns its declared type to every reference
+            unsupported(f.locals[addr] < 0
+                    || f.kinds[addr] != kindOf(v.getType()), e);
+            return new Var(f.kinds[addr], f.locals[addr], -1, f.types[addr]);
+        }
+    }
+
+    private void load(Var v) {
+        if (v.local >= 0) {
+            code.local(LOAD[v.kind], v.local);
+        }
+        else if (v.member >= 0) {
+            receiver(v);
+            code.intConst(v.member);
+            code.invoke(INVOKEINTERFACE, ENVIRONMENT, "getValue",
+                    "(I)Ljava/lang/Object;");
+            unbox(v.kind);
+        }
+        else {
+            code.local(ALOAD, capturedLocal);
+            code.intConst(v.cell);
+            code.op(AALOAD);
+            code.invoke(INVOKEVIRTUAL, VARIABLE, "getValue",
+                    "()Ljava/lang/Object;");
+            unbox(v.kind);
+        }
+    }
+
+    // loads the environment holding a member variable
+    private void receiver(Var v) {
+        code.local(ALOAD, receiverLocal);
+        for (int i = 0; i < v.up; i++) {
+            code.invoke(INVOKEINTERFACE, ENVIRONMENT, "getParent",
+                    "()L" + ENVIRONMENT + ";");
+        }
+    }
+
+    // stores the value on the top of the stack in the variable. If keep is
+    // true, the stored value is left on the stack.
+    private void store(Var v, boolean keep) {
+        store(v, keep, false);
+    }
+
+    // as above. If exact is true, the value is known to conform to the type
+    // of the variable and is not checked, cf. AssignOp.xeq()
+    private void store(Var v, boolean keep, boolean exact) {
+        if (v.member >= 0) {
+            // cf. VarExpr.set()
+            box(v.kind);
+            receiver(v);
+            code.op(SWAP);
+            code.intConst(v.member);
+            code.op(SWAP);
+            code.invoke(INVOKEINTERFACE, ENVIRONMENT,
+                    exact ? "assign" : "setValue",
+                    "(ILjava/lang/Object;)Ljava/lang/Object;");
+            if (keep) {
+                unbox(v.kind);
+            }
+            else {
+                code.op(POP);
+            }
+            return;
+        }
+        if (v.local < 0) {
+            // cf. Variable.set()
+            box(v.kind);
+            code.local(ALOAD, capturedLocal);
+            code.intConst(v.cell);
+            code.op(AALOAD);
+            code.op(SWAP);
+            if (exact) {
+                code.invoke(INVOKEVIRTUAL, VARIABLE, "assign",
+                        "(Ljava/lang/Object;)Ljava/lang/Object;");
+            }
+            else {
+                code.op(ACONST_NULL);
+                code.op(SWAP);
+                code.invoke(INVOKEVIRTUAL, VARIABLE, "set",
+                        "(Ljava/lang/Object;Ljava/lang/Object;)"
+                                + "Ljava/lang/Object;");
+            }
+            if (keep) {
+                unbox(v.kind);
+            }
+            else {
+                code.op(POP);
+            }
+            return;
+        }
+
+        if (v.kind == K_OBJECT && !exact) {
+            // cf. Env.setValue()
+            object(v.type, TYPE);
+            code.op(SWAP);
+            code.invoke(INVOKESTATIC, BODY, "assign", "(L" + TYPE
+                    + ";Ljava/lang/Object;)Ljava/lang/Object;");
+        }
+        if (keep) {
+            dup(v.kind);
+        }
+        code.local(STORE[v.kind], v.local);
+    }
+
+    /* ******************** VALUES ******************** */
+
+    // the kind of variables of the given type
+    private static int kindOf(Type t) {
+        Class c = t.toClass();
+        return c.isPrimitive() ? valueKind(c) : K_OBJECT;
+    }
+
+    // the kind used to represent the given (non-null) value class
+    private static int valueKind(Class c) {
+        if (c == Integer.class || c == Integer.TYPE) {
+            return K_INT;
+        }
+        else if (c == Long.class || c == Long.TYPE) {
+            return K_LONG;
+        }
+        else if (c == Double.class || c == Double.TYPE) {
+            return K_DOUBLE;
+        }
+        else if (c == Boolean.class || c == Boolean.TYPE) {
+            return K_BOOLEAN;
+        }
+        else {
+            return K_OBJECT;
+        }
+    }
+
+    private void box(int k) {
+        if (k != K_OBJECT) {
+            code.invoke(INVOKESTATIC, WRAPPERS[k], "valueOf",
+                    "(" + DESCRIPTORS[k] + ")L" + WRAPPERS[k] + ";");
+        }
+    }
+
+    private void unbox(int k) {
+        if (k != K_OBJECT) {
+            code.type(CHECKCAST, WRAPPERS[k]);
+            code.invoke(INVOKEVIRTUAL, WRAPPERS[k], UNBOX[k],
+                    "()" + DESCRIPTORS[k]);
+        }
+    }
+
+    private void dup(int k) {
+        code.op((k == K_LONG || k == K_DOUBLE) ? DUP2 : DUP);
+    }
+
+    private void pop(int k) {
+        code.op((k == K_LONG || k == K_DOUBLE) ? POP2 : POP);
+    }
+
+    // converts a primitive value, cf. Number.xxxValue() and
+    // ConvertUtils.toBoolObj()
+    private void convert(int from, int to) {
+        if (from == to) {
+            return;
+        }
+
+        if (to == K_BOOLEAN) {
+            convert(from, K_DOUBLE);
+            code.doubleConst(0);
+            code.op(DCMPL);
+            ClassFileWriter.Label f = code.newLabel();
+            ClassFileWriter.Label end = code.newLabel();
+            code.jump(IFEQ, f);
+            code.intConst(1);
+            code.jump(GOTO, end);
+            code.mark(f);
+            code.intConst(0);
+            code.mark(end);
+            return;
+        }
+
+        if (from == K_BOOLEAN) {
+            from = K_INT;
+        }
+        switch (from * 3 + to) {
+        case K_INT * 3 + K_LONG:
+            code.op(I2L);
+            break;
+        case K_INT * 3 + K_DOUBLE:
+            code.op(I2D);
+            break;
+        case K_LONG * 3 + K_INT:
+            code.op(L2I);
+            break;
+        case K_LONG * 3 + K_DOUBLE:
+            code.op(L2D);
+            break;
+        case K_DOUBLE * 3 + K_INT:
+            code.op(D2I);
+            break;
+        case K_DOUBLE * 3 + K_LONG:
+            code.op(D2L);
+            break;
+        }
+    }
+
+    private static void unsupported(boolean b, Object o) {
+        if (b) {
+            throw new UnsupportedCodeException(
+                    (o == null) ? null : o.getClass().getName());
+        }
+    }
+
+    /* ******************** HELPER CLASSES ******************** */
+
+    // the variables of an environment frame
+    private final static class Frame {
+        final Frame parent;
+        final int[] locals; // the JVM local variable, or -1
+        final int[] kinds;
+        final Type[] types;
+        final int[] captured; // the index of a captured variable, or -1
+
+        Frame(Frame parent, int size) {
+            this.parent = parent;
+            locals = new int[size];
+            kinds = new int[size];
+            types = new Type[size];
+            captured = new int[size];
+            for (int i = 0; i < size; i++) {
+                locals[i] = captured[i] = -1;
+            }
+        }
+
+        // returns the JVM local variable of a newly declared variable
+        int declare(ClassFileWriter.Code code, int addr, Type t) {
+            int k = kindOf(t);
+            if (locals[addr] < 0) {
+                unsupported(captured[addr] >= 0, null);
+                locals[addr] = code
+                        .newLocal((k == K_LONG || k == K_DOUBLE) ? 2 : 1);
+                kinds[addr] = k;
+                types[addr] = t;
+            }
+            else if (kinds[addr] != k || !t.equals(types[addr])) {
+                // a redeclaration must use the same representation
+                throw new UnsupportedCodeException(t.toString());
+            }
+            return locals[addr];
+        }
+    }
+
+    // a reference to a local or captured variable, or to a member of the
+    // receiver of a method or of an environment enclosing a compiled loop
+    private final static class Var {
+        final int kind;
+        final int local; // the JVM local variable, or -1
+        final int cell; // the index of a captured variable, or -1
+        final int member; // the address of a member, or -1
+        final int up; // the parents of the receiver holding the member
+        final Type type;
+
+        Var(int kind, int local, int cell, Type type) {
+            this(kind, local, cell, -1, 0, type);
+        }
+
+        Var(int kind, int local, int cell, int member, int up, Type type) {
+            this.kind = kind;
+            this.local = local;
+            this.cell = cell;
+            this.member = member;
+            this.up = up;
+            this.type = type;
+        }
+    }
+
+    // the jump targets of break and continue statements
+    private final static class Loop {
+        final Loop parent;
+        final ClassFileWriter.Label breakLabel;
+        final ClassFileWriter.Label continueLabel;
+
+        Loop(Loop parent, ClassFileWriter.Label breakLabel,
+                ClassFileWriter.Label continueLabel) {
+            this.parent = parent;
+            this.breakLabel = breakLabel;
+            this.continueLabel = continueLabel;
+        }
+    }
+
+    // thrown when the body contains code which can't be compiled
+    private final static class UnsupportedCodeException
+            extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedCodeException(String msg) {
+            super(msg);
+        }
+    }
+
+}
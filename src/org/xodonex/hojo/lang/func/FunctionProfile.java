@@ -0,0 +1,77 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import java.io.Serializable;
+
+/**
+ * Counts the invocations of the functions created from a function body, and
+ * compiles the body to JVM bytecode once it has been invoked a given number of
+ * times. A profile is shared by all the closures created from the same
+ * function declaration or lambda expression. If an assumption made by the
+ * compiled code fails, the body is interpreted from then on.
+ */
+public class FunctionProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int threshold;
+
+    // the invocation count is not synchronized, as an exact count is not
+    // necessary
+    private transient int count = 0;
+    private transient volatile CompiledBody compiled = null;
+    private transient volatile boolean failed = false;
+
+    /**
+     * @param threshold
+     *            the number of invocations after which the body is compiled.
+     */
+    public FunctionProfile(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Registers an invocation of the given function.
+     *
+     * @return the compiled body of the function, or <code>null</code> if the
+     *         body should be interpreted.
+     */
+    CompiledBody getCompiledBody(HojoFunction f) {
+        CompiledBody result = compiled;
+        if (result != null && !result.isValid()) {
+            // the compiled code has been deoptimized
+            failed = true;
+            compiled = result = null;
+        }
+        if (result != null || failed || ++count < threshold) {
+            return result;
+        }
+
+        synchronized (this) {
+            if (compiled == null && !failed) {
+                // bodies which can't be compiled remain interpreted
+                compiled = new FunctionCompiler(f).compile();
+                failed = compiled == null;
+            }
+            return compiled;
+        }
+    }
+
+}
@@ -22,13 +22,17 @@ import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.StandardFunction;
 import org.xodonex.hojo.lang.Code;
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.Variable;
 import org.xodonex.hojo.lang.env.Env;
-import org.xodonex.hojo.util.ReturnException;
+import org.xodonex.hojo.lang.expr.VarExpr;
+import org.xodonex.hojo.util.Completion;
 
-public class HojoFunction extends StandardFunction {
+public class HojoFunction extends StandardFunction implements Cloneable {
 
     private static final long serialVersionUID = 1L;
 
@@ -39,9 +43,45 @@ public class HojoFunction extends StandardFunction {
     private Code body;
     private Type retType; // retType == null <=> body instanceof Expression
     private short size;
+    private short[] captureSlots; // null if nothing is captured
+    private Variable[] captured;
+    private FunctionProfile profile; // null if the body is never compiled
+    private boolean exact; // whether the body returns values of retType
+    private Environment receiver; // the instance of a bound method, or null
+    private transient volatile Converter[] converters; // cf. bind()
+    private transient volatile Type[] frameTypes; // cf. Env.getTypes()
 
     public HojoFunction(String[] names, Class[] types, Object[] defaults,
             String extraName, Type retType, Code body, short size) {
+        this(names, types, defaults, extraName, retType, body, size, null,
+                null);
+    }
+
+    public HojoFunction(String[] names, Class[] types, Object[] defaults,
+            String extraName, Type retType, Code body, short size,
+            short[] captureSlots, Variable[] captured) {
+        this(names, types, defaults, extraName, retType, body, size,
+                captureSlots, captured, null);
+    }
+
+    public HojoFunction(String[] names, Class[] types, Object[] defaults,
+            String extraName, Type retType, Code body, short size,
+            short[] captureSlots, Variable[] captured,
+            FunctionProfile profile) {
+        this(names, types, defaults, extraName, retType, body, size,
+                captureSlots, captured, profile, false);
+    }
+
+    /**
+     * @param exact
+     *            whether every value returned by the body is known to be a
+     *            value of the return type, such that the result of the body
+     *            need not be checked.
+     */
+    public HojoFunction(String[] names, Class[] types, Object[] defaults,
+            String extraName, Type retType, Code body, short size,
+            short[] captureSlots, Variable[] captured,
+            FunctionProfile profile, boolean exact) {
         this.names = names;
         this.types = types;
         this.defaults = defaults;
@@ -49,6 +89,74 @@ public class HojoFunction extends StandardFunction {
         this.retType = retType;
         this.body = body;
         this.size = size;
+        this.captureSlots = captureSlots;
+        this.captured = captured;
+        this.profile = profile;
+        this.exact = exact;
+    }
+
+    /**
+     * Resolves the variables captured by a closure.
+     *
+     * @param captures
+     *            the code of the captured variables, as produced by
+     *            {@link org.xodonex.hojo.lang.env.FunctionEnv#getCaptures()}
+     *            and possibly linked. May be <code>null</code>.
+     * @param env
+     *            the environment in which the closure is created.
+     * @return the captured variables, or <code>null</code>.
+     */
+    public static Variable[] capture(Expression[] captures, Environment env) {
+        if (captures == null) {
+            return null;
+        }
+
+        Variable[] result = new Variable[captures.length];
+        for (int i = 0; i < captures.length; i++) {
+            Expression e = captures[i];
+            result[i] = (e instanceof Variable) ? (Variable)e
+                    : ((VarExpr)e).getVariable(env);
+        }
+        return result;
+    }
+
+    /**
+     * Binds a method, which is shared by the instances of a class, to an
+     * instance. The body of the method accesses the members of the class in
+     * the parent frame of its own, which is the environment of the instance
+     * (cf. {@link org.xodonex.hojo.lang.env.FunctionEnv}).
+     *
+     * @param receiver
+     *            the environment holding the members of the instance.
+     * @return a function which shares the code, the captured variables and
+     *         the profile of this function.
+     */
+    public HojoFunction bind(Environment receiver) {
+        HojoFunction result;
+        try {
+            result = (HojoFunction)clone();
+        }
+        catch (CloneNotSupportedException e) {
+            // won't happen
+            throw new HojoException();
+        }
+        result.receiver = receiver;
+        return result;
+    }
+
+    /**
+     * Determines whether the given function has the same parameter list and
+     * default values as this function, as is the case for the functions
+     * created from the same declaration.
+     *
+     * @param f
+     *            the function
+     * @return whether arguments are bound to the parameters of both functions
+     *         in the same way
+     */
+    public boolean hasSameParameters(HojoFunction f) {
+        return f.names == names && f.types == types && f.defaults == defaults
+                && f.extraName == extraName;
     }
 
     @Override
@@ -82,30 +190,87 @@ public class HojoFunction extends StandardFunction {
                 : retType.toClass();
     }
 
+    Code getBody() {
+        return body;
+    }
+
+    Type getRetType() {
+        return retType;
+    }
+
+    short getSize() {
+        return size;
+    }
+
+    short[] getCaptureSlots() {
+        return captureSlots;
+    }
+
+    // whether the function is a method bound to an instance
+    boolean isBound() {
+        return receiver != null;
+    }
+
     @Override
     public Object invoke(Object[] arguments) {
-        // create a new environment for the function. Because all variables of
-        // level x < this.level have been linked, the parent of this environment
-        // may be null.
-        Environment env = new Env(null, size);
+        return complete(execute(arguments));
+    }
 
-        for (int i = 0; i < types.length; i++) {
-            // add the parameters to the new environment
-            env.alloc((short)i, false, null, HojoLib.typeOf(types[i]),
-                    arguments[i]);
-        }
-        if (extraName != null) {
-            env.alloc((short)types.length, true, extraName, HojoLib.TUPLE_TYPE,
-                    arguments[types.length]);
+    @Override
+    public Object invoke0() {
+        return isFixed(0) ? invokeFixed(0, null, null, null) : super.invoke0();
+    }
+
+    @Override
+    public Object invoke1(Object arg0) {
+        return isFixed(1) ? invokeFixed(1, arg0, null, null)
+                : super.invoke1(arg0);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) {
+        return isFixed(2) ? invokeFixed(2, arg0, arg1, null)
+                : super.invoke2(arg0, arg1);
+    }
+
+    @Override
+    public Object invoke3(Object arg0, Object arg1, Object arg2) {
+        return isFixed(3) ? invokeFixed(3, arg0, arg1, arg2)
+                : super.invoke3(arg0, arg1, arg2);
+    }
+
+    // determines whether n arguments need no validation
+    private boolean isFixed(int n) {
+        return types.length == n && extraName == null;
+    }
+
+    // executes the body on n <= 3 arguments, which are bound directly
+    private Object invokeFixed(int n, Object arg0, Object arg1, Object arg2) {
+        CompiledBody compiled = (profile == null) ? null
+                : profile.getCompiledBody(this);
+        if (compiled != null) {
+            return complete(run(compiled, n, null, arg0, arg1, arg2));
         }
 
-        // execute the body in the new environment
-        Object result;
-        try {
-            result = body.xeq(env);
+        Env env = createEnv();
+        if (n > 2) {
+            bind(env, 2, arg2);
         }
-        catch (ReturnException e) {
-            result = e.getValue();
+        if (n > 1) {
+            bind(env, 1, arg1);
+        }
+        if (n > 0) {
+            bind(env, 0, arg0);
+        }
+        return complete(interpret(env));
+    }
+
+    // performs any calls in tail position and converts the result of the body
+    private Object complete(Object result) {
+        boolean checked = exact;
+        if (result instanceof TailCall) {
+            result = trampoline((TailCall)result);
+            checked = false;
         }
 
         // return the result or this function, if the return type is void
@@ -116,11 +281,169 @@ public class HojoFunction extends StandardFunction {
             return this;
         }
         else {
-            if (retType.typeCast(result) != result) {
-                throw new HojoException();
+            // the result of a call in tail position may need a conversion,
+            // cf. TailCall.mark()
+            return checked ? result : retType.typeCast(result);
+        }
+    }
+
+    // executes the body, without converting the result
+    private Object execute(Object[] arguments) {
+        CompiledBody compiled = (profile == null) ? null
+                : profile.getCompiledBody(this);
+        return (compiled == null) ? interpret(arguments)
+                : run(compiled, -1, arguments, null, null, null);
+    }
+
+    // Performs the calls in tail position of the body until a result is
+    // obtained. The bodies of other functions are executed directly, as long
+    // as the conversion of the final result is not affected.
+    private Object trampoline(TailCall call) {
+        Type rt = retType;
+        Object result = call;
+        do {
+            call = (TailCall)result;
+            HojoFunction f = call.getFunction();
+            Type t = f.retType;
+            if (f == this || (f.getClass() == HojoFunction.class
+                    && (t == null || rt == null || t.equals(rt)))) {
+                if (rt == null) {
+                    rt = t;
+                }
+                result = f.execute(call.getArguments());
+            }
+            else {
+                result = f.invoke(call.getArguments());
+            }
+        } while (result instanceof TailCall);
+
+        // convert the result as required by the executed bodies
+        return (rt != retType) ? rt.typeCast(result) : result;
+    }
+
+    // runs the compiled body on the n arguments given directly, or on the
+    // argument array if n is negative
+    private Object run(CompiledBody compiled, int n, Object[] arguments,
+            Object arg0, Object arg1, Object arg2) {
+        try {
+            switch (n) {
+            case 0:
+                return compiled.run0(captured, receiver);
+            case 1:
+                return compiled.run1(arg0, captured, receiver);
+            case 2:
+                return compiled.run2(arg0, arg1, captured, receiver);
+            case 3:
+                return compiled.run3(arg0, arg1, arg2, captured, receiver);
+            default:
+                return compiled.run(arguments, captured, receiver);
+            }
+        }
+        catch (RuntimeException e) {
+            // cf. Statement.xeq()
+            if (body instanceof Statement) {
+                throw HojoException.wrap(e, body);
+            }
+            throw e;
+        }
+        catch (Error e) {
+            if (body instanceof Statement) {
+                throw HojoException.wrap(e, body);
+            }
+            throw e;
+        }
+        catch (Throwable t) {
+            throw HojoException.wrap(t, body);
+        }
+    }
+
+    private Object interpret(Object[] arguments) {
+        Env env = createEnv();
+        bind(env, arguments);
+        return interpret(env);
+    }
+
+    // executes the body in an environment holding the arguments
+    private Object interpret(Env env) {
+        for (;;) {
+            Object result = body.xeq(env);
+            if (result instanceof Completion) {
+                result = ((Completion)result).getValue();
+            }
+            else {
+                result = Completion.unwrap(result);
+            }
+
+            // a recursive call in tail position reuses the environment,
+            // unless it is referenced by a closure
+            if (!(result instanceof TailCall)
+                    || ((TailCall)result).getFunction() != this
+                    || !clear(env)) {
+                if (frameTypes == null) {
+                    // later frames share the types declared by this one
+                    frameTypes = env.getTypes();
+                }
+                return result;
+            }
+            bindCaptured(env);
+            bind(env, ((TailCall)result).getArguments());
+        }
+    }
+
+    private Env createEnv() {
+        // create a new environment for the function. Because all variables of
+        // level x < this.level have been captured, the parent of this
+        // environment is null, unless the function is a method bound to an
+        // instance.
+        Type[] ts = frameTypes;
+        Env env = (ts != null) ? new Env(receiver, ts) : new Env(receiver, size);
+        bindCaptured(env);
+        return env;
+    }
+
+    private void bindCaptured(Env env) {
+        if (captureSlots != null) {
+            for (int i = 0; i < captureSlots.length; i++) {
+                env.bind(captureSlots[i], captured[i]);
+            }
+        }
+    }
+
+    private void bind(Env env, Object[] arguments) {
+        for (int i = 0; i < types.length; i++) {
+            bind(env, i, arguments[i]);
+        }
+        if (extraName != null) {
+            env.alloc((short)types.length, true, extraName, HojoLib.TUPLE_TYPE,
+                    arguments[types.length]);
+        }
+    }
+
+    // add a parameter to the environment
+    private void bind(Env env, int i, Object argument) {
+        // the last converter used for each parameter. The array is never
+        // modified, only replaced.
+        Converter[] cs = converters;
+        Converter c = (cs == null) ? null : cs[i];
+        if (c == null || !c.accepts(argument)) {
+            c = Converter.update(c, HojoLib.typeOf(types[i]), argument);
+            cs = (cs == null) ? new Converter[types.length] : cs.clone();
+            cs[i] = c;
+            converters = cs;
+        }
+        env.declare(i, c.getTarget(), c.typeCast(argument));
+    }
+
+    private boolean clear(Env env) {
+        if (captureSlots != null) {
+            for (int i = 0; i < captureSlots.length; i++) {
+                if (env.get(captureSlots[i]) != captured[i]) {
+                    return false;
+                }
+                env.bind(captureSlots[i], null);
             }
-            return result;
         }
+        return env.clear();
     }
 
 }
@@ -0,0 +1,131 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.Variable;
+import org.xodonex.hojo.lang.env.Env;
+import org.xodonex.hojo.lang.stm.ForStm;
+
+/**
+ * Counts the iterations of a <code>for</code> loop, and compiles the loop to
+ * JVM bytecode once it has iterated a given number of times. This way, loops
+ * outside of compiled function bodies, eg. at the top level of a script, are
+ * compiled as well. The compiled code takes over an execution of the loop
+ * after a completed iteration, from the variables of the loop frame.
+ * <p>
+ * The compiled code is specific to the types of the variables of the loop
+ * frame; a later execution of the loop in which the variables have other
+ * types remains interpreted.
+ */
+public class LoopProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Returned by {@link #resume(ForStm, Env)} if the loop can't be compiled.
+     */
+    public final static Object INTERPRET = new Object();
+
+    private final int threshold;
+
+    // cf. FunctionProfile
+    private transient int count = 0;
+    private transient volatile Type[] layout = null;
+    private transient volatile CompiledBody compiled = null;
+    private transient volatile boolean failed = false;
+
+    /**
+     * @param threshold
+     *            the number of iterations after which the loop is compiled.
+     */
+    public LoopProfile(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Registers a completed iteration of the loop.
+     *
+     * @return whether the execution of the loop should be continued by
+     *         {@link #resume(ForStm, Env)}.
+     */
+    public boolean isHot() {
+        return !failed && (count >= threshold || ++count >= threshold);
+    }
+
+    /**
+     * Continues an execution of the loop in compiled code, after a completed
+     * iteration.
+     *
+     * @param loop
+     *            the loop.
+     * @param frame
+     *            the loop frame.
+     * @return the result of the loop, or {@link #INTERPRET} if the execution
+     *         should continue in the interpreter.
+     * @throws Throwable
+     *             if the loop throws an exception.
+     */
+    public Object resume(ForStm loop, Env frame) throws Throwable {
+        Type[] ts = frame.getTypes();
+        Object[] values = new Object[ts.length];
+        for (int i = 0; i < ts.length; i++) {
+            if (ts[i] != null) {
+                values[i] = frame.getValue(i);
+            }
+            else if (frame.getTemp(i) instanceof Variable) {
+                // a variable of the frame has been captured
+                return INTERPRET;
+            }
+        }
+
+        CompiledBody body = getCompiledBody(loop, ts);
+        return (body == null) ? INTERPRET
+                : body.run(values, null, frame.getParent());
+    }
+
+    private CompiledBody getCompiledBody(ForStm loop, Type[] ts) {
+        CompiledBody result = compiled;
+        if (result != null && !result.isValid()) {
+            // the compiled code has been deoptimized
+            failed = true;
+            compiled = null;
+            return null;
+        }
+        if (result != null) {
+            return Arrays.equals(layout, ts) ? result : null;
+        }
+
+        synchronized (this) {
+            if (compiled == null && !failed) {
+                result = new FunctionCompiler(loop, ts).compile();
+                failed = result == null;
+                layout = ts;
+                compiled = result;
+            }
+            return (compiled != null && Arrays.equals(layout, ts))
+                    ? compiled
+                    : null;
+        }
+    }
+
+}
@@ -18,11 +18,15 @@
 */
 package org.xodonex.hojo.lang.func;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.StandardFunction;
+import org.xodonex.util.ReflectUtils;
 
 public class MethodFunction extends StandardFunction {
 
@@ -31,9 +35,12 @@ public class MethodFunction extends StandardFunction {
     protected Method method;
     protected Class[] argTypes;
     protected boolean isStatic;
+    // takes the receiver and the arguments in a single array
+    protected transient MethodHandle invoker;
 
     public MethodFunction(Method method) {
         this.method = method;
+        invoker = ReflectUtils.getInvoker(method);
         Class[] atypes = method.getParameterTypes();
         isStatic = (method.getModifiers() & Modifier.STATIC) != 0;
         if (isStatic) {
@@ -46,6 +53,13 @@ public class MethodFunction extends StandardFunction {
         }
     }
 
+    // the method handle is not serialized
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        invoker = ReflectUtils.getInvoker(method);
+    }
+
     public Method getMethod() {
         return method;
     }
@@ -68,14 +82,7 @@ public class MethodFunction extends StandardFunction {
     @Override
     public Object invoke(Object[] arguments) {
         try {
-            if (isStatic) {
-                return method.invoke(null, arguments);
-            }
-            else {
-                Object[] args = new Object[arguments.length - 1];
-                System.arraycopy(arguments, 1, args, 0, args.length);
-                return method.invoke(arguments[0], args);
-            }
+            return (Object)invoker.invokeExact(arguments);
         }
         catch (Throwable t) {
             throw HojoException.wrap(t);
@@ -20,6 +20,7 @@ package org.xodonex.hojo.lang.func;
 
 import org.xodonex.hojo.lang.Code;
 import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.Variable;
 
 public class SynchronizedHojoFunction extends HojoFunction {
 
@@ -31,9 +32,53 @@ public class SynchronizedHojoFunction extends HojoFunction {
         super(names, types, defaults, extraName, retType, body, size);
     }
 
+    public SynchronizedHojoFunction(String[] names, Class[] types,
+            Object[] defaults, String extraName, Type retType, Code body,
+            short size, short[] captureSlots, Variable[] captured) {
+        super(names, types, defaults, extraName, retType, body, size,
+                captureSlots, captured);
+    }
+
+    public SynchronizedHojoFunction(String[] names, Class[] types,
+            Object[] defaults, String extraName, Type retType, Code body,
+            short size, short[] captureSlots, Variable[] captured,
+            FunctionProfile profile) {
+        super(names, types, defaults, extraName, retType, body, size,
+                captureSlots, captured, profile);
+    }
+
+    public SynchronizedHojoFunction(String[] names, Class[] types,
+            Object[] defaults, String extraName, Type retType, Code body,
+            short size, short[] captureSlots, Variable[] captured,
+            FunctionProfile profile, boolean exact) {
+        super(names, types, defaults, extraName, retType, body, size,
+                captureSlots, captured, profile, exact);
+    }
+
     @Override
     public synchronized Object invoke(Object[] arguments) {
         return super.invoke(arguments);
     }
 
+    @Override
+    public synchronized Object invoke0() {
+        return super.invoke0();
+    }
+
+    @Override
+    public synchronized Object invoke1(Object arg0) {
+        return super.invoke1(arg0);
+    }
+
+    @Override
+    public synchronized Object invoke2(Object arg0, Object arg1) {
+        return super.invoke2(arg0, arg1);
+    }
+
+    @Override
+    public synchronized Object invoke3(Object arg0, Object arg1,
+            Object arg2) {
+        return super.invoke3(arg0, arg1, arg2);
+    }
+
 }
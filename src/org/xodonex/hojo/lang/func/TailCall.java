@@ -0,0 +1,161 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.lang.func;
+
+import org.xodonex.hojo.lang.Code;
+import org.xodonex.hojo.lang.Expression;
+import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lang.Type;
+import org.xodonex.hojo.lang.expr.ApplyExpr;
+import org.xodonex.hojo.lang.expr.IfThenElseExpr;
+import org.xodonex.hojo.lang.expr.TypecastExpr;
+import org.xodonex.hojo.lang.stm.BlockStatement;
+import org.xodonex.hojo.lang.stm.DoStm;
+import org.xodonex.hojo.lang.stm.ExprBlockStm;
+import org.xodonex.hojo.lang.stm.ForSeqStm;
+import org.xodonex.hojo.lang.stm.ForStm;
+import org.xodonex.hojo.lang.stm.IfStm;
+import org.xodonex.hojo.lang.stm.ReturnStm;
+import org.xodonex.hojo.lang.stm.ShortIfStm;
+import org.xodonex.hojo.lang.stm.SwitchStm;
+import org.xodonex.hojo.lang.stm.WhileStm;
+
+/**
+ * A pending call in tail position of a function body. Instead of invoking a
+ * {@link HojoFunction} from tail position, the calling body returns a
+ * <code>TailCall</code>, which the invoking {@link HojoFunction} then executes
+ * in a loop. Tail recursive functions therefore run in constant stack space.
+ *
+ * @author Henrik Lauritzen
+ */
+public final class TailCall {
+
+    private final HojoFunction function;
+    private final Object[] arguments;
+
+    /**
+     * @param function
+     *            the function to be called.
+     * @param arguments
+     *            the validated arguments to the function.
+     */
+    public TailCall(HojoFunction function, Object[] arguments) {
+        this.function = function;
+        this.arguments = arguments;
+    }
+
+    public HojoFunction getFunction() {
+        return function;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Marks the function applications in tail position of a function body,
+     * ie. the values of <code>return</code> statements and of the body
+     * expression, including the branches of conditional expressions. A call
+     * whose result is converted to the return type of the function is in
+     * tail position as well, as the invoking {@link HojoFunction} converts
+     * the final result. Calls inside <code>try</code> and
+     * <code>synchronized</code> statements are not in tail position, as they
+     * must complete before the statement does.
+     *
+     * @param body
+     *            the function body.
+     * @param retType
+     *            the return type of the function, or <code>null</code> if
+     *            the body is an expression.
+     */
+    public static void mark(Code body, Type retType) {
+        if (body instanceof Expression) {
+            markExpr((Expression)body, null, null);
+        }
+        else if (retType != null && !retType.isVoid()) {
+            // the value of a void function is the function itself
+            markStm((Statement)body, retType);
+        }
+    }
+
+    private static void markStm(Statement s, Type rt) {
+        if (s instanceof BlockStatement) {
+            markStms(((BlockStatement)s).getStatements(), rt);
+        }
+        else if (s instanceof ShortIfStm) {
+            markStm(((ShortIfStm)s).getBlock(), rt);
+            if (s instanceof IfStm) {
+                markStm(((IfStm)s).getAlternative(), rt);
+            }
+        }
+        else if (s instanceof WhileStm || s instanceof DoStm) {
+            markStm(((ExprBlockStm)s).getBlock(), rt);
+        }
+        else if (s instanceof ForStm) {
+            markStms(((ForStm)s).getBody(), rt);
+        }
+        else if (s instanceof ForSeqStm) {
+            markStms(((ForSeqStm)s).getBody(), rt);
+        }
+        else if (s instanceof SwitchStm) {
+            markStms(((SwitchStm)s).getBlocks(), rt);
+        }
+        else if (s instanceof ReturnStm) {
+            Expression e = ((ReturnStm)s).getValue();
+            if (e != null) {
+                markExpr(e, null, rt);
+            }
+        }
+    }
+
+    private static void markStms(Statement[] stms, Type rt) {
+        for (int i = 0; i < stms.length; i++) {
+            markStm(stms[i], rt);
+        }
+    }
+
+    // The value of e is converted to the type t, unless t is null, and the
+    // result of the function is converted to the type rt, unless rt is null
+    private static void markExpr(Expression e, Type t, Type rt) {
+        if (e.getClass() == TypecastExpr.class && rt != null &&
+                e.getType().equals(rt) && (t == null || t.equals(rt))) {
+            // a conversion to the return type is done by the invoking
+            // function, after the call has been performed
+            ((TypecastExpr)e).setTailCall();
+            markExpr(((TypecastExpr)e).getArgument(), null, rt);
+            return;
+        }
+
+        if (t != null && TypecastExpr.needConversion(t, e.getType())) {
+            // the result of the call must be converted by the caller
+            return;
+        }
+
+        if (e.getClass() == ApplyExpr.class) {
+            ((ApplyExpr)e).setTailCall();
+        }
+        else if (e instanceof IfThenElseExpr) {
+            IfThenElseExpr i = (IfThenElseExpr)e;
+            Type t_ = (t == null) ? e.getType() : t;
+            markExpr(i.getSecond(), t_, rt);
+            markExpr(i.getThird(), t_, rt);
+        }
+    }
+
+}
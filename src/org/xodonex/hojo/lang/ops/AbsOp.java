@@ -47,8 +47,8 @@ public final class AbsOp extends UnaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.abs(ConvertUtils.toNumber(arguments[0], true));
+    public Object invoke1(Object arg0) throws HojoException {
+        return HojoLib.abs(ConvertUtils.toNumber(arg0, true));
     }
 
     @Override
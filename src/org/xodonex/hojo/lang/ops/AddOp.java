@@ -93,35 +93,40 @@ public final class AddOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        Object obj = arguments[0];
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        Object obj = arg0;
         if (obj == null) {
             return HojoLib.add(ConvertUtils.ZERO_INT,
-                    ConvertUtils.toNumber(arguments[1], true));
+                    ConvertUtils.toNumber(arg1, true));
         }
         else if (obj instanceof Number) {
-            return HojoLib.add((Number)arguments[0],
-                    ConvertUtils.toNumber(arguments[1], true));
+            return HojoLib.add((Number)arg0,
+                    ConvertUtils.toNumber(arg1, true));
         }
         else if (obj instanceof Character || obj instanceof byte[] ||
                 obj instanceof Date) {
-            return HojoLib.add(ConvertUtils.toNumber(arguments[0], true),
-                    ConvertUtils.toNumber(arguments[1], true));
+            return HojoLib.add(ConvertUtils.toNumber(arg0, true),
+                    ConvertUtils.toNumber(arg1, true));
         }
         else if (obj instanceof StringBuffer) {
-            return HojoLib.add((StringBuffer)obj, arguments[1]);
+            return HojoLib.add((StringBuffer)obj, arg1);
         }
         else if (obj instanceof Collection) {
-            return HojoLib.add((Collection)obj, arguments[1]);
+            return HojoLib.add((Collection)obj, arg1);
         }
         else if (obj instanceof Map) {
-            return HojoLib.add((Map)obj, ConvertUtils.toMap(arguments[1]));
+            return HojoLib.add((Map)obj, ConvertUtils.toMap(arg1));
         }
         else if (obj instanceof Iterator) {
             return new ConcatIterator((Iterator)obj,
-                    ConvertUtils.toIterator(arguments[1]));
+                    ConvertUtils.toIterator(arg1));
         }
         else {
-            return HojoLib.add(ConvertUtils.toString(obj), arguments[1]);
+            return HojoLib.add(ConvertUtils.toString(obj), arg1);
         }
     }
 
@@ -47,13 +47,13 @@ public final class AndOp extends BinaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        if (arguments[0] instanceof Boolean) {
-            return HojoLib.and((Boolean)arguments[0], arguments[1]);
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        if (arg0 instanceof Boolean) {
+            return HojoLib.and((Boolean)arg0, arg1);
         }
         else {
-            return HojoLib.and(ConvertUtils.toBits(arguments[0]),
-                    ConvertUtils.toBits(arguments[1]));
+            return HojoLib.and(ConvertUtils.toBits(arg0),
+                    ConvertUtils.toBits(arg1));
         }
     }
 
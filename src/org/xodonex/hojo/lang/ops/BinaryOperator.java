@@ -20,6 +20,7 @@ package org.xodonex.hojo.lang.ops;
 
 import java.util.Collection;
 
+import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.lang.Type;
 
@@ -45,6 +46,14 @@ public abstract class BinaryOperator extends AbstractOperator {
         return 2;
     }
 
+    @Override
+    public Object invoke(Object[] arguments) throws HojoException {
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public abstract Object invoke2(Object arg0, Object arg1) throws HojoException;
+
     @Override
     public Class[] getParameterTypes() {
         int type = getOpType();
@@ -56,9 +56,9 @@ public abstract class BitShiftOperator extends BinaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] args) throws HojoException {
-        return invoke(ConvertUtils.toBits(args[0]),
-                ConvertUtils.toInt(args[1]));
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return invoke(ConvertUtils.toBits(arg0),
+                ConvertUtils.toInt(arg1));
     }
 
     protected abstract Number invoke(Number n, int bits);
@@ -52,14 +52,19 @@ public abstract class CompareOperator extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] args) throws HojoException {
-        Object badObj = args[0];
+        return invoke2(args[0], args[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        Object badObj = arg0;
         Comparable c1;
         Comparable c2;
 
         try {
-            c1 = (Comparable)args[0];
-            badObj = args[1];
-            c2 = (Comparable)args[1];
+            c1 = (Comparable)arg0;
+            badObj = arg1;
+            c2 = (Comparable)arg1;
         }
         catch (ClassCastException e) {
             throw new HojoException(e, HojoException.ERR_TYPE,
@@ -66,8 +66,13 @@ public final class ComposeOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.compose(HojoLib.toFunction(arguments[0]),
-                HojoLib.toFunction(arguments[1]));
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return HojoLib.compose(HojoLib.toFunction(arg0),
+                HojoLib.toFunction(arg1));
     }
 
     @Override
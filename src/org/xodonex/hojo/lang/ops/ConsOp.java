@@ -72,7 +72,12 @@ public final class ConsOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.cons(arguments[0], ConvertUtils.toList(arguments[1]));
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return HojoLib.cons(arg0, ConvertUtils.toList(arg1));
     }
 
     @Override
@@ -73,9 +73,14 @@ public final class CountSeqOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.countSeq(arguments[0],
-                ConvertUtils.toInt(arguments[1]),
-                HojoLib.toFunction(arguments[2]));
+        return invoke3(arguments[0], arguments[1], arguments[2]);
+    }
+
+    @Override
+    public Object invoke3(Object arg0, Object arg1, Object arg2) throws HojoException {
+        return HojoLib.countSeq(arg0,
+                ConvertUtils.toInt(arg1),
+                HojoLib.toFunction(arg2));
     }
 
     @Override
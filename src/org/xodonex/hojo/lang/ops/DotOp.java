@@ -69,8 +69,13 @@ public final class DotOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        Object base = arguments[0];
-        String name = ConvertUtils.toString(arguments[1]);
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        Object base = arg0;
+        String name = ConvertUtils.toString(arg1);
         try {
             if (name.equals(className)) {
                 return base.getClass();
@@ -80,7 +85,7 @@ public final class DotOp extends AbstractOperator {
                 return ((Map)base).get(name);
             }
             else if (base instanceof HObject) {
-                return ((HObject)base).get(name).getValue();
+                return ((HObject)base).getValue(name);
             }
             else if (name.equals("length") && base.getClass().isArray()) {
                 return new Integer(Array.getLength(base));
@@ -66,8 +66,13 @@ public final class ElemOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return (HojoLib.elem(arguments[0],
-                ConvertUtils.toCollection(arguments[1]))) ? Boolean.TRUE
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return (HojoLib.elem(arg0,
+                ConvertUtils.toCollection(arg1))) ? Boolean.TRUE
                         : Boolean.FALSE;
     }
 
@@ -66,7 +66,12 @@ public final class HexOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.toHexString(ConvertUtils.toNumber(arguments[0], true));
+        return invoke1(arguments[0]);
+    }
+
+    @Override
+    public Object invoke1(Object arg0) throws HojoException {
+        return HojoLib.toHexString(ConvertUtils.toNumber(arg0, true));
     }
 
     @Override
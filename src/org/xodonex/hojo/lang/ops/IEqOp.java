@@ -65,7 +65,12 @@ public final class IEqOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return arguments[0] == arguments[1] ? Boolean.TRUE : Boolean.FALSE;
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return arg0 == arg1 ? Boolean.TRUE : Boolean.FALSE;
     }
 
     @Override
@@ -64,7 +64,12 @@ public final class IdOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return arguments[0];
+        return invoke1(arguments[0]);
+    }
+
+    @Override
+    public Object invoke1(Object arg0) throws HojoException {
+        return arg0;
     }
 
     @Override
@@ -66,7 +66,12 @@ public final class IofOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.iof(arguments[0], ConvertUtils.toClass(arguments[1]))
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return HojoLib.iof(arg0, ConvertUtils.toClass(arg1))
                 ? Boolean.TRUE
                 : Boolean.FALSE;
     }
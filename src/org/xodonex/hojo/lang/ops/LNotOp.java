@@ -47,8 +47,8 @@ public final class LNotOp extends UnaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.lNot(ConvertUtils.toBoolObj(arguments[0], true));
+    public Object invoke1(Object arg0) throws HojoException {
+        return HojoLib.lNot(ConvertUtils.toBoolObj(arg0, true));
     }
 
     @Override
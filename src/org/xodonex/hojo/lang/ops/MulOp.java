@@ -89,15 +89,18 @@ public final class MulOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        Object arg1 = arguments[0];
+        return invoke2(arguments[0], arguments[1]);
+    }
 
-        if (arg1 instanceof Object[]) {
-            return HojoLib.mul((Object[])arg1, (Object[])HojoLib.toArray(
-                    arguments[1], Object[].class, Object.class, false));
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        if (arg0 instanceof Object[]) {
+            return HojoLib.mul((Object[])arg0, (Object[])HojoLib.toArray(
+                    arg1, Object[].class, Object.class, false));
         }
-        else if (arg1 instanceof String || arg1 instanceof StringBuffer) {
-            String s = ConvertUtils.toString(arg1);
-            int count = ConvertUtils.toInt(arguments[1]);
+        else if (arg0 instanceof String || arg0 instanceof StringBuffer) {
+            String s = ConvertUtils.toString(arg0);
+            int count = ConvertUtils.toInt(arg1);
             if (count <= 0) {
                 return "";
             }
@@ -105,18 +108,18 @@ public final class MulOp extends AbstractOperator {
             while (count-- > 0) {
                 buf.append(s);
             }
-            if (arg1 instanceof StringBuffer) {
+            if (arg0 instanceof StringBuffer) {
                 return buf;
             }
             else {
                 return buf.toString();
             }
         }
-        else if (arg1 instanceof Collection && !(arg1 instanceof Set)) {
-            Collection coll = (Collection)arg1;
+        else if (arg0 instanceof Collection && !(arg0 instanceof Set)) {
+            Collection coll = (Collection)arg0;
             try {
                 Collection result = coll.getClass().newInstance();
-                int count = ConvertUtils.toInt(arguments[1]);
+                int count = ConvertUtils.toInt(arg1);
                 while (count-- > 0) {
                     result.addAll(coll);
                 }
@@ -127,8 +130,8 @@ public final class MulOp extends AbstractOperator {
             }
         }
         else {
-            return HojoLib.mul(ConvertUtils.toNumber(arg1, true),
-                    ConvertUtils.toNumber(arguments[1], true));
+            return HojoLib.mul(ConvertUtils.toNumber(arg0, true),
+                    ConvertUtils.toNumber(arg1, true));
         }
     }
 
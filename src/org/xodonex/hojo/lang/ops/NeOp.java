@@ -65,7 +65,12 @@ public final class NeOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.ne(arguments[0], arguments[1]) ? Boolean.TRUE
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return HojoLib.ne(arg0, arg1) ? Boolean.TRUE
                 : Boolean.FALSE;
     }
 
@@ -47,8 +47,8 @@ public final class NegOp extends UnaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.neg(ConvertUtils.toNumber(arguments[0], true));
+    public Object invoke1(Object arg0) throws HojoException {
+        return HojoLib.neg(ConvertUtils.toNumber(arg0, true));
     }
 
     @Override
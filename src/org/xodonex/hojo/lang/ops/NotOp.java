@@ -47,8 +47,8 @@ public final class NotOp extends UnaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.not(ConvertUtils.toBits(arguments[0]));
+    public Object invoke1(Object arg0) throws HojoException {
+        return HojoLib.not(ConvertUtils.toBits(arg0));
     }
 
     @Override
@@ -77,9 +77,9 @@ public final class PowOp extends BinaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return HojoLib.pow(ConvertUtils.toNumber(arguments[0], true),
-                ConvertUtils.toNumber(arguments[1], true));
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return HojoLib.pow(ConvertUtils.toNumber(arg0, true),
+                ConvertUtils.toNumber(arg1, true));
     }
 
     @Override
@@ -55,8 +55,8 @@ public final class SourceOp extends UnaryOperator {
     }
 
     @Override
-    public Object invoke(Object[] arguments) throws HojoException {
-        return _stx.toHojoString(arguments[0], null, "");
+    public Object invoke1(Object arg0) throws HojoException {
+        return _stx.toHojoString(arg0, null, "");
     }
 
     @Override
@@ -74,12 +74,17 @@ public final class SubOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        if (arguments[0] instanceof Collection) {
-            return HojoLib.sub((Collection)arguments[0], arguments[1]);
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        if (arg0 instanceof Collection) {
+            return HojoLib.sub((Collection)arg0, arg1);
         }
         else {
-            return HojoLib.sub(ConvertUtils.toNumber(arguments[0], true),
-                    ConvertUtils.toNumber(arguments[1], true));
+            return HojoLib.sub(ConvertUtils.toNumber(arg0, true),
+                    ConvertUtils.toNumber(arg1, true));
         }
     }
 
@@ -66,8 +66,13 @@ public final class SubsetOp extends AbstractOperator {
 
     @Override
     public Object invoke(Object[] arguments) throws HojoException {
-        return (HojoLib.subset(ConvertUtils.toCollection(arguments[0]),
-                ConvertUtils.toCollection(arguments[1]))) ? Boolean.TRUE
+        return invoke2(arguments[0], arguments[1]);
+    }
+
+    @Override
+    public Object invoke2(Object arg0, Object arg1) throws HojoException {
+        return (HojoLib.subset(ConvertUtils.toCollection(arg0),
+                ConvertUtils.toCollection(arg1))) ? Boolean.TRUE
                         : Boolean.FALSE;
     }
 
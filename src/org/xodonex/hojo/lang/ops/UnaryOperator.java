@@ -20,6 +20,7 @@ package org.xodonex.hojo.lang.ops;
 
 import java.util.Collection;
 
+import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.lang.Type;
 
@@ -42,6 +43,14 @@ public abstract class UnaryOperator extends AbstractOperator {
         return 1;
     }
 
+    @Override
+    public Object invoke(Object[] arguments) throws HojoException {
+        return invoke1(arguments[0]);
+    }
+
+    @Override
+    public abstract Object invoke1(Object arg0) throws HojoException;
+
     @Override
     public Class[] getParameterTypes() {
         int type = getOpType();
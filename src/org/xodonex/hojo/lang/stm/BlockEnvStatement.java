@@ -21,6 +21,7 @@ package org.xodonex.hojo.lang.stm;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.env.DummyEnv;
 import org.xodonex.hojo.lang.env.Env;
 import org.xodonex.util.StringUtils;
@@ -30,6 +31,7 @@ public class BlockEnvStatement extends BlockStatement {
     private static final long serialVersionUID = 1L;
 
     short size;
+    private transient volatile Type[] types; // cf. Env.getTypes()
 
     public BlockEnvStatement(Statement[] stms, short size) {
         super(stms);
@@ -43,7 +45,13 @@ public class BlockEnvStatement extends BlockStatement {
 
     @Override
     public Object run(Environment env) throws Throwable {
-        return super.run(new Env(env, size));
+        Type[] ts = types;
+        Env blockEnv = (ts != null) ? new Env(env, ts) : new Env(env, size);
+        Object result = super.run(blockEnv);
+        if (ts == null) {
+            types = blockEnv.getTypes();
+        }
+        return result;
     }
 
     @Override
@@ -58,4 +66,8 @@ public class BlockEnvStatement extends BlockStatement {
         return result.toString();
     }
 
+    public short getSize() {
+        return size;
+    }
+
 }
@@ -23,6 +23,7 @@ import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.UnreachableStatementException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class BlockStatement extends Statement {
@@ -68,7 +69,10 @@ public class BlockStatement extends Statement {
     public Object run(Environment env) throws Throwable {
         Object result = null;
         for (int i = 0; i < stms.length; i++) {
-            result = stms[i].run(env);
+            if ((result = stms[i].run(env)) instanceof Completion) {
+                // abrupt completion
+                break;
+            }
         }
         return result;
     }
@@ -95,4 +99,8 @@ public class BlockStatement extends Statement {
         return checkBlock(stms, rt);
     }
 
+    public Statement[] getStatements() {
+        return stms;
+    }
+
 }
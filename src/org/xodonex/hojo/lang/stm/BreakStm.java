@@ -21,7 +21,7 @@ package org.xodonex.hojo.lang.stm;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Statement;
-import org.xodonex.hojo.util.BreakException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public final class BreakStm extends Statement {
@@ -33,14 +33,9 @@ public final class BreakStm extends Statement {
     private BreakStm() {
     }
 
-    @Override
-    public Object xeq(Environment env) {
-        throw BreakException.BREAK;
-    }
-
     @Override
     public Object run(Environment env) {
-        throw BreakException.BREAK;
+        return Completion.BREAK;
     }
 
     @Override
@@ -32,7 +32,7 @@ public class ClassDeclStm extends ValueDeclStm {
     protected short size;
     protected short level;
 
-    public ClassDeclStm(String name, short modifiers, short baseAddr,
+    public ClassDeclStm(String name, short modifiers, int baseAddr,
             Statement init, short size, short level) {
         super(name, HClassType.getInstance(), modifiers, baseAddr, init);
         this.level = level;
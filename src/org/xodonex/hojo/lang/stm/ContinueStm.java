@@ -21,7 +21,7 @@ package org.xodonex.hojo.lang.stm;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Statement;
-import org.xodonex.hojo.util.ContinueException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public final class ContinueStm extends Statement {
@@ -33,14 +33,9 @@ public final class ContinueStm extends Statement {
     private ContinueStm() {
     }
 
-    @Override
-    public Object xeq(Environment env) {
-        throw ContinueException.CONTINUE;
-    }
-
     @Override
     public Object run(Environment env) {
-        throw ContinueException.CONTINUE;
+        return Completion.CONTINUE;
     }
 
     @Override
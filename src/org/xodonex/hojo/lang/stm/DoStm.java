@@ -22,8 +22,7 @@ import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
-import org.xodonex.hojo.util.BreakException;
-import org.xodonex.hojo.util.ContinueException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.StringUtils;
 
@@ -39,21 +38,22 @@ public class DoStm extends ExprBlockStm {
     public Object run(Environment env) throws Throwable {
         Object result = null;
         Thread t = Thread.currentThread();
-        try {
-            do {
-                try {
-                    result = block.run(env);
-                    if (t.isInterrupted()) {
-                        throw new InterruptedException();
-                    }
+        do {
+            if ((result = block.run(env)) instanceof Completion) {
+                Completion c = (Completion)result;
+                if (c == Completion.BREAK) {
+                    return null;
                 }
-                catch (ContinueException e) {
-                    continue;
+                else if (c != Completion.CONTINUE) {
+                    return c;
                 }
-            } while (ConvertUtils.toBool(expr.xeq(env)));
-        }
-        catch (BreakException e) {
-        }
+                result = null;
+                continue;
+            }
+            if (t.isInterrupted()) {
+                throw new InterruptedException();
+            }
+        } while (ConvertUtils.toBool(expr.xeq(env)));
         return result;
     }
 
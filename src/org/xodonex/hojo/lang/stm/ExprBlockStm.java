@@ -90,4 +90,13 @@ public abstract class ExprBlockStm extends Statement {
         }
         return result;
     }
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    public Statement getBlock() {
+        return block;
+    }
+
 }
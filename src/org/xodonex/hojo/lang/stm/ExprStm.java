@@ -22,6 +22,7 @@ import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class ExprStm extends Statement {
@@ -62,7 +63,7 @@ public class ExprStm extends Statement {
 
     @Override
     public Object run(Environment env) {
-        return expr.xeq(env);
+        return Completion.wrap(expr.xeq(env));
     }
 
     @Override
@@ -30,8 +30,8 @@ import org.xodonex.hojo.lang.UnreachableStatementException;
 import org.xodonex.hojo.lang.Variable;
 import org.xodonex.hojo.lang.env.DummyEnv;
 import org.xodonex.hojo.lang.env.Env;
-import org.xodonex.hojo.util.BreakException;
-import org.xodonex.hojo.util.ContinueException;
+import org.xodonex.hojo.lang.expr.LoopInvariant;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.StringUtils;
 
@@ -61,6 +61,12 @@ public class ForSeqStm extends Statement {
         for (int i = body.length - 1; i >= 0; i--) {
             body[i] = body[i].optimize(level);
         }
+        if (level >= 2) {
+            // cf. ForStm.optimize()
+            envSize += LoopInvariant.hoist(null, null, body,
+                    (countName == null) ? new int[] { 0 } : new int[] { 0, 1 },
+                    envSize);
+        }
         return this;
     }
 
@@ -99,27 +105,31 @@ public class ForSeqStm extends Statement {
 
         Thread t = Thread.currentThread();
         Environment env2 = new Env(env, envSize);
-        Variable var = env2.alloc((short)0, true, varName, varType, null);
+        env2.alloc((short)0, true, varName, varType, null);
+        Variable var = env2.get((short)0);
         Variable count = null;
         int counter = 0;
         if (countName != null) {
-            count = env2.alloc((short)1, true, countName, HojoLib.INT_TYPE,
+            env2.alloc((short)1, true, countName, HojoLib.INT_TYPE,
                     ConvertUtils.ZERO_INT);
+            count = env2.get((short)1);
         }
 
-        while (true) {
-            try {
-                var.set(Variable.MODIFY_FINAL, varType.typeCast(seq.next()));
-                for (int i = 0; i < body.length; i++) {
-                    body[i].run(env2);
+        loop: while (true) {
+            var.set(Variable.MODIFY_FINAL, varType.typeCast(seq.next()));
+            for (int i = 0; i < body.length; i++) {
+                Object r = body[i].run(env2);
+                if (r instanceof Completion) {
+                    if (r == Completion.BREAK) {
+                        break loop;
+                    }
+                    else if (r != Completion.CONTINUE) {
+                        return r;
+                    }
+                    // continue the loop execution
+                    break;
                 }
             }
-            catch (ContinueException e) {
-                // continue the loop execution
-            }
-            catch (BreakException e) {
-                break;
-            }
 
             if (t.isInterrupted()) {
                 throw new InterruptedException();
@@ -168,4 +178,12 @@ public class ForSeqStm extends Statement {
         return checkBlock(body, rt);
     }
 
+    public Expression getSequence() {
+        return sequence;
+    }
+
+    public Statement[] getBody() {
+        return body;
+    }
+
 }
@@ -26,8 +26,9 @@ import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.UnreachableStatementException;
 import org.xodonex.hojo.lang.env.DummyEnv;
 import org.xodonex.hojo.lang.env.Env;
-import org.xodonex.hojo.util.BreakException;
-import org.xodonex.hojo.util.ContinueException;
+import org.xodonex.hojo.lang.expr.LoopInvariant;
+import org.xodonex.hojo.lang.func.LoopProfile;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.StringUtils;
 
@@ -40,14 +41,21 @@ public class ForStm extends Statement {
     protected Statement update;
     protected Statement[] body;
     protected short envSize;
+    protected LoopProfile profile; // determines when the loop is compiled
 
     public ForStm(Statement init, Expression cond, Statement update,
             Statement[] body, short size) {
+        this(init, cond, update, body, size, null);
+    }
+
+    public ForStm(Statement init, Expression cond, Statement update,
+            Statement[] body, short size, LoopProfile profile) {
         this.init = init;
         this.cond = cond;
         this.update = update;
         this.body = body;
         this.envSize = size;
+        this.profile = profile;
     }
 
     @Override
@@ -64,6 +72,11 @@ public class ForStm extends Statement {
         for (int i = body.length - 1; i >= 0; i--) {
             body[i] = body[i].optimize(level);
         }
+        if (level >= 2) {
+            // the values of loop-invariant expressions are kept in additional
+            // slots of the loop frame
+            envSize += LoopInvariant.hoist(cond, update, body, null, envSize);
+        }
         return this;
     }
 
@@ -85,7 +98,7 @@ public class ForStm extends Statement {
         }
 
         if (modified || init_ != init || cond_ != cond || update_ != update) {
-            return new ForStm(init_, cond_, update_, body_, envSize);
+            return new ForStm(init_, cond_, update_, body_, envSize, profile);
         }
         else {
             return this;
@@ -94,32 +107,42 @@ public class ForStm extends Statement {
 
     @Override
     public Object run(Environment env) throws Throwable {
-        Environment env2 = new Env(env, envSize);
+        Env env2 = new Env(env, envSize);
 
         if (init != null) {
             init.run(env2);
         }
 
         Thread t = Thread.currentThread();
-        try {
-            while (cond == null || ConvertUtils.toBool(cond.xeq(env2))) {
-                try {
-                    for (int i = 0; i < body.length; i++) {
-                        body[i].run(env2);
+        LoopProfile p = profile;
+        loop: while (cond == null || ConvertUtils.toBool(cond.xeq(env2))) {
+            for (int i = 0; i < body.length; i++) {
+                Object r = body[i].run(env2);
+                if (r instanceof Completion) {
+                    if (r == Completion.BREAK) {
+                        break loop;
                     }
+                    else if (r != Completion.CONTINUE) {
+                        return r;
+                    }
+                    break;
                 }
-                catch (ContinueException e) {
-                }
+            }
 
-                if (t.isInterrupted()) {
-                    throw new InterruptedException();
-                }
-                if (update != null) {
-                    update.run(env2);
+            if (t.isInterrupted()) {
+                throw new InterruptedException();
+            }
+            if (p != null && p.isHot()) {
+                // continue in compiled code, cf. LoopProfile
+                Object r = p.resume(this, env2);
+                if (r != LoopProfile.INTERPRET) {
+                    return r;
                 }
+                p = null;
+            }
+            if (update != null) {
+                update.run(env2);
             }
-        }
-        catch (BreakException e) {
         }
 
         return null;
@@ -167,4 +190,24 @@ public class ForStm extends Statement {
         return checkBlock(body, rt);
     }
 
+    public Statement getInit() {
+        return init;
+    }
+
+    public Expression getCondition() {
+        return cond;
+    }
+
+    public Statement getUpdate() {
+        return update;
+    }
+
+    public Statement[] getBody() {
+        return body;
+    }
+
+    public short getEnvSize() {
+        return envSize;
+    }
+
 }
@@ -21,14 +21,16 @@ package org.xodonex.hojo.lang.stm;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
+import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Function;
 import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.Variable;
 import org.xodonex.hojo.lang.env.ClassEnv;
-import org.xodonex.hojo.lang.env.DummyEnv;
+import org.xodonex.hojo.lang.func.FunctionProfile;
 import org.xodonex.hojo.lang.func.HojoFunction;
 import org.xodonex.hojo.lang.func.SynchronizedHojoFunction;
+import org.xodonex.hojo.lang.func.TailCall;
 import org.xodonex.hojo.lang.type.FunctionType;
 import org.xodonex.util.ReflectUtils;
 import org.xodonex.util.StringUtils;
@@ -41,20 +43,81 @@ public class FuncCreateStm extends FuncDeclStm {
     protected Class[] argTypes;
     protected Object[] defaults;
     protected String extraName;
-    protected short level;
     protected short size;
+    protected Expression[] captures; // relative to the defining environment
+    protected short[] captureSlots;
+    protected FunctionProfile profile; // shared by the created functions
+    protected boolean exact; // whether the result is known to conform
+    protected boolean method; // whether this declares a method of a class
 
+    // the method shared by the instances of the class, cf. create()
+    private transient volatile HojoFunction shared = null;
+
+    public FuncCreateStm(String name, FunctionType funcType, short modifiers,
+            int addr, String[] names, Class[] types, Object[] defaults,
+            String extraName,
+            Type retType, Statement body, short size,
+            Expression[] captures, short[] captureSlots,
+            FunctionProfile profile, boolean exact) {
+        this(name, funcType, modifiers, addr, names, types, defaults,
+                extraName, retType, body, size, captures, captureSlots,
+                profile, exact, false);
+    }
+
+    /**
+     * @param method
+     *            whether the function is a method of a class, whose body
+     *            accesses the members of the class through the receiver (cf.
+     *            {@link org.xodonex.hojo.lang.env.FunctionEnv}).
+     */
     public FuncCreateStm(String name, FunctionType funcType, short modifiers,
-            short addr, String[] names, Class[] types, Object[] defaults,
+            int addr, String[] names, Class[] types, Object[] defaults,
             String extraName,
-            Type retType, Statement body, short size, short level) {
+            Type retType, Statement body, short size,
+            Expression[] captures, short[] captureSlots,
+            FunctionProfile profile, boolean exact, boolean method) {
         super(name, funcType, modifiers, addr, retType, body);
         this.argNames = names;
         this.argTypes = types;
         this.defaults = defaults;
         this.extraName = extraName;
         this.size = size;
-        this.level = level;
+        this.captures = captures;
+        this.captureSlots = captureSlots;
+        this.profile = profile;
+        this.exact = exact;
+        this.method = method;
+        TailCall.mark(body, retType);
+    }
+
+    @Override
+    public Statement linkVars(Environment env, short maxLvl) {
+        // the body refers to outer variables only through the captured
+        // variables, which are resolved in the defining environment.
+        if (captures == null) {
+            return this;
+        }
+
+        Expression[] captures_ = null;
+        for (int i = 0; i < captures.length; i++) {
+            Expression c = captures[i].linkVars(env, maxLvl);
+            if (c != captures[i]) {
+                if (captures_ == null) {
+                    captures_ = captures.clone();
+                }
+                captures_[i] = c;
+            }
+        }
+
+        if (captures_ == null) {
+            return this;
+        }
+        else {
+            FuncCreateStm result = (FuncCreateStm)clone();
+            result.captures = captures_;
+            result.shared = null;
+            return result;
+        }
     }
 
     @Override
@@ -64,36 +127,84 @@ public class FuncCreateStm extends FuncDeclStm {
 
     @Override
     public Object run(Environment env) {
+        Object func = create(env);
+
+        // Update the class environment, if this is a public declaration
+        if ((modifiers & MOD_PUBLIC) != 0) {
+            ((ClassEnv)env).addMember(name, baseAddr);
+        }
+
+        return func;
+    }
+
+    /**
+     * Creates the function and stores it in its variable, without updating
+     * the class environment.
+     *
+     * @return the created function.
+     */
+    public Object create(Environment env) {
+        if (method) {
+            // A method is created once for its class, and is bound to the
+            // environment of each instance. The variables captured by a
+            // method have been linked by the declaration of the class, and
+            // are the same for every instance.
+            HojoFunction func = shared;
+            if (func == null) {
+                shared = func = newFunction(
+                        HojoFunction.capture(captures, env));
+            }
+            func = func.bind(env);
+
+            // the slot is empty until the method is created, cf.
+            // ClassEnv.addMethod()
+            env.alloc(baseAddr, (modifiers & MOD_FINAL) != 0, name, funcType,
+                    func);
+            return func;
+        }
+
         Variable v = env.get(baseAddr);
         if (v == null) {
             // allocate an empty variable
-            v = env.alloc(baseAddr, (modifiers & MOD_FINAL) != 0, name,
-                    funcType, null);
+            env.alloc(baseAddr, (modifiers & MOD_FINAL) != 0, name, funcType,
+                    null);
+            v = env.get(baseAddr);
         }
 
-        // Create the resulting function, and link any external variables
+        // Create the resulting function, and capture any external variables
         // (this may include the newly created variable)
-        HojoFunction func = (modifiers & MOD_SYNCHRONIZED) != 0
-                ? new SynchronizedHojoFunction(argNames, argTypes, defaults,
-                        extraName, typ,
-                        ((Statement)init).linkVars(new DummyEnv(env), level),
-                        size)
-                : new HojoFunction(argNames, argTypes, defaults, extraName, typ,
-                        ((Statement)init).linkVars(new DummyEnv(env), level),
-                        size);
+        HojoFunction func = newFunction(HojoFunction.capture(captures, env));
 
         // Store the value into the newly allocated variable, and return the
         // result
         // HACK: use Variable.MODIFY_FINAL as resolvent to allow final variables
         // to be updated at this particular place
         v.set(Variable.MODIFY_FINAL, func);
+        return func;
+    }
 
-        // Update the class environment, if this is a public declaration
+    private HojoFunction newFunction(Variable[] cells) {
+        return (modifiers & MOD_SYNCHRONIZED) != 0
+                ? new SynchronizedHojoFunction(argNames, argTypes, defaults,
+                        extraName, typ, (Statement)init, size, captureSlots,
+                        cells, profile, exact)
+                : new HojoFunction(argNames, argTypes, defaults, extraName, typ,
+                        (Statement)init, size, captureSlots, cells, profile,
+                        exact);
+    }
+
+    /**
+     * Declares the function as a method of a class, such that it is created by
+     * {@link #create(Environment)} when the variable holding it is first
+     * accessed.
+     *
+     * @see ClassEnv#addMethod(int, FuncCreateStm)
+     */
+    public void declare(ClassEnv env) {
+        env.addMethod(baseAddr, this);
         if ((modifiers & MOD_PUBLIC) != 0) {
-            ((ClassEnv)env).addMember(name, baseAddr);
+            env.addMember(name, baseAddr);
         }
-
-        return func;
     }
 
     @Override
@@ -35,7 +35,7 @@ public class FuncDeclStm extends ValueDeclStm {
     protected FunctionType funcType;
 
     public FuncDeclStm(String name, FunctionType funcType, short modifiers,
-            short addr, Type retType, Statement body) {
+            int addr, Type retType, Statement body) {
         super(name, retType, modifiers, addr, body);
         this.funcType = funcType;
     }
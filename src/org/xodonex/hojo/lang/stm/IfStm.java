@@ -44,6 +44,11 @@ public class IfStm extends ShortIfStm {
         return super.optimize(level);
     }
 
+    @Override
+    protected Statement getElse() {
+        return alt;
+    }
+
     @Override
     public Statement linkVars(Environment env, short maxLvl) {
         Statement result = super.linkVars(env, maxLvl);
@@ -89,4 +94,8 @@ public class IfStm extends ShortIfStm {
         return alt.checkCode(rt);
     }
 
+    public Statement getAlternative() {
+        return alt;
+    }
+
 }
@@ -25,7 +25,7 @@ import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.UnreachableStatementException;
 import org.xodonex.hojo.lang.type.VoidType;
-import org.xodonex.hojo.util.ReturnException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class ReturnStm extends Statement {
@@ -63,7 +63,8 @@ public class ReturnStm extends Statement {
 
     @Override
     public Object run(Environment env) {
-        throw new ReturnException(value == null ? null : value.xeq(env));
+        return (value == null) ? Completion.RETURN
+                : Completion.returnValue(value.xeq(env));
     }
 
     @Override
@@ -85,4 +86,8 @@ public class ReturnStm extends Statement {
         return (rt == null) ? t : rt.union(t);
     }
 
+    public Expression getValue() {
+        return value;
+    }
+
 }
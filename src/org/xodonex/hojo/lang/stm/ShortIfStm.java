@@ -19,6 +19,7 @@
 package org.xodonex.hojo.lang.stm;
 
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
@@ -33,6 +34,26 @@ public class ShortIfStm extends ExprBlockStm {
         super(expr, block);
     }
 
+    @Override
+    public Statement optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && expr instanceof Const) {
+            // remove the dead branch
+            Object cond = ((Const)expr).getValue();
+            if (cond instanceof Boolean) {
+                return ((Boolean)cond).booleanValue() ? block : getElse();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the statement executed when the condition is false.
+     */
+    protected Statement getElse() {
+        return NOP.NOP;
+    }
+
     @Override
     public Object run(Environment env) throws Throwable {
         if (ConvertUtils.toBool(expr.xeq(env))) {
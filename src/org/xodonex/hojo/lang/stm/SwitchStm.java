@@ -18,6 +18,9 @@
 */
 package org.xodonex.hojo.lang.stm;
 
+import java.math.BigInteger;
+import java.util.HashMap;
+
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
 import org.xodonex.hojo.lang.Const;
@@ -26,7 +29,7 @@ import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.UnreachableStatementException;
-import org.xodonex.hojo.util.BreakException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class SwitchStm extends Statement {
@@ -37,6 +40,9 @@ public class SwitchStm extends Statement {
     protected Statement[] blocks;
     protected Expression[] guards;
 
+    // the dispatch table, which is created on the first execution
+    private transient volatile Table table;
+
     public SwitchStm(Expression expr, Statement[] blocks, Expression[] guards) {
         this.expr = expr;
         this.blocks = blocks;
@@ -79,32 +85,110 @@ public class SwitchStm extends Statement {
 
     @Override
     public Object run(Environment env) throws Throwable {
-        boolean isMatched = false;
         Object cmp = expr.xeq(env);
-        Object guard = null;
-
-        try {
-            for (int i = 0; i < blocks.length; i++) {
-                // try to match the guard, if one has not been matched already
-                if (!isMatched) {
-                    // the default guard always matches
-                    if (guards[i] != Const.DEFAULT) {
-                        guard = guards[i].xeq(env);
-                        if (!HojoLib.eq(cmp, guard)) {
-                            continue;
-                        }
-                    }
-                    isMatched = true;
+
+        Table t = table;
+        if (t == null) {
+            table = t = createTable();
+        }
+
+        // find the first matching guard
+        int start;
+        if (cmp != null && cmp.getClass() == t.type) {
+            Integer idx = (Integer)t.index.get(cmp);
+            start = (idx == null || idx.intValue() > t.dflt) ? t.dflt
+                    : idx.intValue();
+        }
+        else {
+            start = match(env, cmp);
+        }
+
+        // run the blocks from there on until a break is encountered
+        for (int i = start; i < blocks.length; i++) {
+            Object r = blocks[i].run(env);
+            if (r instanceof Completion) {
+                // continue/return is handled by the enclosing statement
+                return (r == Completion.BREAK) ? null : r;
+            }
+        }
+        return null;
+    }
+
+    // find the index of the first matching guard by evaluating the guards
+    private int match(Environment env, Object cmp) {
+        for (int i = 0; i < blocks.length; i++) {
+            // the default guard always matches
+            if (guards[i] == Const.DEFAULT ||
+                    HojoLib.eq(cmp, guards[i].xeq(env))) {
+                return i;
+            }
+        }
+        return blocks.length;
+    }
+
+    /*
+     * Creates a table which maps the guard values to the block indexes. This
+     * is possible if all guards are constants of the same class, and
+     * HojoLib.eq() is equivalent to equals() for values of that class.
+     */
+    private Table createTable() {
+        HashMap index = new HashMap(guards.length << 1);
+        Class type = null;
+        int dflt = blocks.length;
+
+        for (int i = 0; i < guards.length; i++) {
+            if (guards[i] == Const.DEFAULT) {
+                if (dflt == blocks.length) {
+                    dflt = i;
                 }
-                // run the block and continue until a break is encountered
-                if (isMatched) {
-                    blocks[i].run(env);
+                continue;
+            }
+            else if (!(guards[i] instanceof Const)) {
+                return Table.NONE;
+            }
+
+            Object v = ((Const)guards[i]).getValue();
+            Class c = (v == null) ? null : v.getClass();
+            if (type == null) {
+                if (!isTableClass(c)) {
+                    return Table.NONE;
                 }
+                type = c;
+            }
+            else if (c != type) {
+                return Table.NONE;
+            }
+
+            // the first of several equal guards is matched
+            if (!index.containsKey(v)) {
+                index.put(v, Integer.valueOf(i));
             }
         }
-        catch (BreakException e) {
+
+        return (type == null) ? Table.NONE : new Table(type, index, dflt);
+    }
+
+    private static boolean isTableClass(Class c) {
+        return c == String.class || c == Integer.class ||
+                c == Character.class || c == Long.class ||
+                c == Short.class || c == Byte.class ||
+                c == BigInteger.class || c == Boolean.class ||
+                (c != null && c.isEnum());
+    }
+
+    private final static class Table {
+        // no table can be used
+        final static Table NONE = new Table(null, null, 0);
+
+        final Class type; // the class of the guard values
+        final HashMap index; // guard value -> index of first matching guard
+        final int dflt; // the index of the default guard, or blocks.length
+
+        Table(Class type, HashMap index, int dflt) {
+            this.type = type;
+            this.index = index;
+            this.dflt = dflt;
         }
-        return null;
     }
 
     @Override
@@ -144,4 +228,8 @@ public class SwitchStm extends Statement {
         return rt;
     }
 
+    public Statement[] getBlocks() {
+        return blocks;
+    }
+
 }
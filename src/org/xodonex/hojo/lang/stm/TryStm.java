@@ -23,7 +23,7 @@ import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.hojo.lang.UnreachableStatementException;
-import org.xodonex.hojo.util.FlowException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class TryStm extends Statement {
@@ -88,16 +88,14 @@ public class TryStm extends Statement {
         // be
         // thrown.
         Throwable rethrow = null;
+        // abrupt completion because of break/continue/return in the try- or
+        // catch clause, to be returned after the finally-clause has been
+        // executed.
+        Object completion = null;
 
         try {
             // execute the try-clause
-            tryBlock.run(env);
-        }
-        catch (FlowException e) {
-            // abrupt completion because of break/continue/return : save the
-            // exception
-            // to be rethrown after the finally-clause has been executed.
-            rethrow = e;
+            completion = tryBlock.run(env);
         }
         catch (Throwable t) {
             boolean matched = false;
@@ -108,7 +106,7 @@ public class TryStm extends Statement {
                 if (matched) {
                     try {
                         // execute the catch clause
-                        catchBlock[i].run(env, t);
+                        completion = catchBlock[i].run(env, t);
                     }
                     catch (Throwable _t) {
                         // rethrow _t from the finally clause
@@ -129,7 +127,10 @@ public class TryStm extends Statement {
         // the
         // whole statement terminates abruptly for the same reason.
         if (finallyBlock != null) {
-            finallyBlock.run(env);
+            Object r = finallyBlock.run(env);
+            if (r instanceof Completion) {
+                return r;
+            }
         }
 
         // rethrow any exeption from the try- or catch clause
@@ -137,8 +138,8 @@ public class TryStm extends Statement {
             throw rethrow;
         }
 
-        // terminate normally
-        return null;
+        // terminate normally, unless the try- or catch clause did not
+        return (completion instanceof Completion) ? completion : null;
     }
 
     @Override
@@ -32,11 +32,11 @@ public abstract class ValueDeclStm extends Statement {
 
     protected String name;
     protected Type typ;
-    protected short baseAddr;
+    protected int baseAddr;
     protected Code init;
     protected short modifiers;
 
-    public ValueDeclStm(String name, Type typ, short modifiers, short baseAddr,
+    public ValueDeclStm(String name, Type typ, short modifiers, int baseAddr,
             Code init) {
         this.name = name;
         this.typ = typ;
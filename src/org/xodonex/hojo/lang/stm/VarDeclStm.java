@@ -23,8 +23,8 @@ import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
 import org.xodonex.hojo.lang.Type;
-import org.xodonex.hojo.lang.Variable;
 import org.xodonex.hojo.lang.env.ClassEnv;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.StringUtils;
 
 public class VarDeclStm extends Statement {
@@ -34,16 +34,16 @@ public class VarDeclStm extends Statement {
     protected String[] names;
     protected Expression[] init;
     protected Type typ;
-    protected short baseAddr;
+    protected int[] addresses;
     protected short modifiers;
 
     public VarDeclStm(String[] names, Expression[] init,
-            Type typ, short modifiers, short baseAddr) {
+            Type typ, short modifiers, int[] addresses) {
         this.names = names;
         this.init = init;
         this.typ = typ;
         this.modifiers = modifiers;
-        this.baseAddr = baseAddr;
+        this.addresses = addresses;
     }
 
     @Override
@@ -86,9 +86,8 @@ public class VarDeclStm extends Statement {
     }
 
     protected Object run(Environment env, boolean isPublic) {
-        short nextAddr = baseAddr;
         Object initVal = null;
-        Variable result = null;
+        Object result = null;
         Type t = typ;
         ClassEnv cenv = ((modifiers & MOD_PUBLIC) != 0) ? (ClassEnv)env : null;
 
@@ -103,18 +102,17 @@ public class VarDeclStm extends Statement {
             }
 
             // allocate and initialize the variable
-            result = env.alloc(nextAddr, (modifiers & MOD_FINAL) != 0, names[i],
+            result = env.alloc(addresses[i], (modifiers & MOD_FINAL) != 0, names[i],
                     t, initVal);
 
             // update the class environment, if this is a public member
             if (((modifiers & MOD_PUBLIC) != 0)) {
-                cenv.addMember(names[i], nextAddr);
+                cenv.addMember(names[i], addresses[i]);
             }
-            nextAddr++;
         }
 
         // result in the last initial value
-        return result.getValue();
+        return Completion.wrap(result);
     }
 
     @Override
@@ -146,4 +144,20 @@ public class VarDeclStm extends Statement {
         return result.append(stx.punctuators[PCT_IDX_SEPARATOR]).toString();
     }
 
+    public Expression[] getInitializers() {
+        return init;
+    }
+
+    public Type getDeclaredType() {
+        return typ;
+    }
+
+    public int getAddress(int index) {
+        return addresses[index];
+    }
+
+    public short getModifiers() {
+        return modifiers;
+    }
+
 }
@@ -19,11 +19,11 @@
 package org.xodonex.hojo.lang.stm;
 
 import org.xodonex.hojo.HojoSyntax;
+import org.xodonex.hojo.lang.Const;
 import org.xodonex.hojo.lang.Environment;
 import org.xodonex.hojo.lang.Expression;
 import org.xodonex.hojo.lang.Statement;
-import org.xodonex.hojo.util.BreakException;
-import org.xodonex.hojo.util.ContinueException;
+import org.xodonex.hojo.util.Completion;
 import org.xodonex.util.ConvertUtils;
 import org.xodonex.util.StringUtils;
 
@@ -35,24 +35,35 @@ public class WhileStm extends ExprBlockStm {
         super(expr, block);
     }
 
+    @Override
+    public Statement optimize(int level) {
+        super.optimize(level);
+        if (level >= 1 && expr instanceof Const
+                && Boolean.FALSE.equals(((Const)expr).getValue())) {
+            return NOP.NOP;
+        }
+        return this;
+    }
+
     @Override
     public Object run(Environment env) throws Throwable {
         Object result = null;
         Thread t = Thread.currentThread();
 
-        try {
-            while (ConvertUtils.toBool(expr.xeq(env))) {
-                try {
-                    result = block.run(env);
+        while (ConvertUtils.toBool(expr.xeq(env))) {
+            if ((result = block.run(env)) instanceof Completion) {
+                Completion c = (Completion)result;
+                if (c == Completion.BREAK) {
+                    return null;
                 }
-                catch (ContinueException e) {
-                }
-                if (t.isInterrupted()) {
-                    throw new InterruptedException();
+                else if (c != Completion.CONTINUE) {
+                    return c;
                 }
+                result = null;
+            }
+            if (t.isInterrupted()) {
+                throw new InterruptedException();
             }
-        }
-        catch (BreakException e) {
         }
         return result;
     }
@@ -18,6 +18,7 @@
 */
 package org.xodonex.hojo.lang.type;
 
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.util.ConvertUtils;
 
@@ -58,4 +59,10 @@ public class BooleanType extends Type {
         return ConvertUtils.toBoolObj(o, false);
     }
 
+    @Override
+    protected Converter createConverter(Class source) {
+        return (source == Boolean.class) ? Converter.identity(source, this)
+                : super.createConverter(source);
+    }
+
 }
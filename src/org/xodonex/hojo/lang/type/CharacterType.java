@@ -18,6 +18,7 @@
 */
 package org.xodonex.hojo.lang.type;
 
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.util.ConvertUtils;
 
@@ -59,4 +60,10 @@ public class CharacterType extends Type {
         return ConvertUtils.toCharObj(o, false);
     }
 
+    @Override
+    protected Converter createConverter(Class source) {
+        return (source == Character.class) ? Converter.identity(source, this)
+                : super.createConverter(source);
+    }
+
 }
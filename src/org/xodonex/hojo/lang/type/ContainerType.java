@@ -50,7 +50,10 @@ public abstract class ContainerType extends Type {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == null || obj.getClass() != getClass()) {
+        if (obj == this) {
+            return true;
+        }
+        else if (obj == null || obj.getClass() != getClass()) {
             return false;
         }
         ContainerType t = (ContainerType)obj;
@@ -74,12 +74,12 @@ public class FunctionType extends Type {
     }
 
     public static FunctionType typeOf(Method m) {
-        return new GenericFunctionType(Function.class,
+        return GenericFunctionType.getInstance(Function.class,
                 m.getParameterTypes(), m.getReturnType());
     }
 
     public static FunctionType typeOf(Function f) {
-        return new GenericFunctionType(f.getClass(),
+        return GenericFunctionType.getInstance(f.getClass(),
                 f.getParameterTypes(), f.getReturnType());
     }
 
@@ -18,6 +18,9 @@
 */
 package org.xodonex.hojo.lang.type;
 
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
 import org.xodonex.hojo.HojoException;
 import org.xodonex.hojo.HojoLib;
 import org.xodonex.hojo.HojoSyntax;
@@ -32,12 +35,57 @@ public class GenericFunctionType extends FunctionType {
     Class[] argTypes;
     Class ftype, retType;
 
+    // the canonical function types of every function class, keyed by their
+    // signatures, or by the return type for variable arguments. The types
+    // are held weakly, so that the signatures created e.g. by many scripts
+    // are released when they are no longer used
+    private final static ClassValue signatures = new ClassValue() {
+        @Override
+        protected Object computeValue(Class type) {
+            return new WeakHashMap();
+        }
+    };
+
     public GenericFunctionType(Class ftype, Class[] argTypes, Class retType) {
         this.ftype = ftype;
         this.argTypes = argTypes;
         this.retType = retType;
     }
 
+    /**
+     * Returns the canonical function type of the given signature, such that
+     * equal signatures are represented by the same instance.
+     *
+     * @param ftype
+     *            the function class
+     * @param argTypes
+     *            the parameter types, or {@link FunctionType#VARIABLE_ARGS}.
+     *            The array must not be modified afterwards.
+     * @param retType
+     *            the return type
+     * @return the function type
+     */
+    public static GenericFunctionType getInstance(Class ftype,
+            Class[] argTypes, Class retType) {
+        WeakHashMap m = (WeakHashMap)signatures.get(ftype);
+        // equals() does not distinguish variable arguments from no arguments
+        Object key = (argTypes == VARIABLE_ARGS) ? (Object)retType
+                : new GenericFunctionType(ftype, argTypes, retType);
+        synchronized (m) {
+            WeakReference ref = (WeakReference)m.get(key);
+            GenericFunctionType result = (ref == null) ? null
+                    : (GenericFunctionType)ref.get();
+            if (result == null) {
+                result = (key instanceof GenericFunctionType)
+                        ? (GenericFunctionType)key
+                        : new GenericFunctionType(ftype, argTypes, retType);
+                // the value must not refer to the key strongly
+                m.put(key, new WeakReference(result));
+            }
+            return result;
+        }
+    }
+
     @Override
     public Class toClass() {
         return ftype;
@@ -134,7 +182,10 @@ public class GenericFunctionType extends FunctionType {
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof GenericFunctionType)) {
+        if (obj == this) {
+            return true;
+        }
+        else if (!(obj instanceof GenericFunctionType)) {
             return false;
         }
         GenericFunctionType ft = (GenericFunctionType)obj;
@@ -152,10 +203,10 @@ public class GenericFunctionType extends FunctionType {
     @Override
     public int hashCode() {
         int hc = 0;
-        for (int i = argTypes.length; i >= 0; i--) {
-            hc ^= argTypes[i].hashCode();
+        for (int i = argTypes.length - 1; i >= 0; i--) {
+            hc = 31 * hc + argTypes[i].hashCode();
         }
-        return hc ^ retType.hashCode();
+        return 31 * hc + retType.hashCode();
     }
 
 }
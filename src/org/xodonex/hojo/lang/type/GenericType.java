@@ -42,7 +42,10 @@ public class GenericType extends Type {
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof GenericType)) {
+        if (obj == this) {
+            return true;
+        }
+        else if (!(obj instanceof GenericType)) {
             return false;
         }
         GenericType t = (GenericType)obj;
@@ -51,6 +54,6 @@ public class GenericType extends Type {
 
     @Override
     public int hashCode() {
-        return super.hashCode() ^ cls.hashCode();
+        return cls.hashCode();
     }
 }
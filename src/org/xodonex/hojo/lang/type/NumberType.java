@@ -18,8 +18,10 @@
 */
 package org.xodonex.hojo.lang.type;
 
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.util.ConvertUtils;
+import org.xodonex.util.ReflectUtils;
 
 public class NumberType extends Type {
 
@@ -71,4 +73,48 @@ public class NumberType extends Type {
                 && ((NumberType)t).numberType() == numberType());
     }
 
+    @Override
+    protected Converter createConverter(Class source) {
+        int n = numberType();
+        if (source == null || n < NUM_PRI_BYTE || n > NUM_PRI_DOUBLE
+                || !Number.class.isAssignableFrom(source)) {
+            return super.createConverter(source);
+        }
+        else if (source == ReflectUtils.wrap(toClass())) {
+            return Converter.identity(source, this);
+        }
+        else {
+            return new NumberConverter(source, this, n);
+        }
+    }
+
+    // Converts instances of a Number subclass to a primitive number type
+    private final static class NumberConverter extends Converter {
+        private final int numberType;
+
+        NumberConverter(Class source, Type target, int numberType) {
+            super(source, target);
+            this.numberType = numberType;
+        }
+
+        @Override
+        protected Object convert(Object o) {
+            Number n = (Number)o;
+            switch (numberType) {
+            case NUM_PRI_BYTE:
+                return Byte.valueOf(n.byteValue());
+            case NUM_PRI_SHORT:
+                return Short.valueOf(n.shortValue());
+            case NUM_PRI_INT:
+                return Integer.valueOf(n.intValue());
+            case NUM_PRI_LONG:
+                return Long.valueOf(n.longValue());
+            case NUM_PRI_FLOAT:
+                return Float.valueOf(n.floatValue());
+            default:
+                return Double.valueOf(n.doubleValue());
+            }
+        }
+    }
+
 }
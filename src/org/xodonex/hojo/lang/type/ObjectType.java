@@ -18,6 +18,7 @@
 */
 package org.xodonex.hojo.lang.type;
 
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Type;
 
 public final class ObjectType extends Type {
@@ -53,4 +54,9 @@ public final class ObjectType extends Type {
         return o;
     }
 
+    @Override
+    protected Converter createConverter(Class source) {
+        return Converter.identity(source, this);
+    }
+
 }
@@ -19,6 +19,7 @@
 package org.xodonex.hojo.lang.type;
 
 import org.xodonex.hojo.HojoLib;
+import org.xodonex.hojo.lang.Converter;
 import org.xodonex.hojo.lang.Type;
 import org.xodonex.util.ConvertUtils;
 
@@ -65,4 +66,10 @@ public final class StringType extends Type {
         return ConvertUtils.toString(o);
     }
 
+    @Override
+    protected Converter createConverter(Class source) {
+        return (source == String.class) ? Converter.identity(source, this)
+                : super.createConverter(source);
+    }
+
 }
@@ -57,19 +57,17 @@ public final class AppFunction extends StandardFunction {
     public Object invoke(Object[] args) {
         Function f = HojoLib.toFunction(args[0]);
         Iterator it = ConvertUtils.toIterator(args[1]);
-        Object[] as = new Object[1];
 
         if (f.getArity() == 0) {
             // allow no-arg function
             while (it.hasNext()) {
                 it.next();
-                f.invoke(Function.UNIT);
+                f.invoke0();
             }
         }
         else {
             while (it.hasNext()) {
-                as[0] = it.next();
-                f.invoke(f.validateArgs(as));
+                f.invoke1(it.next());
             }
         }
         return null;
@@ -18,16 +18,101 @@
 */
 package org.xodonex.hojo.lib;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xodonex.hojo.HojoException;
+import org.xodonex.hojo.HojoSession;
+import org.xodonex.hojo.StandardFunction;
 import org.xodonex.hojo.lang.Function;
+import org.xodonex.util.ConvertUtils;
+
+/**
+ * An asynchronous application of a function. The applications are executed
+ * by the executor of the session which creates them (see
+ * {@link HojoSession#getExecutor()}), which by default is an unbounded pool of
+ * platform threads shared by all sessions.
+ * <p>
+ * An application is also a future of its result, which may be composed with
+ * other applications by {@link #then(Function)}, {@link #whenDone(Function)},
+ * {@link #all(Object)} and {@link #any(Object)} without blocking a thread,
+ * and which may be cancelled by {@link #cancel()} or
+ * {@link #timeout(long)}. A function which depends on the results of other
+ * applications should be composed with them by {@link #then(Function)} or
+ * {@link #all(Object)}, rather than wait for them: {@link #get()} and the
+ * function view {@link #toFunction()} block the waiting thread, and are
+ * meant for the top level code, which is not executed by a pool.
+ */
+public class AsyncExecutor implements Runnable {
+
+    /**
+     * The pool configuration of an unbounded pool of platform threads.
+     */
+    public final static String POOL_CACHED = "cached";
+
+    /**
+     * The pool configuration of a work-stealing pool having one thread per
+     * processor. The pool does not compensate for blocked threads, so an
+     * application which blocks, e.g. in {@link #get()}, occupies a processor
+     * and may starve the pool.
+     */
+    public final static String POOL_FORK_JOIN = "forkjoin";
+
+    /**
+     * The pool configuration of a new virtual thread per application, where
+     * the JVM supports virtual threads.
+     */
+    public final static String POOL_VIRTUAL = "virtual";
 
-public class AsyncExecutor extends Thread {
+    // the time (in milliseconds) after which an idle platform thread ends
+    private final static long KEEP_ALIVE = 60000;
 
+    // the number of submitted applications which have not been executed,
+    // and the thread which keeps the JVM alive while there are any: the
+    // threads of the executors may be daemon threads, and virtual threads
+    // always are
+    private final static AtomicInteger pending = new AtomicInteger();
+    private static Thread keeper = null;
+
+    // the executor of the applications of the sessions which have not
+    // configured an executor
+    private static ExecutorService defaultExecutor = null;
+
+    // the thread which cancels the applications which time out
+    private static ScheduledThreadPoolExecutor timer = null;
+
+    private final String name;
+    // the session of the thread which created the application
+    private final HojoSession session;
     private Function fv;
     private Object[] args;
+    private boolean started = false;
     private boolean finished = false;
     private Object returnValue;
     private Exception errorCode;
 
+    // the thread which applies the function, whether it was interrupted by
+    // cancel(), and the actions to perform once the application is finished
+    private Thread thread = null;
+    private boolean interrupted = false;
+    private ArrayList listeners = null;
+
     private static String printName(Function fv, Object[] args) {
         return fv.toString() + "(" +
                 org.xodonex.util.StringUtils.argumentList2String(args, ", ")
@@ -36,29 +121,544 @@ public class AsyncExecutor extends Thread {
 
     public AsyncExecutor(Function fv, Object[] args)
             throws IllegalArgumentException {
-        super(printName(fv, args));
+        this.name = printName(fv, args);
+        this.session = HojoSession.current();
         this.fv = fv;
         this.args = fv.validateArgs(args);
     }
 
+    // an application which is started by the completion of other
+    // applications
+    private AsyncExecutor(String name) {
+        this.name = name;
+        this.session = HojoSession.current();
+        this.started = true;
+    }
+
+    /**
+     * Validates a pool configuration. The value is either
+     * {@link #POOL_CACHED}, {@link #POOL_FORK_JOIN}, {@link #POOL_VIRTUAL} or
+     * a positive number, which denotes a pool of at most that many platform
+     * threads.
+     *
+     * @param value
+     *            the configuration.
+     * @return the normalized configuration.
+     * @exception IllegalArgumentException
+     *                if the configuration is invalid.
+     */
+    public static String checkPool(String value)
+            throws IllegalArgumentException {
+        String p = value.trim().toLowerCase();
+        if (!p.equals(POOL_CACHED) && !p.equals(POOL_FORK_JOIN)
+                && !p.equals(POOL_VIRTUAL)) {
+            int n;
+            try {
+                n = Integer.parseInt(p);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException(value);
+            }
+            if (n <= 0) {
+                throw new IllegalArgumentException(value);
+            }
+            p = "" + n;
+        }
+        return p;
+    }
+
+    /**
+     * @return the executor of the applications of the sessions which have
+     *         not configured an executor, which is an unbounded pool of
+     *         platform threads.
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = newExecutor(POOL_CACHED);
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Creates a new executor. When virtual threads are not supported,
+     * {@link #POOL_CACHED} is used instead of {@link #POOL_VIRTUAL}.
+     *
+     * @param pool
+     *            a pool configuration, which has been validated by
+     *            {@link #checkPool(String)}.
+     * @return the executor.
+     */
+    public static ExecutorService newExecutor(String pool) {
+        if (pool.equals(POOL_FORK_JOIN)) {
+            return new ForkJoinPool();
+        }
+        if (pool.equals(POOL_VIRTUAL)) {
+            try {
+                Method m = Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService)m.invoke(null);
+            }
+            catch (Exception e) {
+                // not supported by this JVM
+            }
+        }
+
+        ThreadPoolExecutor result;
+        if (pool.equals(POOL_CACHED) || pool.equals(POOL_VIRTUAL)) {
+            result = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE,
+                    TimeUnit.MILLISECONDS, new SynchronousQueue(),
+                    new Factory());
+        }
+        else {
+            int n = Integer.parseInt(pool);
+            result = new ThreadPoolExecutor(n, n, KEEP_ALIVE,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue(),
+                    new Factory());
+            result.allowCoreThreadTimeOut(true);
+        }
+        return result;
+    }
+
+    // creates the platform threads of the pools
+    private static class Factory implements ThreadFactory {
+        private final static AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r,
+                    "AsyncExecutor-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    // count the pending applications
+    private static void pending(int delta) {
+        int n = pending.addAndGet(delta);
+        if (n == 0) {
+            synchronized (AsyncExecutor.class) {
+                AsyncExecutor.class.notifyAll();
+            }
+        }
+        else if (n == 1 && delta > 0) {
+            keepAlive();
+        }
+    }
+
+    private static synchronized void keepAlive() {
+        if (keeper == null) {
+            keeper = new Thread("AsyncExecutor-keeper") {
+                @Override
+                public void run() {
+                    synchronized (AsyncExecutor.class) {
+                        try {
+                            while (pending.get() > 0) {
+                                AsyncExecutor.class.wait();
+                            }
+                        }
+                        catch (InterruptedException e) {
+                        }
+                        keeper = null;
+                    }
+                }
+            };
+            keeper.start();
+        }
+    }
+
+    /**
+     * Submits the application to the executor.
+     *
+     * @exception IllegalStateException
+     *                if the application has already been started.
+     */
+    public void start() throws IllegalStateException {
+        if (!startOnce()) {
+            throw new IllegalStateException();
+        }
+    }
+
+    // start the application, unless it has been started
+    private boolean startOnce() {
+        synchronized (this) {
+            if (started) {
+                return false;
+            }
+            started = true;
+        }
+        submit();
+        return true;
+    }
+
+    private void submit() {
+        pending(1);
+        try {
+            ExecutorService exec = (session == null) ? getDefaultExecutor()
+                    : session.getExecutor();
+            exec.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        AsyncExecutor.this.run();
+                    }
+                    finally {
+                        pending(-1);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // e.g. the executor was shut down by a new pool configuration of
+            // the session
+            pending(-1);
+            complete(null, e);
+        }
+    }
+
+    /**
+     * Applies the function in the current thread, unless the application is
+     * being applied or has finished.
+     */
     @Override
     public void run() {
+        Function f;
+        Object[] a;
+        synchronized (this) {
+            if (finished || thread != null || fv == null) {
+                // cancelled before it was executed, or not yet applicable
+                return;
+            }
+            thread = Thread.currentThread();
+            f = fv;
+            a = args;
+        }
+
+        HojoSession outer = HojoSession.setCurrent(session);
+        Object value = null;
+        Exception error = null;
+        boolean cancelled;
         try {
-            errorCode = null;
-            returnValue = fv.invoke(args);
+            value = f.invoke(a);
         }
         catch (Exception e) {
-            returnValue = null;
-            errorCode = e;
+            error = e;
         }
+        finally {
+            HojoSession.setCurrent(outer);
+            synchronized (this) {
+                thread = null;
+                cancelled = interrupted;
+            }
+            if (cancelled) {
+                // don't pass the cancellation on to the next task
+                Thread.interrupted();
+            }
+        }
+        if (!cancelled) {
+            // otherwise cancel() completes the application, which must not
+            // fail with the error caused by the interrupt
+            complete(value, error);
+        }
+    }
 
-        // clean up
+    // finish the application, unless it has been finished already
+    private boolean complete(Object value, Exception error) {
+        ArrayList ls;
         synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            returnValue = value;
+            errorCode = error;
             fv = null;
             args = null;
             finished = true;
+            ls = listeners;
+            listeners = null;
             notifyAll();
         }
+
+        if (ls != null) {
+            for (int i = 0; i < ls.size(); i++) {
+                ((Runnable)ls.get(i)).run();
+            }
+        }
+        return true;
+    }
+
+    // perform the given action once the application is finished
+    private void whenFinished(Runnable r) {
+        synchronized (this) {
+            if (!finished) {
+                if (listeners == null) {
+                    listeners = new ArrayList(2);
+                }
+                listeners.add(r);
+                return;
+            }
+        }
+        r.run();
+    }
+
+    // start the application of the given function to the given arguments
+    private void apply(Function f, Object[] a) {
+        try {
+            a = f.validateArgs(a);
+        }
+        catch (IllegalArgumentException e) {
+            complete(null, e);
+            return;
+        }
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            fv = f;
+            args = a;
+        }
+        submit();
+    }
+
+    /**
+     * Creates an application of the given function to the result of this
+     * application, which is started once this application has returned. If
+     * this application fails, the new application fails with the same error.
+     *
+     * @param f
+     *            a function of one argument.
+     * @return the new application.
+     */
+    public AsyncExecutor then(final Function f) {
+        final AsyncExecutor result = new AsyncExecutor(
+                name + ".then(" + f + ")");
+        whenFinished(new Runnable() {
+            @Override
+            public void run() {
+                Object v;
+                Exception e;
+                synchronized (AsyncExecutor.this) {
+                    v = returnValue;
+                    e = errorCode;
+                }
+                if (e != null) {
+                    result.complete(null, e);
+                }
+                else {
+                    result.apply(f, new Object[] { v });
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Creates an application of the given function to this application,
+     * which is started once this application has finished, whether it
+     * returned or failed. This is used for completion callbacks, and for the
+     * recovery from errors.
+     *
+     * @param f
+     *            a function of one argument, which receives this application.
+     * @return the new application.
+     */
+    public AsyncExecutor whenDone(final Function f) {
+        final AsyncExecutor result = new AsyncExecutor(
+                name + ".whenDone(" + f + ")");
+        whenFinished(new Runnable() {
+            @Override
+            public void run() {
+                result.apply(f, new Object[] { AsyncExecutor.this });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Creates an application which returns the list of the results of the
+     * given applications, once they have all returned. If one of them fails,
+     * the new application fails with the same error. The given applications
+     * are started, if necessary, and functions are applied asynchronously
+     * to no arguments.
+     *
+     * @param tasks
+     *            a collection, array or iterator of applications.
+     * @return the new application.
+     */
+    public static AsyncExecutor all(Object tasks) {
+        final AsyncExecutor[] ts = toTasks(tasks);
+        final AsyncExecutor result = new AsyncExecutor(
+                "all(" + Arrays.asList(ts) + ")");
+        final Object[] values = new Object[ts.length];
+        final int[] remaining = { ts.length };
+        if (ts.length == 0) {
+            result.complete(new ArrayList(), null);
+        }
+
+        for (int i = 0; i < ts.length; i++) {
+            final AsyncExecutor t = ts[i];
+            final int idx = i;
+            t.whenFinished(new Runnable() {
+                @Override
+                public void run() {
+                    Object v;
+                    Exception e;
+                    synchronized (t) {
+                        v = t.returnValue;
+                        e = t.errorCode;
+                    }
+                    if (e != null) {
+                        result.complete(null, e);
+                        return;
+                    }
+
+                    boolean done;
+                    synchronized (values) {
+                        values[idx] = v;
+                        done = --remaining[0] == 0;
+                    }
+                    if (done) {
+                        result.complete(new ArrayList(Arrays.asList(values)),
+                                null);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Creates an application which finishes as the first of the given
+     * applications to finish, with the same result or error. The given
+     * applications are started, if necessary, and functions are applied
+     * asynchronously to no arguments.
+     *
+     * @param tasks
+     *            a non-empty collection, array or iterator of applications.
+     * @return the new application.
+     * @exception IllegalArgumentException
+     *                if no applications are given.
+     */
+    public static AsyncExecutor any(Object tasks)
+            throws IllegalArgumentException {
+        final AsyncExecutor[] ts = toTasks(tasks);
+        if (ts.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        final AsyncExecutor result = new AsyncExecutor(
+                "any(" + Arrays.asList(ts) + ")");
+
+        for (int i = 0; i < ts.length; i++) {
+            final AsyncExecutor t = ts[i];
+            t.whenFinished(new Runnable() {
+                @Override
+                public void run() {
+                    Object v;
+                    Exception e;
+                    synchronized (t) {
+                        v = t.returnValue;
+                        e = t.errorCode;
+                    }
+                    result.complete(v, e);
+                }
+            });
+        }
+        return result;
+    }
+
+    // convert the argument of all() or any() to started applications
+    private static AsyncExecutor[] toTasks(Object tasks) {
+        List result = new ArrayList();
+        for (Iterator i = ConvertUtils.toIterator(tasks); i.hasNext();) {
+            Object o = i.next();
+            AsyncExecutor t;
+            if (o instanceof AsyncExecutor) {
+                t = (AsyncExecutor)o;
+                t.startOnce();
+            }
+            else if (o instanceof Function) {
+                t = new AsyncExecutor((Function)o, Function.UNIT);
+                t.start();
+            }
+            else {
+                throw new IllegalArgumentException("" + o);
+            }
+            result.add(t);
+        }
+        return (AsyncExecutor[])result.toArray(new AsyncExecutor[result.size()]);
+    }
+
+    /**
+     * Cancels the application. The application fails with a
+     * <code>CancellationException</code> and, if the function is being
+     * applied, the thread applying it is interrupted.
+     *
+     * @return <code>false</code> if the application had already finished.
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            if (thread != null) {
+                interrupted = true;
+                thread.interrupt();
+            }
+        }
+        return complete(null, new CancellationException(name));
+    }
+
+    /**
+     * Cancels the application, unless it has finished within the given time.
+     *
+     * @param maxTime
+     *            the time limit in milliseconds.
+     * @return this application.
+     */
+    public AsyncExecutor timeout(long maxTime) {
+        final ScheduledFuture f = getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        }, maxTime, TimeUnit.MILLISECONDS);
+        whenFinished(new Runnable() {
+            @Override
+            public void run() {
+                f.cancel(false);
+            }
+        });
+        return this;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "AsyncExecutor-timer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    public synchronized boolean isAlive() {
+        return started && !finished;
+    }
+
+    public void join() throws InterruptedException {
+        waitFor();
     }
 
     public boolean waitFor() throws InterruptedException {
@@ -67,17 +667,24 @@ public class AsyncExecutor extends Thread {
 
     public synchronized boolean waitFor(long maxTime)
             throws InterruptedException {
-        if (!finished) {
-            wait(maxTime);
+        if (maxTime <= 0) {
+            while (!finished) {
+                wait();
+            }
+            return true;
+        }
+
+        long end = System.currentTimeMillis() + maxTime;
+        for (long t = maxTime; !finished && t > 0;
+                t = end - System.currentTimeMillis()) {
+            wait(t);
         }
         return finished;
     }
 
     public synchronized Object waitAndGetErrorCode()
             throws InterruptedException {
-        if (!finished) {
-            wait();
-        }
+        waitFor();
         return errorCode;
     }
 
@@ -115,4 +722,66 @@ public class AsyncExecutor extends Thread {
         return result;
     }
 
+    /**
+     * Starts the application, if necessary, and waits for it to finish.
+     * Within another application of a bounded or work-stealing pool, the
+     * waiting thread is not available to the pool, so this may deadlock.
+     *
+     * @return the return value of the application.
+     * @exception HojoException
+     *                if the application failed, or the waiting thread was
+     *                interrupted.
+     */
+    public Object get() throws HojoException {
+        startOnce();
+        try {
+            waitFor();
+        }
+        catch (InterruptedException e) {
+            throw HojoException.wrap(e);
+        }
+
+        synchronized (this) {
+            if (errorCode != null) {
+                throw HojoException.wrap(errorCode);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * @return a function of no arguments, which returns the result of
+     *         {@link #get()}.
+     */
+    public Function toFunction() {
+        return new StandardFunction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Class[] getParameterTypes() {
+                return NO_ARGS;
+            }
+
+            @Override
+            public Class getReturnType() {
+                return Object.class;
+            }
+
+            @Override
+            public Object invoke(Object[] arguments) {
+                return get();
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
 }
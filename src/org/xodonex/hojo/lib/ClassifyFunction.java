@@ -80,11 +80,9 @@ public final class ClassifyFunction extends StandardFunction {
             m = ConvertUtils.newMap();
         }
 
-        Object[] params = new Object[1];
-
         while (it.hasNext()) {
-            Object obj = params[0] = it.next();
-            Object key = f.invoke(f.validateArgs(params));
+            Object obj = it.next();
+            Object key = f.invoke1(obj);
 
             Collection c = (Collection)m.get(key);
             if (c == null) {
@@ -57,11 +57,9 @@ public final class FilterFunction extends StandardFunction {
     public Object invoke(Object[] args) {
         Function pred = HojoLib.toFunction(args[0]);
         Iterator it = ConvertUtils.toIterator(args[1]);
-        Object[] as = new Object[1];
 
         while (it.hasNext()) {
-            as[0] = it.next();
-            if (!ConvertUtils.toBool(pred.invoke(pred.validateArgs(as)))) {
+            if (!ConvertUtils.toBool(pred.invoke1(it.next()))) {
                 it.remove();
             }
         }
@@ -62,15 +62,14 @@ public final class FoldlFunction extends StandardFunction {
     @Override
     public Object invoke(Object[] args) {
         Function f = HojoLib.toFunction(args[0]);
-        Object[] as = { null, args[1] };
+        Object acc = args[1];
         Iterator it = ConvertUtils.toIterator(args[2]);
 
         while (it.hasNext()) {
-            as[0] = it.next();
-            as[1] = f.invoke(f.validateArgs(as));
+            acc = f.invoke2(it.next(), acc);
         }
 
-        return as[1];
+        return acc;
     }
 
 }
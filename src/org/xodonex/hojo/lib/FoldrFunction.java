@@ -58,15 +58,14 @@ public final class FoldrFunction extends StandardFunction {
     @Override
     public Object invoke(Object[] args) {
         Function f = HojoLib.toFunction(args[0]);
-        Object[] as = { null, args[1] };
+        Object acc = args[1];
         List list = ConvertUtils.toList(args[2]);
 
         for (int i = list.size() - 1; i >= 0; i--) {
-            as[0] = list.get(i);
-            as[1] = f.invoke(f.validateArgs(as));
+            acc = f.invoke2(list.get(i), acc);
         }
 
-        return as[1];
+        return acc;
     }
 
 }
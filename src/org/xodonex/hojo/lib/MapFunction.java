@@ -83,14 +83,12 @@ public final class MapFunction extends StandardFunction {
             // allow no-arg function
             while (it.hasNext()) {
                 it.next();
-                c.add(f.invoke(Function.UNIT));
+                c.add(f.invoke0());
             }
         }
         else {
-            Object[] as = new Object[1];
             while (it.hasNext()) {
-                as[0] = it.next();
-                c.add(f.invoke(f.validateArgs(as)));
+                c.add(f.invoke1(it.next()));
             }
         }
 
@@ -68,14 +68,12 @@ public final class TransFunction extends StandardFunction {
             // allow no-arg function
             while (it.hasNext()) {
                 it.next();
-                it.set(f.invoke(Function.UNIT));
+                it.set(f.invoke0());
             }
         }
         else {
-            Object[] as = new Object[1];
             while (it.hasNext()) {
-                as[0] = it.next();
-                it.set(f.invoke(f.validateArgs(as)));
+                it.set(f.invoke1(it.next()));
             }
         }
         return null;
@@ -0,0 +1,118 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.hojo.util;
+
+/**
+ * Signals the abrupt completion of a statement, caused by a
+ * <code>break</code>, <code>continue</code> or <code>return</code>
+ * statement. Instead of throwing an exception, the statement returns a
+ * <code>Completion</code> from {@link org.xodonex.hojo.lang.Statement#run
+ * Statement.run()}, and every enclosing statement passes it on until it
+ * reaches the loop, switch, function or let-expression which handles it.
+ * <p>
+ * As a script may obtain a <code>Completion</code> as an ordinary value, the
+ * value of an expression statement is {@link #wrap(Object) wrapped}, such
+ * that it is never mistaken for the completion of the statement.
+ *
+ * @author Henrik Lauritzen
+ */
+public final class Completion implements java.io.Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public final static int BREAK_KIND = 0;
+    public final static int CONTINUE_KIND = 1;
+    public final static int RETURN_KIND = 2;
+
+    public final static Completion BREAK = new Completion(BREAK_KIND, null);
+    public final static Completion CONTINUE = new Completion(CONTINUE_KIND,
+            null);
+    public final static Completion RETURN = new Completion(RETURN_KIND, null);
+
+    private final int kind;
+    private final Object value;
+
+    private Completion(int kind, Object value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * @return the completion of a <code>return</code> statement with the
+     *         given result.
+     */
+    public static Completion returnValue(Object value) {
+        return (value == null) ? RETURN : new Completion(RETURN_KIND, value);
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public boolean isReturn() {
+        return kind == RETURN_KIND;
+    }
+
+    /**
+     * @return the returned value, if this is a <code>return</code> completion.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the value to be returned from {@link
+     *         org.xodonex.hojo.lang.Statement#run Statement.run()} for an
+     *         expression statement with the given value.
+     */
+    public static Object wrap(Object value) {
+        return (value instanceof Completion || value instanceof Value)
+                ? new Value(value)
+                : value;
+    }
+
+    /**
+     * @return the value of a statement which has completed normally.
+     * @see #wrap(Object)
+     */
+    public static Object unwrap(Object result) {
+        return (result instanceof Value) ? ((Value)result).value : result;
+    }
+
+    private Object readResolve() {
+        // preserve the identity of the shared instances
+        return (value != null) ? this
+                : (kind == BREAK_KIND) ? BREAK
+                        : (kind == CONTINUE_KIND) ? CONTINUE : RETURN;
+    }
+
+    // the value of an expression statement, which is itself a Completion
+    private final static class Value implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+
+        Value(Object value) {
+            this.value = value;
+        }
+
+    }
+
+}
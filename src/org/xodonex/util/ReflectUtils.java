@@ -21,17 +21,25 @@ package org.xodonex.util;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.Collator;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 
 /**
@@ -173,6 +181,62 @@ public final class ReflectUtils {
     // Object.class
     private final static Class OBJECT_CLASS = Object.class;
 
+    // The maximal number of resolved members cached for a single class
+    private final static int MEMBER_CACHE_LIMIT = 512;
+
+    // Resolution cache for findMatchingMethod() and findMatchingConstructor()
+    // class -> (MemberKey -m-> Member or NO_MATCH). Using a ClassValue lets a
+    // class and its cache be unloaded together.
+    private final static ClassValue MEMBER_CACHE = new ClassValue() {
+        @Override
+        protected Object computeValue(Class type) {
+            return new ConcurrentHashMap();
+        }
+    };
+
+    private final static Object NO_MATCH = new Object();
+
+    private final static MethodHandles.Lookup PUBLIC_LOOKUP =
+            MethodHandles.publicLookup();
+
+    private final static ClassLoader SYSTEM_LOADER =
+            ClassLoader.getSystemClassLoader();
+    private final static ClassLoader PLATFORM_LOADER =
+            ClassLoader.getPlatformClassLoader();
+
+    private final static LongAdder cacheHits = new LongAdder();
+    private final static LongAdder cacheMisses = new LongAdder();
+
+    // A method name (null for constructors) and an argument list
+    private final static class MemberKey {
+        private final String name;
+        private Class[] args;
+        private final int hash;
+
+        MemberKey(String name, Class[] args) {
+            this.name = name;
+            this.args = args;
+            hash = (name == null ? 0 : name.hashCode()) * 31
+                    + Arrays.hashCode(args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey k = (MemberKey)o;
+            return k.hash == hash
+                    && (name == null ? k.name == null : name.equals(k.name))
+                    && Arrays.equals(args, k.args);
+        }
+    }
+
     // primitive class -m-> wrapper class
     private final static HashMap wrapperClasses = new HashMap();
 
@@ -872,6 +936,22 @@ public final class ReflectUtils {
     }
 
     public static Constructor findMatchingConstructor(Class cls, Class[] args) {
+        MemberKey key = new MemberKey(null, args);
+        Map cache = (Map)MEMBER_CACHE.get(cls);
+        Object result = cache.get(key);
+        if (result != null) {
+            cacheHits.increment();
+            return (result == NO_MATCH) ? null : (Constructor)result;
+        }
+
+        cacheMisses.increment();
+        Constructor c = searchMatchingConstructor(cls, args);
+        cacheMember(cls, cache, key, c);
+        return c;
+    }
+
+    private static Constructor searchMatchingConstructor(Class cls,
+            Class[] args) {
         Constructor[] cnst = cls.getConstructors();
         Constructor result = null;
         int weight = WT_NONE;
@@ -931,9 +1011,30 @@ public final class ReflectUtils {
             // no match
             return null;
         }
+
+        MemberKey key = new MemberKey(name, args);
+        Map cache = (Map)MEMBER_CACHE.get(cls);
+        Object result = cache.get(key);
+        if (result != null) {
+            cacheHits.increment();
+            return (result == NO_MATCH) ? null : (Method)result;
+        }
+
+        cacheMisses.increment();
+        Method m = searchMatchingMethod(cls, name, args);
+        cacheMember(cls, cache, key, m);
+        return m;
+    }
+
+    private static Method searchMatchingMethod(Class cls, String name,
+            Class[] args) {
+        if (cls == null) {
+            // no match
+            return null;
+        }
         else if (cls.isArray()) {
             // match array classes as objects - reflection doesn't do this
-            return findMatchingMethod(OBJECT_CLASS, name, args);
+            return searchMatchingMethod(OBJECT_CLASS, name, args);
         }
 
         int mod = cls.getModifiers();
@@ -949,7 +1050,7 @@ public final class ReflectUtils {
             }
 
             // Try the superclass
-            return findMatchingMethod(cls.getSuperclass(), name, args);
+            return searchMatchingMethod(cls.getSuperclass(), name, args);
         }
         else {
             // The class is public - do an ordinary search for the method
@@ -989,6 +1090,206 @@ public final class ReflectUtils {
         return (weight < WT_NONE) ? result : null;
     }
 
+    /**
+     * Creates a method handle which invokes the given method. The handle has
+     * the type <code>(Object[])Object</code>: the array contains the
+     * receiver, unless the method is static, followed by the arguments. A
+     * <code>void</code> method returns <code>null</code>.
+     *
+     * @param m
+     *            the method
+     * @return the handle. If no handle can be looked up for the method, e.g.
+     *         because it is caller-sensitive, the handle invokes the method
+     *         by reflection.
+     */
+    public static MethodHandle getInvoker(Method m) {
+        try {
+            return spread(PUBLIC_LOOKUP.unreflect(m));
+        }
+        catch (IllegalAccessException e) {
+            return REFLECT_INVOKE.bindTo(m);
+        }
+    }
+
+    /**
+     * Creates a method handle which invokes the given constructor. The handle
+     * has the type <code>(Object[])Object</code>, where the array contains
+     * the arguments.
+     *
+     * @param c
+     *            the constructor
+     * @return the handle. If no handle can be looked up for the
+     *         constructor, the handle invokes it by reflection.
+     */
+    public static MethodHandle getInvoker(Constructor c) {
+        try {
+            return spread(PUBLIC_LOOKUP.unreflectConstructor(c));
+        }
+        catch (IllegalAccessException e) {
+            return REFLECT_NEW.bindTo(c);
+        }
+    }
+
+    /**
+     * Creates a method handle which reads the given field. The handle has the
+     * type <code>(Object)Object</code>, where the argument is the object
+     * containing the field. The argument is ignored for a static field.
+     *
+     * @param f
+     *            the field
+     * @return the handle. If no handle can be looked up for the field, the
+     *         handle reads it by reflection.
+     */
+    public static MethodHandle getGetter(Field f) {
+        MethodType t = MethodType.methodType(Object.class, Object.class);
+        try {
+            MethodHandle h = PUBLIC_LOOKUP.unreflectGetter(f);
+            if ((f.getModifiers() & Modifier.STATIC) != 0) {
+                h = MethodHandles.dropArguments(h, 0, Object.class);
+            }
+            return h.asType(t);
+        }
+        catch (IllegalAccessException e) {
+            return REFLECT_GET.bindTo(f);
+        }
+    }
+
+    /**
+     * Creates a method handle which assigns the given field. The handle has
+     * the type <code>(Object, Object)void</code>, where the first argument is
+     * the object containing the field, and is ignored for a static field.
+     *
+     * @param f
+     *            the field
+     * @return the handle. If no handle can be looked up for the field, the
+     *         handle assigns it by reflection, which fails for a final or
+     *         inaccessible field.
+     */
+    public static MethodHandle getSetter(Field f) {
+        MethodType t = MethodType.methodType(Void.TYPE, Object.class,
+                Object.class);
+        try {
+            MethodHandle h = PUBLIC_LOOKUP.unreflectSetter(f);
+            if ((f.getModifiers() & Modifier.STATIC) != 0) {
+                h = MethodHandles.dropArguments(h, 0, Object.class);
+            }
+            return h.asType(t);
+        }
+        catch (IllegalAccessException e) {
+            return REFLECT_SET.bindTo(f);
+        }
+    }
+
+    // the reflective fallbacks of the method handles: the exceptions thrown
+    // by the member are passed on unwrapped, as by a method handle
+
+    private static Object reflectInvoke(Method m, Object[] args)
+            throws Throwable {
+        try {
+            if ((m.getModifiers() & Modifier.STATIC) != 0) {
+                return m.invoke(null, args);
+            }
+            Object[] rest = new Object[args.length - 1];
+            System.arraycopy(args, 1, rest, 0, rest.length);
+            return m.invoke(args[0], rest);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static Object reflectNew(Constructor c, Object[] args)
+            throws Throwable {
+        try {
+            return c.newInstance(args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static Object reflectGet(Field f, Object obj)
+            throws IllegalAccessException {
+        return f.get(obj);
+    }
+
+    private static void reflectSet(Field f, Object obj, Object value)
+            throws IllegalAccessException {
+        f.set(obj, value);
+    }
+
+    private final static MethodHandle REFLECT_INVOKE = findStatic(
+            "reflectInvoke", MethodType.methodType(Object.class, Method.class,
+                    Object[].class));
+    private final static MethodHandle REFLECT_NEW = findStatic("reflectNew",
+            MethodType.methodType(Object.class, Constructor.class,
+                    Object[].class));
+    private final static MethodHandle REFLECT_GET = findStatic("reflectGet",
+            MethodType.methodType(Object.class, Field.class, Object.class));
+    private final static MethodHandle REFLECT_SET = findStatic("reflectSet",
+            MethodType.methodType(Void.TYPE, Field.class, Object.class,
+                    Object.class));
+
+    private static MethodHandle findStatic(String name, MethodType t) {
+        try {
+            return MethodHandles.lookup().findStatic(ReflectUtils.class, name,
+                    t);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    private static MethodHandle spread(MethodHandle h) {
+        // don't collect the trailing arguments of a varargs method
+        h = h.asFixedArity();
+        MethodType t = h.type();
+        return h.asType(t.generic()).asSpreader(Object[].class,
+                t.parameterCount());
+    }
+
+    /**
+     * @return the number of times {@link #findMatchingMethod} or
+     *         {@link #findMatchingConstructor} was answered from the
+     *         resolution cache.
+     */
+    public static long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return the number of times {@link #findMatchingMethod} or
+     *         {@link #findMatchingConstructor} had to search for a member.
+     */
+    public static long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private static void cacheMember(Class cls, Map cache, MemberKey key,
+            Member m) {
+        // Don't let the cache of cls keep a class loader alive which cls
+        // itself doesn't refer to.
+        ClassLoader own = cls.getClassLoader();
+        Class[] args = key.args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null) {
+                continue;
+            }
+            ClassLoader l = args[i].getClassLoader();
+            if (l != null && l != own && l != SYSTEM_LOADER
+                    && l != PLATFORM_LOADER) {
+                return;
+            }
+        }
+
+        if (cache.size() >= MEMBER_CACHE_LIMIT) {
+            cache.clear();
+        }
+        // the caller may reuse its argument list
+        key.args = args.clone();
+        cache.put(key, m == null ? NO_MATCH : (Object)m);
+    }
+
     /**
      * Converts an array of values to an argument list, ie. an array of
      * <code>Class</code>es reflecting the types of the values. A
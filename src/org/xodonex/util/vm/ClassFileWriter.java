@@ -0,0 +1,537 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.util.vm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A minimal writer for JVM class files, which is sufficient to generate
+ * simple classes at run time. The class files have version 49.0, such that
+ * the verifier infers the stack map frames itself. Class names are given in
+ * internal form, e.g. <code>java/lang/Object</code>.
+ */
+public class ClassFileWriter implements Opcodes {
+
+    // the change of the stack size caused by the simple instructions
+    private final static byte[] STACK_EFFECT = new byte[256];
+    static {
+        int[][] effects = {
+                { ACONST_NULL, 1 }, { ICONST_0, 1 }, { ICONST_0 + 1, 1 },
+                { ICONST_0 + 2, 1 }, { ICONST_0 + 3, 1 }, { ICONST_0 + 4, 1 },
+                { ICONST_0 + 5, 1 }, { ICONST_0 - 1, 1 }, { LCONST_0, 2 },
+                { LCONST_0 + 1, 2 }, { DCONST_0, 2 }, { DCONST_0 + 1, 2 },
+                { AALOAD, -1 }, { AASTORE, -3 }, { POP, -1 }, { POP2, -2 },
+                { DUP, 1 }, { DUP_X1, 1 }, { DUP_X2, 1 }, { DUP2, 2 },
+                { DUP2_X1, 2 }, { DUP2_X2, 2 }, { SWAP, 0 },
+                { IADD, -1 }, { LADD, -2 }, { DADD, -2 }, { ISUB, -1 },
+                { LSUB, -2 }, { DSUB, -2 }, { IMUL, -1 }, { LMUL, -2 },
+                { DMUL, -2 }, { IDIV, -1 }, { LDIV, -2 }, { DDIV, -2 },
+                { IREM, -1 }, { LREM, -2 }, { DREM, -2 }, { INEG, 0 },
+                { LNEG, 0 }, { DNEG, 0 }, { IXOR, -1 }, { I2L, 1 },
+                { I2D, 1 }, { L2I, -1 }, { L2D, 0 }, { D2I, -1 }, { D2L, 0 },
+                { LCMP, -3 }, { DCMPL, -3 }, { DCMPG, -3 }, { IRETURN, -1 },
+                { LRETURN, -2 }, { DRETURN, -2 }, { ARETURN, -1 },
+                { RETURN, 0 }, { ATHROW, -1 },
+        };
+        for (int i = 0; i < effects.length; i++) {
+            STACK_EFFECT[effects[i][0]] = (byte)effects[i][1];
+        }
+    }
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private int poolCount = 1;
+    private final HashMap poolIndex = new HashMap(); // key -m-> Integer
+
+    private final String name;
+    private final String superName;
+    private final int access;
+    private final ArrayList methods = new ArrayList();
+
+    /**
+     * @param name
+     *            the name of the class
+     * @param superName
+     *            the name of the superclass
+     * @param access
+     *            the access modifiers of the class
+     */
+    public ClassFileWriter(String name, String superName, int access) {
+        this.name = name;
+        this.superName = superName;
+        this.access = access;
+    }
+
+    /**
+     * Adds a method to the class.
+     *
+     * @param access
+     *            the access modifiers of the method
+     * @param name
+     *            the name of the method
+     * @param descriptor
+     *            the method descriptor
+     * @return the code of the method, which should be generated before
+     *         {@link #toByteArray()} is called.
+     */
+    public Code addMethod(int access, String name, String descriptor) {
+        Code c = new Code(access, name, descriptor);
+        methods.add(c);
+        return c;
+    }
+
+    /**
+     * @return the contents of the class file.
+     * @throws IllegalStateException
+     *             if a method is too large.
+     */
+    public byte[] toByteArray() {
+        try {
+            // add the remaining constants before the pool is written
+            int thisIdx = classRef(name);
+            int superIdx = classRef(superName);
+            int codeIdx = utf8("Code");
+            int[][] methodIdx = new int[methods.size()][];
+            for (int i = 0; i < methodIdx.length; i++) {
+                Code c = (Code)methods.get(i);
+                methodIdx[i] = new int[] { utf8(c.name), utf8(c.descriptor) };
+            }
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(result);
+            out.writeInt(0xcafebabe);
+            out.writeShort(0); // minor version
+            out.writeShort(49); // major version
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIdx);
+            out.writeShort(superIdx);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+
+            out.writeShort(methods.size());
+            for (int i = 0; i < methodIdx.length; i++) {
+                Code c = (Code)methods.get(i);
+                byte[] code = c.getCode();
+                out.writeShort(c.access);
+                out.writeShort(methodIdx[i][0]);
+                out.writeShort(methodIdx[i][1]);
+                out.writeShort(1); // attributes
+                out.writeShort(codeIdx);
+                out.writeInt(12 + code.length);
+                out.writeShort(c.maxStack);
+                out.writeShort(c.maxLocals);
+                out.writeInt(code.length);
+                out.write(code);
+                out.writeShort(0); // exception table
+                out.writeShort(0); // attributes
+            }
+
+            out.writeShort(0); // attributes
+            out.flush();
+            return result.toByteArray();
+        }
+        catch (IOException e) {
+            // can't happen
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    private int constant(Object key, int tag, Object v1, Object v2) {
+        Integer idx = (Integer)poolIndex.get(key);
+        if (idx != null) {
+            return idx.intValue();
+        }
+
+        int result = poolCount;
+        try {
+            poolOut.writeByte(tag);
+            switch (tag) {
+            case VmUtils.CONSTANT_Utf8:
+                poolOut.writeUTF((String)v1);
+                break;
+            case VmUtils.CONSTANT_Integer:
+                poolOut.writeInt(((Integer)v1).intValue());
+                break;
+            case VmUtils.CONSTANT_Long:
+                poolOut.writeLong(((Long)v1).longValue());
+                poolCount++;
+                break;
+            case VmUtils.CONSTANT_Double:
+                poolOut.writeDouble(((Double)v1).doubleValue());
+                poolCount++;
+                break;
+            case VmUtils.CONSTANT_Class:
+            case VmUtils.CONSTANT_String:
+                poolOut.writeShort(((Integer)v1).intValue());
+                break;
+            default:
+                poolOut.writeShort(((Integer)v1).intValue());
+                poolOut.writeShort(((Integer)v2).intValue());
+            }
+        }
+        catch (IOException e) {
+            // can't happen
+            throw new IllegalStateException(e.toString());
+        }
+        poolCount++;
+        poolIndex.put(key, Integer.valueOf(result));
+        return result;
+    }
+
+    private int utf8(String s) {
+        return constant("U" + s, VmUtils.CONSTANT_Utf8, s, null);
+    }
+
+    private int classRef(String cls) {
+        return constant("C" + cls, VmUtils.CONSTANT_Class,
+                Integer.valueOf(utf8(cls)), null);
+    }
+
+    private int memberRef(int tag, String owner, String name,
+            String descriptor) {
+        int nt = constant("N" + name + ' ' + descriptor,
+                VmUtils.CONSTANT_NameAndType, Integer.valueOf(utf8(name)),
+                Integer.valueOf(utf8(descriptor)));
+        return constant("M" + tag + owner + ' ' + name + ' ' + descriptor, tag,
+                Integer.valueOf(classRef(owner)), Integer.valueOf(nt));
+    }
+
+    // the number of stack words used by the parameters and the result of a
+    // method with the given descriptor
+    private static int[] getSizes(String descriptor) {
+        int params = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                params += 2;
+            }
+            else {
+                params++;
+            }
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            i++;
+        }
+
+        char r = descriptor.charAt(i + 1);
+        return new int[] { params,
+                r == 'V' ? 0 : (r == 'J' || r == 'D') ? 2 : 1 };
+    }
+
+    /**
+     * A jump target within a method.
+     */
+    public final static class Label {
+        private int position = -1;
+        private int stack = -1; // the stack size at the label
+        private final ArrayList jumps = new ArrayList(); // unresolved jumps
+    }
+
+    /**
+     * The code of a method. The maximal stack size and the number of local
+     * variables are computed while the code is generated.
+     */
+    public final class Code {
+
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private byte[] code = new byte[256];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+
+        Code(int access, String name, String descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            maxLocals = getSizes(descriptor)[0]
+                    + ((access & ACC_STATIC) == 0 ? 1 : 0);
+        }
+
+        /**
+         * Allocates a new local variable.
+         *
+         * @param size
+         *            the number of words used by the variable
+         * @return the index of the variable
+         */
+        public int newLocal(int size) {
+            int result = maxLocals;
+            maxLocals += size;
+            return result;
+        }
+
+        /**
+         * @return whether the current position is reachable, i.e. whether the
+         *         previous instruction may continue with the next one.
+         */
+        public boolean isReachable() {
+            return stack >= 0;
+        }
+
+        private void adjust(int delta) {
+            if ((stack += delta) > maxStack) {
+                maxStack = stack;
+            }
+        }
+
+        private void u1(int b) {
+            if (length == code.length) {
+                byte[] code_ = new byte[2 * length];
+                System.arraycopy(code, 0, code_, 0, length);
+                code = code_;
+            }
+            code[length++] = (byte)b;
+        }
+
+        private void u2(int s) {
+            u1(s >> 8);
+            u1(s);
+        }
+
+        /**
+         * Emits an instruction which doesn't have any operands.
+         */
+        public void op(int opcode) {
+            u1(opcode);
+            adjust(STACK_EFFECT[opcode]);
+            if (opcode == ATHROW || (opcode >= IRETURN && opcode <= RETURN)) {
+                stack = -1;
+            }
+        }
+
+        public void intConst(int i) {
+            if (i >= -1 && i <= 5) {
+                u1(ICONST_0 + i);
+            }
+            else if (i >= Byte.MIN_VALUE && i <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(i);
+            }
+            else if (i >= Short.MIN_VALUE && i <= Short.MAX_VALUE) {
+                u1(SIPUSH);
+                u2(i);
+            }
+            else {
+                ldc(constant("I" + i, VmUtils.CONSTANT_Integer,
+                        Integer.valueOf(i), null));
+            }
+            adjust(1);
+        }
+
+        public void longConst(long l) {
+            if (l == 0 || l == 1) {
+                u1(LCONST_0 + (int)l);
+            }
+            else {
+                u1(LDC2_W);
+                u2(constant("J" + l, VmUtils.CONSTANT_Long, Long.valueOf(l),
+                        null));
+            }
+            adjust(2);
+        }
+
+        public void doubleConst(double d) {
+            long bits = Double.doubleToRawLongBits(d);
+            if (bits == 0L || d == 1.0) {
+                u1(DCONST_0 + (int)d);
+            }
+            else {
+                u1(LDC2_W);
+                u2(constant("D" + bits, VmUtils.CONSTANT_Double,
+                        Double.valueOf(d), null));
+            }
+            adjust(2);
+        }
+
+        private void ldc(int idx) {
+            if (idx < 256) {
+                u1(LDC);
+                u1(idx);
+            }
+            else {
+                u1(LDC_W);
+                u2(idx);
+            }
+        }
+
+        /**
+         * Emits an instruction which refers to a local variable, i.e. a load
+         * or a store instruction.
+         */
+        public void local(int opcode, int index) {
+            if (index > 255) {
+                throw new IllegalStateException("too many local variables");
+            }
+            u1(opcode);
+            u1(index);
+            int size = (opcode == LLOAD || opcode == DLOAD
+                    || opcode == LSTORE || opcode == DSTORE) ? 2 : 1;
+            adjust(opcode < ISTORE ? size : -size);
+        }
+
+        public void iinc(int index, int delta) {
+            if (index > 255) {
+                throw new IllegalStateException("too many local variables");
+            }
+            u1(IINC);
+            u1(index);
+            u1(delta);
+        }
+
+        /**
+         * Emits an instruction which refers to a class, i.e.
+         * <code>new</code>, <code>anewarray</code>, <code>checkcast</code> or
+         * <code>instanceof</code>.
+         */
+        public void type(int opcode, String cls) {
+            u1(opcode);
+            u2(classRef(cls));
+            if (opcode == NEW) {
+                adjust(1);
+            }
+        }
+
+        public void field(int opcode, String owner, String name,
+                String descriptor) {
+            u1(opcode);
+            u2(memberRef(VmUtils.CONSTANT_Fieldref, owner, name, descriptor));
+            char c = descriptor.charAt(0);
+            int size = (c == 'J' || c == 'D') ? 2 : 1;
+            switch (opcode) {
+            case GETSTATIC:
+                adjust(size);
+                break;
+            case PUTSTATIC:
+                adjust(-size);
+                break;
+            case GETFIELD:
+                adjust(size - 1);
+                break;
+            default:
+                adjust(-size - 1);
+            }
+        }
+
+        public void invoke(int opcode, String owner, String name,
+                String descriptor) {
+            int[] sizes = getSizes(descriptor);
+            u1(opcode);
+            if (opcode == INVOKEINTERFACE) {
+                u2(memberRef(VmUtils.CONSTANT_InterfaceMethodref, owner, name,
+                        descriptor));
+                u1(sizes[0] + 1);
+                u1(0);
+            }
+            else {
+                u2(memberRef(VmUtils.CONSTANT_Methodref, owner, name,
+                        descriptor));
+            }
+            adjust(sizes[1] - sizes[0] - (opcode == INVOKESTATIC ? 0 : 1));
+        }
+
+        public Label newLabel() {
+            return new Label();
+        }
+
+        /**
+         * Emits a jump instruction.
+         */
+        public void jump(int opcode, Label target) {
+            if (opcode == IF_ICMPEQ || opcode == IF_ICMPNE
+                    || opcode == IF_ICMPLT || opcode == IF_ICMPGE
+                    || opcode == IF_ICMPGT || opcode == IF_ICMPLE
+                    || opcode == IF_ACMPEQ || opcode == IF_ACMPNE) {
+                adjust(-2);
+            }
+            else if (opcode != GOTO) {
+                adjust(-1);
+            }
+
+            if (stack >= 0) {
+                target.stack = stack;
+            }
+            int pos = length;
+            u1(opcode);
+            if (target.position >= 0) {
+                u2(offset(pos, target.position));
+            }
+            else {
+                target.jumps.add(Integer.valueOf(pos));
+                u2(0);
+            }
+
+            if (opcode == GOTO) {
+                stack = -1;
+            }
+        }
+
+        /**
+         * Places the label at the current position.
+         */
+        public void mark(Label l) {
+            if (l.stack >= 0) {
+                stack = l.stack;
+            }
+            l.stack = stack;
+            l.position = length;
+
+            // resolve the forward jumps to the label
+            for (int i = 0; i < l.jumps.size(); i++) {
+                int pos = ((Integer)l.jumps.get(i)).intValue();
+                int offs = offset(pos, length);
+                code[pos + 1] = (byte)(offs >> 8);
+                code[pos + 2] = (byte)offs;
+            }
+            l.jumps.clear();
+        }
+
+        private int offset(int from, int to) {
+            int offs = to - from;
+            if (offs < Short.MIN_VALUE || offs > Short.MAX_VALUE) {
+                throw new IllegalStateException("code too large");
+            }
+            return offs;
+        }
+
+        byte[] getCode() {
+            if (length > 65535) {
+                throw new IllegalStateException("code too large");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(code, 0, result, 0, length);
+            return result;
+        }
+
+    }
+
+}
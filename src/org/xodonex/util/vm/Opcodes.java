@@ -0,0 +1,54 @@
+// Copyright 1998,1999,2000,2001,2018, Henrik Lauritzen.
+/*
+    This file is part of the Hojo interpreter & toolkit.
+
+    The Hojo interpreter & toolkit is free software: you can redistribute it
+    and/or modify it under the terms of the GNU Affero General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    The Hojo interpreter & toolkit is distributed in the hope that it will
+    be useful or (at least have historical interest),
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+    See the GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this file.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.xodonex.util.vm;
+
+/**
+ * The JVM opcodes and access modifiers used by the {@link ClassFileWriter}.
+ */
+public interface Opcodes {
+
+    // opcodes
+    int ACONST_NULL = 1, ICONST_0 = 3, LCONST_0 = 9,
+            DCONST_0 = 14, BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19,
+            LDC2_W = 20, ILOAD = 21, LLOAD = 22, DLOAD = 24, ALOAD = 25,
+            AALOAD = 50, ISTORE = 54, LSTORE = 55, DSTORE = 57, ASTORE = 58,
+            AASTORE = 83, POP = 87, POP2 = 88, DUP = 89, DUP_X1 = 90,
+            DUP_X2 = 91, DUP2 = 92, DUP2_X1 = 93, DUP2_X2 = 94, SWAP = 95,
+            IADD = 96, LADD = 97, DADD = 99, ISUB = 100, LSUB = 101,
+            DSUB = 103, IMUL = 104, LMUL = 105, DMUL = 107, IDIV = 108,
+            LDIV = 109, DDIV = 111, IREM = 112, LREM = 113, DREM = 115,
+            INEG = 116, LNEG = 117, DNEG = 119, IXOR = 130, IINC = 132,
+            I2L = 133, I2D = 135, L2I = 136, L2D = 138, D2I = 142, D2L = 143,
+            LCMP = 148, DCMPL = 151, DCMPG = 152, IFEQ = 153, IFNE = 154,
+            IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158, IF_ICMPEQ = 159,
+            IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162,
+            IF_ICMPGT = 163, IF_ICMPLE = 164, IF_ACMPEQ = 165,
+            IF_ACMPNE = 166, GOTO = 167, IRETURN = 172, LRETURN = 173,
+            DRETURN = 175, ARETURN = 176, RETURN = 177, GETSTATIC = 178,
+            PUTSTATIC = 179, GETFIELD = 180, PUTFIELD = 181,
+            INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184,
+            INVOKEINTERFACE = 185, NEW = 187, ANEWARRAY = 189, ATHROW = 191,
+            CHECKCAST = 192, INSTANCEOF = 193, IFNULL = 198,
+            IFNONNULL = 199;
+
+    // access modifiers
+    int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_STATIC = 0x0008,
+            ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+}
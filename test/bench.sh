@@ -0,0 +1,8 @@
+#!/bin/bash
+# Simple benchmark suite. An alternative jar file may be given as the first
+# argument, e.g. in order to compare against a previous build.
+jar=${1:-./build/hojo.jar}
+for f in ./test/bench/*.hjo; do
+    echo "== $f"
+    java -jar "$jar" --minimal < "$f" 2>&1 | grep -v '^>\? *$\|Hojo [0-9.]*\.$\|^(C)'
+done